@@ -69,6 +69,16 @@ public class HttpServer extends Server {
         }
     }
 
+    /**
+     * Called in the selector thread once the headers of a request with a body have been parsed.
+     * A non-null result makes the session stream the body to the consumer instead of buffering it
+     * in {@link Request#getBody()}; the request is handled as usual after the body is consumed.
+     * Streamed bodies are not limited by the maximum request body length.
+     */
+    public RequestBodyConsumer createBodyConsumer(Request request, HttpSession session) {
+        return null;
+    }
+
     public void handleDefault(Request request, HttpSession session) throws IOException {
         Response response = new Response(Response.NOT_FOUND, Response.EMPTY);
         session.sendResponse(response);
@@ -24,6 +24,7 @@ import one.nio.util.Utf8;
 
 import java.io.IOException;
 import java.nio.BufferOverflowException;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 public class HttpSession extends Session {
@@ -35,13 +36,27 @@ public class HttpSession extends Session {
 
     protected static final Request FIN = new Request(0, "", false);
 
+    // Request body parsing states
+    protected static final int BODY_NONE       = 0;
+    protected static final int BODY_FIXED      = 1; // Content-Length body
+    protected static final int BODY_CHUNK_SIZE = 2; // Expecting chunk size line
+    protected static final int BODY_CHUNK_DATA = 3; // Inside chunk data
+    protected static final int BODY_CHUNK_END  = 4; // Expecting CRLF after chunk data
+    protected static final int BODY_TRAILER    = 5; // Skipping trailer headers after the last chunk
+
     protected final HttpServer server;
     protected final LinkedList<Request> pipeline = new LinkedList<>();
     protected final byte[] fragment = new byte[MAX_FRAGMENT_LENGTH];
     protected int fragmentLength;
     protected int requestBodyOffset;
+    protected int bodyState;
+    protected long bodyRemaining;
+    protected RequestBodyConsumer bodyConsumer;
+    protected byte[] headerBuffer;
+    protected int headerBufferLength;
     protected Request parsing;
     protected volatile Request handling;
+    protected long requestTimeout;
 
     public HttpSession(Socket socket, HttpServer server) {
         super(socket);
@@ -51,6 +66,9 @@ public class HttpSession extends Session {
     @Override
     public int checkStatus(long currentTime, long keepAlive) {
         long lastAccessTime = this.lastAccessTime;
+        if (requestTimeout > 0 && handling != null && lastAccessTime < currentTime - requestTimeout) {
+            return STALE;
+        }
         if (lastAccessTime < currentTime - keepAlive) {
             if (queueHead == null && handling == null) {
                 return IDLE;
@@ -61,6 +79,16 @@ public class HttpSession extends Session {
         return ACTIVE;
     }
 
+    // Close the session as stale if a request is not answered within this many ms; 0 means keepAlive * 8
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public long checkInterval(long keepAlive) {
+        return minTimeout(super.checkInterval(keepAlive), requestTimeout);
+    }
+
     @Override
     protected void processRead(byte[] buffer) throws IOException {
         int length = fragmentLength;
@@ -114,6 +142,18 @@ public class HttpSession extends Session {
     protected int startParsingRequestBody(String contentLengthHeader, byte[] buffer, int offset, int remaining)
         throws IOException, HttpException
     {
+        int contentLength = parseContentLength(contentLengthHeader);
+        if (contentLength > getMaxRequestBodyLength()) {
+            throw new BufferOverflowException();
+        }
+
+        byte[] body = new byte[contentLength];
+        System.arraycopy(buffer, offset, body, 0, requestBodyOffset = Math.min(remaining, contentLength));
+        parsing.setBody(body);
+        return requestBodyOffset;
+    }
+
+    protected static int parseContentLength(String contentLengthHeader) throws HttpException {
         int contentLength;
         try {
             contentLength = Integer.parseInt(contentLengthHeader);
@@ -124,15 +164,194 @@ public class HttpSession extends Session {
         if (contentLength < 0) {
             throw new HttpException("Invalid Content-Length header");
         }
+        return contentLength;
+    }
 
-        if (contentLength > getMaxRequestBodyLength()) {
-            throw new BufferOverflowException();
+    // Called after the empty line that terminates request headers.
+    // Returns the position in the buffer after the consumed part of the body.
+    protected int startRequestBody(byte[] buffer, int offset, int length) throws IOException, HttpException {
+        String transferEncoding = parsing.getHeader(Request.HEADER_TRANSFER_ENCODING);
+        if (transferEncoding != null) {
+            if (!"chunked".equalsIgnoreCase(transferEncoding)) {
+                throw new HttpException("Unsupported Transfer-Encoding");
+            }
+            bodyConsumer = server.createBodyConsumer(parsing, this);
+            bodyState = BODY_CHUNK_SIZE;
+            return processRequestBody(buffer, offset, length);
         }
 
-        byte[] body = new byte[contentLength];
-        System.arraycopy(buffer, offset, body, 0, requestBodyOffset = Math.min(remaining, contentLength));
-        parsing.setBody(body);
-        return requestBodyOffset;
+        String contentLengthHeader = parsing.getHeader(Request.HEADER_CONTENT_LENGTH);
+        if (contentLengthHeader == null) {
+            return offset;
+        }
+
+        bodyConsumer = server.createBodyConsumer(parsing, this);
+        if (bodyConsumer == null) {
+            offset += startParsingRequestBody(contentLengthHeader, buffer, offset, length - offset);
+            if (requestBodyOffset < parsing.getBody().length) {
+                bodyState = BODY_FIXED;
+            }
+            return offset;
+        }
+
+        bodyRemaining = parseContentLength(contentLengthHeader);
+        bodyState = BODY_FIXED;
+        return processRequestBody(buffer, offset, length);
+    }
+
+    // Returns the position in the buffer after the consumed part of the body.
+    // Incomplete chunk size or trailer lines are left unconsumed.
+    protected int processRequestBody(byte[] buffer, int offset, int length) throws IOException, HttpException {
+        while (bodyState != BODY_NONE) {
+            switch (bodyState) {
+                case BODY_FIXED:
+                    if (bodyConsumer == null) {
+                        byte[] body = parsing.getBody();
+                        int bytes = Math.min(length - offset, body.length - requestBodyOffset);
+                        System.arraycopy(buffer, offset, body, requestBodyOffset, bytes);
+                        requestBodyOffset += bytes;
+                        offset += bytes;
+                        if (requestBodyOffset < body.length) {
+                            return offset;
+                        }
+                    } else {
+                        int bytes = (int) Math.min(length - offset, bodyRemaining);
+                        if (bytes > 0) {
+                            bodyConsumer.onData(buffer, offset, bytes);
+                        }
+                        bodyRemaining -= bytes;
+                        offset += bytes;
+                        if (bodyRemaining > 0) {
+                            return offset;
+                        }
+                    }
+                    completeRequestBody();
+                    break;
+
+                case BODY_CHUNK_SIZE: {
+                    int lineEnd = Utf8.indexOf((byte) '\n', buffer, offset, length - offset);
+                    if (lineEnd < 0) {
+                        return offset;
+                    }
+                    bodyRemaining = parseChunkSize(buffer, offset, lineEnd);
+                    if (bodyConsumer == null && requestBodyOffset + bodyRemaining > getMaxRequestBodyLength()) {
+                        throw new BufferOverflowException();
+                    }
+                    bodyState = bodyRemaining == 0 ? BODY_TRAILER : BODY_CHUNK_DATA;
+                    offset = lineEnd + 1;
+                    break;
+                }
+
+                case BODY_CHUNK_DATA: {
+                    int bytes = (int) Math.min(length - offset, bodyRemaining);
+                    if (bytes > 0) {
+                        appendChunkData(buffer, offset, bytes);
+                    }
+                    bodyRemaining -= bytes;
+                    offset += bytes;
+                    if (bodyRemaining > 0) {
+                        return offset;
+                    }
+                    bodyState = BODY_CHUNK_END;
+                    break;
+                }
+
+                case BODY_CHUNK_END: {
+                    int lineEnd = Utf8.indexOf((byte) '\n', buffer, offset, length - offset);
+                    if (lineEnd < 0) {
+                        return offset;
+                    }
+                    if (lineEnd > offset && (lineEnd > offset + 1 || buffer[offset] != '\r')) {
+                        throw new HttpException("Invalid chunk");
+                    }
+                    bodyState = BODY_CHUNK_SIZE;
+                    offset = lineEnd + 1;
+                    break;
+                }
+
+                case BODY_TRAILER: {
+                    int lineEnd = Utf8.indexOf((byte) '\n', buffer, offset, length - offset);
+                    if (lineEnd < 0) {
+                        return offset;
+                    }
+                    // Trailer headers are ignored; an empty line ends the body
+                    boolean emptyLine = lineEnd == offset || (lineEnd == offset + 1 && buffer[offset] == '\r');
+                    offset = lineEnd + 1;
+                    if (emptyLine) {
+                        completeRequestBody();
+                    }
+                    break;
+                }
+
+                default:
+                    throw new IllegalStateException("Invalid body state: " + bodyState);
+            }
+        }
+        return offset;
+    }
+
+    private void appendChunkData(byte[] buffer, int offset, int bytes) throws IOException {
+        if (bodyConsumer != null) {
+            bodyConsumer.onData(buffer, offset, bytes);
+            return;
+        }
+
+        byte[] body = parsing.getBody();
+        int newLength = requestBodyOffset + bytes;
+        if (body == null) {
+            body = new byte[(int) Math.min(Math.max(newLength, bodyRemaining), getMaxRequestBodyLength())];
+            parsing.setBody(body);
+        } else if (newLength > body.length) {
+            body = Arrays.copyOf(body, Math.min(Math.max(newLength, body.length * 2), getMaxRequestBodyLength()));
+            parsing.setBody(body);
+        }
+
+        System.arraycopy(buffer, offset, body, requestBodyOffset, bytes);
+        requestBodyOffset = newLength;
+    }
+
+    private void completeRequestBody() throws IOException {
+        bodyState = BODY_NONE;
+
+        RequestBodyConsumer bodyConsumer = this.bodyConsumer;
+        if (bodyConsumer != null) {
+            this.bodyConsumer = null;
+            bodyConsumer.onComplete();
+            return;
+        }
+
+        // Chunked body may be allocated with a reserve
+        byte[] body = parsing.getBody();
+        if (body == null) {
+            parsing.setBody(Response.EMPTY);
+        } else if (body.length != requestBodyOffset) {
+            parsing.setBody(Arrays.copyOf(body, requestBodyOffset));
+        }
+    }
+
+    private static long parseChunkSize(byte[] buffer, int start, int end) throws HttpException {
+        long size = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            int b = buffer[i];
+            int digit = Character.digit(b, 16);
+            if (digit >= 0) {
+                if (++digits > 15) {
+                    throw new HttpException("Invalid chunk size");
+                }
+                size = size << 4 | digit;
+            } else if (b == ';' || b == '\r' || b == ' ' || b == '\t') {
+                // Chunk extensions are ignored
+                break;
+            } else {
+                throw new HttpException("Invalid chunk size");
+            }
+        }
+
+        if (digits == 0) {
+            throw new HttpException("Invalid chunk size");
+        }
+        return size;
     }
 
     protected void handleParsedRequest() throws IOException {
@@ -145,27 +364,23 @@ public class HttpSession extends Session {
         }
         parsing = null;
         requestBodyOffset = 0;
+        bodyRemaining = 0;
     }
 
     protected int processHttpBuffer(byte[] buffer, int length) throws IOException, HttpException {
         int lineStart = 0; // Current position in the buffer
 
-        if (parsing != null && parsing.getBody() != null) { // Resume consuming request body
-            byte[] body = parsing.getBody();
-            int remaining = Math.min(length, body.length - requestBodyOffset);
-            System.arraycopy(buffer, 0, body, requestBodyOffset, remaining);
-            requestBodyOffset += remaining;
-
-            if (requestBodyOffset < body.length) {
-                // All the buffer copied to body, but that is not enough -- wait for next data
-                return length;
+        if (bodyState != BODY_NONE) { // Resume consuming request body
+            lineStart = processRequestBody(buffer, 0, length);
+            if (bodyState != BODY_NONE) {
+                // All the buffer consumed, but the body is not complete yet -- wait for next data
+                return lineStart;
             } else if (closing) {
-                return remaining;
+                return lineStart;
             }
 
             // Process current request
             handleParsedRequest();
-            lineStart = remaining;
         }
 
         for (int i = lineStart; i < length; i++) {
@@ -179,6 +394,7 @@ public class HttpSession extends Session {
 
             if (parsing == null) {
                 parsing = parseRequest(buffer, lineStart, lineLength);
+                headerBufferLength = 0;
                 if (isSsl()) {
                     boolean earlyDataAccepted = socket.getSslOption(SslOption.SESSION_EARLYDATA_ACCEPTED);
                     boolean handshakeDone = socket.getSslOption(SslOption.SESSION_HANDSHAKE_DONE);
@@ -187,17 +403,19 @@ public class HttpSession extends Session {
 
             } else if (lineLength > 0) {
                 if (parsing.getHeaderCount() < MAX_HEADERS) {
-                    parsing.addHeader(Utf8.read(buffer, lineStart, lineLength));
+                    addRawHeader(buffer, lineStart, lineLength);
                 }
             } else {
                 // Empty line -- there is next request or body of the current request
-                String contentLengthHeader = parsing.getHeader("Content-Length:");
-                if (contentLengthHeader != null) {
-                    i += startParsingRequestBody(contentLengthHeader, buffer, i, length - i);
-                    if (requestBodyOffset < parsing.getBody().length) {
-                        // The body has not been read completely yet
-                        return i;
-                    }
+                if (headerBufferLength > 0) {
+                    parsing.setRawHeaders(Arrays.copyOf(headerBuffer, headerBufferLength));
+                    headerBufferLength = 0;
+                }
+
+                i = startRequestBody(buffer, i, length);
+                if (bodyState != BODY_NONE) {
+                    // The body has not been read completely yet
+                    return i;
                 }
 
                 // Process current request
@@ -214,6 +432,21 @@ public class HttpSession extends Session {
         return lineStart;
     }
 
+    // Header lines are accumulated in a reusable per-session buffer and decoded lazily by Request
+    protected void addRawHeader(byte[] buffer, int offset, int length) {
+        byte[] headerBuffer = this.headerBuffer;
+        int newLength = headerBufferLength + length;
+        if (headerBuffer == null) {
+            this.headerBuffer = headerBuffer = new byte[Math.max(MAX_FRAGMENT_LENGTH, length)];
+        } else if (newLength > headerBuffer.length) {
+            this.headerBuffer = headerBuffer = Arrays.copyOf(headerBuffer, Math.max(newLength, headerBuffer.length * 2));
+        }
+
+        System.arraycopy(buffer, offset, headerBuffer, headerBufferLength, length);
+        parsing.addRawHeader(headerBuffer, headerBufferLength, length);
+        headerBufferLength = newLength;
+    }
+
     protected Request parseRequest(byte[] buffer, int start, int length) throws HttpException {
         // <VERB> <PATH> HTTP/1.{0|1}
         for (int i = 1; i < Request.VERBS.length; i++) {
@@ -235,7 +468,7 @@ public class HttpSession extends Session {
 
         server.incRequestsProcessed();
 
-        String connection = handling.getHeader("Connection:");
+        String connection = handling.getHeader(Request.HEADER_CONNECTION);
         boolean keepAlive = handling.isHttp11()
                 ? !"close".equalsIgnoreCase(connection)
                 : "Keep-Alive".equalsIgnoreCase(connection);
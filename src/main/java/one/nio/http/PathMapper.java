@@ -22,12 +22,95 @@ import java.util.HashMap;
 /**
  * Finds a RequestHandler by the given @Path and HTTP method.
  * Uses an embedded HashMap for performance reasons.
+ * <p>
+ * Paths with {@code {variable}} segments, e.g. {@code /users/{id}/items}, and prefix paths
+ * ending with {@code /*}, e.g. {@code /static/*}, are compiled into a trie of path segments.
+ * The trie is consulted only if there is no exact match. Literal segments take precedence
+ * over variables, and variables take precedence over prefixes. Matching does not allocate.
  */
 public class PathMapper extends HashMap<String, RequestHandler[]> {
+    private final Node root = new Node();
 
     // Add a new mapping
     public void add(String path, int[] methods, RequestHandler handler) {
+        if (isTemplate(path)) {
+            addTemplate(path, methods, handler);
+            return;
+        }
+
         RequestHandler[] handlersByMethod = super.computeIfAbsent(path, p -> new RequestHandler[1]);
+        RequestHandler[] updated = addHandler(handlersByMethod, path, methods, handler);
+        if (updated != handlersByMethod) {
+            super.put(path, updated);
+        }
+    }
+
+    // Return an existing handler for this HTTP request or null if not found
+    public RequestHandler find(String path, int method) {
+        RequestHandler[] handlersByMethod = super.get(path);
+        if (handlersByMethod != null) {
+            RequestHandler handler = selectHandler(handlersByMethod, method);
+            if (handler != null || root.isEmpty()) {
+                return handler;
+            }
+        }
+
+        if (root.isEmpty() || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return root.match(path, 1, method);
+    }
+
+    // Split a path template into segments. Variables are kept in the {name} form.
+    public static String[] segments(String path) {
+        return path.substring(1).split("/", -1);
+    }
+
+    static boolean isTemplate(String path) {
+        return path.indexOf('{') >= 0 || path.endsWith("/*");
+    }
+
+    static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    private void addTemplate(String path, int[] methods, RequestHandler handler) {
+        String[] segments = segments(path);
+        boolean prefix = segments[segments.length - 1].equals("*");
+        int count = prefix ? segments.length - 1 : segments.length;
+
+        Node node = root;
+        for (int i = 0; i < count; i++) {
+            String segment = segments[i];
+            if (isVariable(segment)) {
+                // A variable is bound by its first occurrence, so a repeated name would silently lose a value
+                for (int j = 0; j < i; j++) {
+                    if (segments[j].equals(segment)) {
+                        throw new IllegalArgumentException("Duplicate variable " + segment + " in path " + path);
+                    }
+                }
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0 || segment.equals("*")) {
+                throw new IllegalArgumentException("Invalid segment '" + segment + "' in path " + path);
+            } else {
+                node = node.child(segment);
+            }
+        }
+
+        if (prefix) {
+            node.prefixHandlers = addHandler(node.prefixHandlers, path, methods, handler);
+        } else {
+            node.handlers = addHandler(node.handlers, path, methods, handler);
+        }
+    }
+
+    private static RequestHandler[] addHandler(RequestHandler[] handlersByMethod, String path, int[] methods, RequestHandler handler) {
+        if (handlersByMethod == null) {
+            handlersByMethod = new RequestHandler[1];
+        }
         if (methods == null) {
             handlersByMethod[0] = handler;
         } else {
@@ -37,20 +120,14 @@ public class PathMapper extends HashMap<String, RequestHandler[]> {
                 }
                 if (method >= handlersByMethod.length) {
                     handlersByMethod = Arrays.copyOf(handlersByMethod, method + 1);
-                    super.put(path, handlersByMethod);
                 }
                 handlersByMethod[method] = handler;
             }
         }
+        return handlersByMethod;
     }
 
-    // Return an existing handler for this HTTP request or null if not found
-    public RequestHandler find(String path, int method) {
-        RequestHandler[] handlersByMethod = super.get(path);
-        if (handlersByMethod == null) {
-            return null;
-        }
-
+    private static RequestHandler selectHandler(RequestHandler[] handlersByMethod, int method) {
         // First, try to find a handler with @RequestMethod annotation
         if (method > 0 && method < handlersByMethod.length && handlersByMethod[method] != null) {
             return handlersByMethod[method];
@@ -58,4 +135,67 @@ public class PathMapper extends HashMap<String, RequestHandler[]> {
         // Otherwise return the universal handler for all methods
         return handlersByMethod[0];
     }
+
+    private static class Node {
+        String[] keys = new String[0];
+        Node[] children = new Node[0];
+        Node variable;
+        RequestHandler[] handlers;
+        RequestHandler[] prefixHandlers;
+
+        boolean isEmpty() {
+            return keys.length == 0 && variable == null && handlers == null && prefixHandlers == null;
+        }
+
+        Node child(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return children[i];
+                }
+            }
+
+            Node child = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        // start points to the beginning of the next segment, right after '/'
+        RequestHandler match(String path, int start, int method) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            int length = end - start;
+
+            String[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    RequestHandler handler = children[i].matchRest(path, end, method);
+                    if (handler != null) {
+                        return handler;
+                    }
+                }
+            }
+
+            if (variable != null && length > 0) {
+                RequestHandler handler = variable.matchRest(path, end, method);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+
+            return prefixHandlers == null ? null : selectHandler(prefixHandlers, method);
+        }
+
+        private RequestHandler matchRest(String path, int end, int method) {
+            if (end == path.length()) {
+                return handlers == null ? null : selectHandler(handlers, method);
+            }
+            return match(path, end + 1, method);
+        }
+    }
 }
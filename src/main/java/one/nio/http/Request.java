@@ -69,12 +69,30 @@ public class Request {
     private static final byte[] HTTP11_HEADER = Utf8.toBytes(" HTTP/1.1\r\n");
     private static final int PROTOCOL_HEADER_LENGTH = 13;
 
+    // Well-known headers, which are indexed while being added to a request
+    static final int HEADER_HOST              = 0;
+    static final int HEADER_CONTENT_LENGTH    = 1;
+    static final int HEADER_CONNECTION        = 2;
+    static final int HEADER_TRANSFER_ENCODING = 3;
+
+    private static final String[] KNOWN_HEADERS = {
+            "Host:",
+            "Content-Length:",
+            "Connection:",
+            "Transfer-Encoding:"
+    };
+
     private int method;
     private String uri;
     private boolean http11;
     private int params; // -1 if no query parameters
     private int headerCount;
     private String[] headers;
+    // Headers parsed from the wire are kept as raw bytes and decoded on demand.
+    // rawHeaderBounds holds (offset, length) pairs within rawHeaders; headers[i] == null for a raw header.
+    private byte[] rawHeaders;
+    private int[] rawHeaderBounds;
+    private final int[] knownHeaders; // 1-based index of the first header with the given id, 0 if absent
     private byte[] body;
 
     public Request(int method, String uri, boolean http11) {
@@ -85,6 +103,7 @@ public class Request {
         this.params = uri.indexOf('?');
         this.headerCount = 0;
         this.headers = new String[16];
+        this.knownHeaders = new int[KNOWN_HEADERS.length];
     }
 
     public Request(Request prototype) {
@@ -94,6 +113,9 @@ public class Request {
         this.params = prototype.params;
         this.headerCount = prototype.headerCount;
         this.headers = prototype.headers.clone();
+        this.rawHeaders = prototype.rawHeaders;
+        this.rawHeaderBounds = prototype.rawHeaderBounds == null ? null : prototype.rawHeaderBounds.clone();
+        this.knownHeaders = prototype.knownHeaders.clone();
         this.body = prototype.body;
     }
 
@@ -127,6 +149,30 @@ public class Request {
         return params >= 0 ? uri.substring(0, params) : uri;
     }
 
+    /**
+     * Returns the URL-decoded path segment at the given index, e.g. for {@code /users/42/items}
+     * segment 0 is {@code users} and segment 1 is {@code 42}, or null if there is no such segment.
+     */
+    public String getPathSegment(int index) {
+        int end = params >= 0 ? params : uri.length();
+        int start = 1;
+        for (; index > 0; index--) {
+            start = uri.indexOf('/', start) + 1;
+            if (start <= 0 || start > end) {
+                return null;
+            }
+        }
+        if (start > end) {
+            return null;
+        }
+
+        int next = uri.indexOf('/', start);
+        if (next < 0 || next > end) {
+            next = end;
+        }
+        return URLEncoder.decode(uri.substring(start, next));
+    }
+
     public String getQueryString() {
         return params >= 0 ? URLEncoder.decode(uri.substring(params + 1)) : null;
     }
@@ -250,14 +296,25 @@ public class Request {
     }
 
     public String[] getHeaders() {
+        for (int i = 0; i < headerCount; i++) {
+            if (headers[i] == null) {
+                headers[i] = decodeRawHeader(i);
+            }
+        }
         return headers;
     }
 
     public String getHeader(String key) {
         int keyLength = key.length();
+        int known = knownHeaderId(key);
+        if (known >= 0) {
+            int index = knownHeaders[known] - 1;
+            return index >= 0 ? headerValue(index, keyLength) : null;
+        }
+
         for (int i = 0; i < headerCount; i++) {
-            if (headers[i].regionMatches(true, 0, key, 0, keyLength)) {
-                return trim(headers[i], keyLength);
+            if (headerMatches(i, key, keyLength)) {
+                return headerValue(i, keyLength);
             }
         }
         return null;
@@ -266,8 +323,8 @@ public class Request {
     public void consumeHeaders(String prefix, Consumer<String> suffixConsumer) {
         int keyLength = prefix.length();
         for (int i = 0; i < headerCount; i++) {
-            if (headers[i].regionMatches(true, 0, prefix, 0, keyLength)) {
-                suffixConsumer.accept(trim(headers[i], keyLength));
+            if (headerMatches(i, prefix, keyLength)) {
+                suffixConsumer.accept(headerValue(i, keyLength));
             }
         }
     }
@@ -281,11 +338,8 @@ public class Request {
     public String getHeaderValue(String key) {
         int keyLength = key.length();
         for (int i = 0; i < headerCount; i++) {
-            String header = headers[i];
-            if (header.length() > keyLength
-                    && header.charAt(keyLength) == ':'
-                    && header.regionMatches(true, 0, key, 0, keyLength)) {
-                return trim(header, keyLength + 1);
+            if (headerNameMatches(i, key, keyLength)) {
+                return headerValue(i, keyLength + 1);
             }
         }
         return null;
@@ -300,11 +354,8 @@ public class Request {
     public void consumeHeaderValues(String key, Consumer<String> suffixConsumer) {
         int keyLength = key.length();
         for (int i = 0; i < headerCount; i++) {
-            String header = headers[i];
-            if (header.length() > keyLength
-                    && header.charAt(keyLength) == ':'
-                    && header.regionMatches(true, 0, key, 0, keyLength)) {
-                suffixConsumer.accept(trim(header, keyLength + 1));
+            if (headerNameMatches(i, key, keyLength)) {
+                suffixConsumer.accept(headerValue(i, keyLength + 1));
             }
         }
     }
@@ -327,6 +378,134 @@ public class Request {
             headers = Arrays.copyOf(headers, headers.length + 8);
         }
         headers[headerCount++] = header;
+
+        for (int id = 0; id < KNOWN_HEADERS.length; id++) {
+            String name = KNOWN_HEADERS[id];
+            if (knownHeaders[id] == 0 && header.regionMatches(true, 0, name, 0, name.length())) {
+                knownHeaders[id] = headerCount;
+                break;
+            }
+        }
+    }
+
+    // Adds a header which is located in the raw header buffer at the given offset.
+    // The buffer itself is attached later with setRawHeaders().
+    void addRawHeader(byte[] buf, int offset, int length) {
+        if (headerCount >= headers.length) {
+            headers = Arrays.copyOf(headers, headers.length + 8);
+        }
+        if (rawHeaderBounds == null) {
+            rawHeaderBounds = new int[headers.length * 2];
+        } else if (rawHeaderBounds.length < headers.length * 2) {
+            rawHeaderBounds = Arrays.copyOf(rawHeaderBounds, headers.length * 2);
+        }
+
+        int index = headerCount++;
+        rawHeaderBounds[index * 2] = offset;
+        rawHeaderBounds[index * 2 + 1] = length;
+
+        for (int id = 0; id < KNOWN_HEADERS.length; id++) {
+            if (knownHeaders[id] == 0 && rawStartsWith(buf, offset, length, KNOWN_HEADERS[id])) {
+                knownHeaders[id] = headerCount;
+                break;
+            }
+        }
+    }
+
+    void setRawHeaders(byte[] rawHeaders) {
+        this.rawHeaders = rawHeaders;
+    }
+
+    String getHeader(int knownHeaderId) {
+        int index = knownHeaders[knownHeaderId] - 1;
+        return index >= 0 ? headerValue(index, KNOWN_HEADERS[knownHeaderId].length()) : null;
+    }
+
+    private static int knownHeaderId(String key) {
+        for (int id = 0; id < KNOWN_HEADERS.length; id++) {
+            if (KNOWN_HEADERS[id].equalsIgnoreCase(key)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    // Case-insensitive prefix match, equivalent to headers[i].regionMatches(true, 0, key, 0, keyLength)
+    private boolean headerMatches(int i, String key, int keyLength) {
+        String header = headers[i];
+        if (header != null) {
+            return header.regionMatches(true, 0, key, 0, keyLength);
+        }
+
+        if (!isAscii(key, keyLength)) {
+            return (headers[i] = decodeRawHeader(i)).regionMatches(true, 0, key, 0, keyLength);
+        }
+        return rawStartsWith(rawHeaders, rawHeaderBounds[i * 2], rawHeaderBounds[i * 2 + 1], key);
+    }
+
+    // Matches "key:" header name
+    private boolean headerNameMatches(int i, String key, int keyLength) {
+        String header = headers[i];
+        if (header == null) {
+            if (isAscii(key, keyLength)) {
+                int offset = rawHeaderBounds[i * 2];
+                int length = rawHeaderBounds[i * 2 + 1];
+                return length > keyLength
+                        && rawHeaders[offset + keyLength] == ':'
+                        && rawStartsWith(rawHeaders, offset, length, key);
+            }
+            header = headers[i] = decodeRawHeader(i);
+        }
+        return header.length() > keyLength
+                && header.charAt(keyLength) == ':'
+                && header.regionMatches(true, 0, key, 0, keyLength);
+    }
+
+    private String headerValue(int i, int from) {
+        String header = headers[i];
+        if (header != null) {
+            return trim(header, from);
+        }
+
+        int offset = rawHeaderBounds[i * 2];
+        int to = offset + rawHeaderBounds[i * 2 + 1];
+        from += offset;
+        while (from < to && (rawHeaders[from] & 0xff) <= ' ') from++;
+        while (from < to && (rawHeaders[to - 1] & 0xff) <= ' ') to--;
+        return Utf8.read(rawHeaders, from, to - from);
+    }
+
+    private String decodeRawHeader(int i) {
+        return Utf8.read(rawHeaders, rawHeaderBounds[i * 2], rawHeaderBounds[i * 2 + 1]);
+    }
+
+    private static boolean rawStartsWith(byte[] buf, int offset, int length, String key) {
+        int keyLength = key.length();
+        if (length < keyLength) {
+            return false;
+        }
+
+        for (int i = 0; i < keyLength; i++) {
+            int b = buf[offset + i];
+            int c = key.charAt(i);
+            if (b != c && toLowerAscii(b) != toLowerAscii(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isAscii(String s, int length) {
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public byte[] getBody() {
@@ -342,7 +521,7 @@ public class Request {
     }
 
     public String getHost() {
-        String host = getHeader("Host:");
+        String host = getHeader(HEADER_HOST);
         if (host == null) {
             return null;
         }
@@ -353,6 +532,7 @@ public class Request {
 
     public byte[] toBytes() {
         int estimatedSize = VERBS[method].length + Utf8.length(uri) + PROTOCOL_HEADER_LENGTH + headerCount * 2;
+        String[] headers = getHeaders();
         for (int i = 0; i < headerCount; i++) {
             estimatedSize += headers[i].length();
         }
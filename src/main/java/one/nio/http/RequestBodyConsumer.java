@@ -0,0 +1,33 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.http;
+
+import java.io.IOException;
+
+/**
+ * Receives a request body in fragments as they arrive from the network,
+ * so that the whole body is never buffered in memory.
+ * Both methods are called in the selector thread; the data array is reused
+ * after {@code onData} returns, so the consumer must copy what it needs to keep.
+ *
+ * @see HttpServer#createBodyConsumer(Request, HttpSession)
+ */
+public interface RequestBodyConsumer {
+    void onData(byte[] data, int offset, int length) throws IOException;
+
+    void onComplete() throws IOException;
+}
@@ -20,6 +20,9 @@ import one.nio.gen.BytecodeGenerator;
 import one.nio.http.Header;
 import one.nio.http.HttpSession;
 import one.nio.http.Param;
+import one.nio.http.Path;
+import one.nio.http.PathMapper;
+import one.nio.http.PathVariable;
 import one.nio.http.Request;
 import one.nio.http.RequestHandler;
 import one.nio.http.Response;
@@ -33,6 +36,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 
 public class RequestHandlerGenerator extends BytecodeGenerator {
     private int count;
@@ -136,9 +140,12 @@ public class RequestHandlerGenerator extends BytecodeGenerator {
                     } else if (annotation instanceof Header) {
                         setupHeader(mv, type, (Header) annotation);
                         continue nextArgument;
+                    } else if (annotation instanceof PathVariable) {
+                        setupPathVariable(mv, type, (PathVariable) annotation, m);
+                        continue nextArgument;
                     }
                 }
-                throw new IllegalArgumentException("Missing @Param or @Header for argument " + i + " of " + m);
+                throw new IllegalArgumentException("Missing @Param, @Header or @PathVariable for argument " + i + " of " + m);
             }
         }
 
@@ -202,6 +209,35 @@ public class RequestHandlerGenerator extends BytecodeGenerator {
         convertArgument(mv, type, needNullCheck);
     }
 
+    private void setupPathVariable(MethodVisitor mv, Class<?> type, PathVariable variable, Method m) {
+        int index = pathVariableIndex(variable.value(), m);
+
+        mv.visitVarInsn(ALOAD, 1);
+        emitInt(mv, index);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/http/Request", "getPathSegment", "(I)Ljava/lang/String;", false);
+
+        convertArgument(mv, type, false);
+    }
+
+    // The variable is bound by its segment index, so it must be at the same position in all @Path templates
+    private int pathVariableIndex(String name, Method m) {
+        Path path = m.getAnnotation(Path.class);
+        if (path == null || path.value().length == 0) {
+            throw new IllegalArgumentException("@PathVariable requires @Path: " + m);
+        }
+
+        String segment = '{' + name + '}';
+        int index = -1;
+        for (String template : path.value()) {
+            int templateIndex = Arrays.asList(PathMapper.segments(template)).indexOf(segment);
+            if (templateIndex < 0 || (index >= 0 && templateIndex != index)) {
+                throw new IllegalArgumentException("Path variable " + segment + " does not match " + template + " of " + m);
+            }
+            index = templateIndex;
+        }
+        return index;
+    }
+
     private void convertArgument(MethodVisitor mv, Class type, boolean needNullCheck) {
         if (type == String.class) {
             return; // nothing to do
@@ -18,11 +18,17 @@ package one.nio.lock;
 
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 
+import static one.nio.util.JavaInternals.unsafe;
+
 public class RWLock extends AbstractQueuedSynchronizer {
     private static final int READ = 1;
     private static final int WRITE = 65535;
     private static final long MILLIS = 1000000;
 
+    // Seqlock counter: odd while the lock is held for write.
+    // Incremented only by the writer, so plain increments of the volatile field are safe.
+    private volatile int sequence;
+
     public RWLock() {
         setState(WRITE);
     }
@@ -47,12 +53,17 @@ public class RWLock extends AbstractQueuedSynchronizer {
 
     public final RWLock lockWrite() {
         super.acquireShared(WRITE);
+        beginWrite();
         return this;
     }
 
     public final boolean lockWrite(long timeout) {
         try {
-            return super.tryAcquireSharedNanos(WRITE, timeout * MILLIS);
+            if (super.tryAcquireSharedNanos(WRITE, timeout * MILLIS)) {
+                beginWrite();
+                return true;
+            }
+            return false;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return false;
@@ -60,17 +71,40 @@ public class RWLock extends AbstractQueuedSynchronizer {
     }
 
     public final void unlockWrite() {
+        sequence++;
         super.releaseShared(WRITE);
     }
 
     public final void unlock(boolean write) {
-        super.releaseShared(write ? WRITE : READ);
+        if (write) {
+            unlockWrite();
+        } else {
+            unlockRead();
+        }
     }
 
     public final void downgrade() {
+        sequence++;
         super.releaseShared(WRITE - READ);
     }
 
+    // Starts an optimistic read. The result is odd if a writer currently holds the lock
+    public final int readSequence() {
+        return sequence;
+    }
+
+    // Returns true if no writer has acquired the lock since readSequence() returned the given value
+    public final boolean validate(int sequence) {
+        unsafe.loadFence();
+        return this.sequence == sequence;
+    }
+
+    private void beginWrite() {
+        sequence++;
+        // Protected data must not become visible before the odd sequence
+        unsafe.storeFence();
+    }
+
     @Override
     protected int tryAcquireShared(int acquires) {
         for (;;) {
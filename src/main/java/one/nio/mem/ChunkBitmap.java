@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import static one.nio.util.JavaInternals.unsafe;
+
+/**
+ * Off-heap set of 8-byte aligned addresses within a memory range, 1 bit per 8 bytes.
+ * Updates are atomic, so the bitmap can be shared by threads working on adjacent ranges.
+ * Used for crash recovery of {@link Malloc} heaps.
+ */
+final class ChunkBitmap {
+    private final long base;
+    private final long limit;
+    private final long words;
+
+    ChunkBitmap(long base, long size) {
+        this.base = base;
+        this.limit = base + size;
+        this.words = DirectMemory.allocateAndClear(((size >>> 3) + 63 >>> 6) * 8, this);
+    }
+
+    boolean contains(long address) {
+        return address >= base && address < limit && (address & 7) == 0;
+    }
+
+    boolean get(long address) {
+        if (!contains(address)) {
+            return false;
+        }
+        long index = (address - base) >>> 3;
+        return (unsafe.getLongVolatile(null, words + (index >>> 6) * 8) & (1L << index)) != 0;
+    }
+
+    void set(long address) {
+        long index = (address - base) >>> 3;
+        long word = words + (index >>> 6) * 8;
+        long mask = 1L << index;
+        for (long value; ((value = unsafe.getLongVolatile(null, word)) & mask) == 0; ) {
+            if (unsafe.compareAndSwapLong(null, word, value, value | mask)) {
+                return;
+            }
+        }
+    }
+
+    // Returns true if the address was in the set
+    boolean clear(long address) {
+        if (!contains(address)) {
+            return false;
+        }
+        long index = (address - base) >>> 3;
+        long word = words + (index >>> 6) * 8;
+        long mask = 1L << index;
+        for (long value; ((value = unsafe.getLongVolatile(null, word)) & mask) != 0; ) {
+            if (unsafe.compareAndSwapLong(null, word, value, value & ~mask)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+/**
+ * CLOCK (second chance) eviction: an entry accessed since the previous sweep
+ * loses its reference bit instead of being evicted.
+ */
+public class ClockEvictionPolicy implements EvictionPolicy {
+    private static final int REFERENCED = 1;
+
+    @Override
+    public int onInsert(long hashCode) {
+        return REFERENCED;
+    }
+
+    @Override
+    public int onAccess(long hashCode, int meta) {
+        return meta | REFERENCED;
+    }
+
+    @Override
+    public void onMiss(long hashCode) {
+        // Not tracked
+    }
+
+    @Override
+    public boolean admit(long hashCode) {
+        return true;
+    }
+
+    @Override
+    public int onSweep(long hashCode, int meta, int round) {
+        return (meta & REFERENCED) != 0 ? meta & ~REFERENCED : EVICT;
+    }
+}
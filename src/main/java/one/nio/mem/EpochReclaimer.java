@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Epoch-based reclamation of OffheapMap entries.
+ * <p>
+ * Optimistic readers walk hash chains without holding a lock, so an entry unlinked by a writer
+ * must not be freed while a reader may still dereference it. Each reader publishes the global epoch
+ * in one of the padded slots for the duration of a lookup. Freed entries are tagged with the epoch
+ * at which they were retired and returned to the map's allocator only when every active reader
+ * has started in a later epoch.
+ */
+final class EpochReclaimer {
+    private static final int SLOTS = Math.max(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4));
+    private static final int STRIDE = 16;  // 128 bytes between slots to avoid false sharing
+    private static final int PROBES = 4;
+    private static final int LISTS = 16;
+    private static final int BATCH = 64;
+
+    private final OffheapMap<?, ?> map;
+    private final AtomicLong epoch = new AtomicLong(1);
+    private final AtomicLongArray slots = new AtomicLongArray(SLOTS * STRIDE);
+    private final RetireList[] lists = new RetireList[LISTS];
+
+    EpochReclaimer(OffheapMap<?, ?> map) {
+        this.map = map;
+        for (int i = 0; i < LISTS; i++) {
+            lists[i] = new RetireList();
+        }
+    }
+
+    // Returns the reader slot, or -1 if all probed slots are busy and the caller should take the lock
+    int enter() {
+        long currentEpoch = epoch.get();
+        int start = (int) Thread.currentThread().getId() * PROBES;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = ((start + i) & (SLOTS - 1)) * STRIDE;
+            if (slots.get(slot) == 0 && slots.compareAndSet(slot, 0, currentEpoch)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    void exit(int slot) {
+        slots.lazySet(slot, 0);
+    }
+
+    // Waits until all readers that might have entered before the call are finished
+    void awaitReaders() {
+        long currentEpoch = epoch.incrementAndGet();
+        for (int i = 0; i < SLOTS * STRIDE; i += STRIDE) {
+            for (long readerEpoch; (readerEpoch = slots.get(i)) != 0 && readerEpoch < currentEpoch; ) {
+                Thread.yield();
+            }
+        }
+    }
+
+    void retire(long entry) {
+        RetireList list = lists[(int) Thread.currentThread().getId() & (LISTS - 1)];
+        synchronized (list) {
+            list.add(entry, epoch.get());
+            if (list.size >= list.threshold) {
+                reclaim(list);
+            }
+        }
+    }
+
+    // Frees all retired entries regardless of readers. Used when the map is being closed
+    void drain() {
+        for (RetireList list : lists) {
+            synchronized (list) {
+                for (int i = 0; i < list.size; i++) {
+                    map.destroyEntry(list.entries[i]);
+                }
+                list.size = 0;
+            }
+        }
+    }
+
+    private void reclaim(RetireList list) {
+        long safeEpoch = epoch.incrementAndGet();
+        for (int i = 0; i < SLOTS * STRIDE; i += STRIDE) {
+            long readerEpoch = slots.get(i);
+            if (readerEpoch != 0 && readerEpoch < safeEpoch) {
+                safeEpoch = readerEpoch;
+            }
+        }
+
+        int remaining = 0;
+        for (int i = 0; i < list.size; i++) {
+            if (list.epochs[i] < safeEpoch) {
+                map.destroyEntry(list.entries[i]);
+            } else {
+                list.entries[remaining] = list.entries[i];
+                list.epochs[remaining] = list.epochs[i];
+                remaining++;
+            }
+        }
+        list.size = remaining;
+
+        // Do not rescan on every retire if a slow reader holds entries back
+        list.threshold = remaining + BATCH;
+    }
+
+    private static final class RetireList {
+        long[] entries = new long[BATCH];
+        long[] epochs = new long[BATCH];
+        int size;
+        int threshold = BATCH;
+
+        void add(long entry, long epoch) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                epochs = Arrays.copyOf(epochs, size * 2);
+            }
+            entries[size] = entry;
+            epochs[size] = epoch;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+/**
+ * Decides which entries of an {@link OffheapMap} are evicted by {@link OffheapMap#evict(int)}.
+ * <p>
+ * Every entry carries 16 bits of policy metadata stored in the upper bits of the entry time field,
+ * so it is persisted together with the entry in a {@link SharedMemoryMap}.
+ * Callbacks may run concurrently from many threads; lost updates of the metadata are tolerated.
+ */
+public interface EvictionPolicy {
+    int EVICT = -1;
+    int MAX_META = 0xffff;
+    int MAX_ROUNDS = 5;
+
+    // Metadata of a newly inserted entry
+    int onInsert(long hashCode);
+
+    // Called on a hit; returns the updated metadata
+    int onAccess(long hashCode, int meta);
+
+    // Called when a lookup finds no live entry
+    void onMiss(long hashCode);
+
+    // Called before a new key is inserted by put() or putIfAbsent(); false rejects the insertion
+    boolean admit(long hashCode);
+
+    // Called by the eviction sweep. Returns EVICT or the updated metadata.
+    // round is incremented each time the sweep wraps around the whole table within one evict() call.
+    // A policy must evict all entries not accessed since the previous round by round MAX_ROUNDS - 1
+    int onSweep(long hashCode, int meta, int round);
+}
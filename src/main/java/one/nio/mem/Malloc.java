@@ -134,6 +134,7 @@ public class Malloc implements Allocator, MallocMXBean {
     final long capacity;
 
     private volatile long freeMemory;
+    private boolean recover;
 
     public Malloc(long capacity) {
         this.capacity = capacity & ~7;
@@ -147,6 +148,19 @@ public class Malloc implements Allocator, MallocMXBean {
         init();
     }
 
+    /**
+     * Opens an existing heap that might have been left inconsistent by a crashed process.
+     * With {@code recover} set, free lists are neither relocated nor trusted;
+     * they must be rebuilt with {@link #markChunks(ChunkBitmap)} and {@link #rebuildFreeLists(ChunkBitmap)}
+     * before the heap is used.
+     */
+    public Malloc(long base, long capacity, boolean recover) {
+        this.base = base;
+        this.capacity = capacity & ~7;
+        this.recover = recover;
+        init();
+    }
+
     public Malloc(MappedFile mmap) {
         this.base = mmap.getAddr();
         this.capacity = mmap.getSize();
@@ -301,11 +315,16 @@ public class Malloc implements Allocator, MallocMXBean {
             long oldBase = unsafe.getLong(base + BASE_OFFSET);
             unsafe.putLong(base + BASE_OFFSET, base);
 
-            relocate(base - oldBase);
-
-            if (signature == SIGNATURE_V2) {
-                upgradeBinFormat();
+            if (recover) {
+                // Bins will be rebuilt from scratch in the current format
                 unsafe.putLong(base + SIGNATURE_OFFSET, SIGNATURE_V3);
+            } else {
+                relocate(base - oldBase);
+
+                if (signature == SIGNATURE_V2) {
+                    upgradeBinFormat();
+                    unsafe.putLong(base + SIGNATURE_OFFSET, SIGNATURE_V3);
+                }
             }
         } else {
             unsafe.putLong(base + SIGNATURE_OFFSET, SIGNATURE_V3);
@@ -344,6 +363,95 @@ public class Malloc implements Allocator, MallocMXBean {
         }
     }
 
+    // Crash recovery, phase 1: walk chunk headers and mark user addresses of all occupied chunks.
+    // Chunk boundaries are found by sizes, so a damaged header makes the rest of its region
+    // (up to the next MAX_CHUNK boundary) unusable; it is turned into free space.
+    // Returns the number of bytes lost this way
+    synchronized long markChunks(ChunkBitmap chunks) {
+        long lost = 0;
+        long start = base + BIN_SPACE;
+        long end = base + capacity - HEADER_SIZE * 2;
+
+        do {
+            long regionEnd = start + Math.min(end - start, MAX_CHUNK);
+            for (long chunk = start; chunk < regionEnd; ) {
+                int sizeField = unsafe.getInt(chunk + SIZE_OFFSET);
+                int size = sizeField & FREE_MASK;
+                if (size < MIN_CHUNK || size != (sizeField & ~OCCUPIED_MASK) || size > regionEnd - chunk) {
+                    if (regionEnd - chunk < MIN_CHUNK) {
+                        // Too little space for a free chunk: the region is not trustworthy at all
+                        for (long c = start; c < chunk; c += unsafe.getInt(c + SIZE_OFFSET) & FREE_MASK) {
+                            chunks.clear(c + HEADER_SIZE);
+                        }
+                        chunk = start;
+                    }
+                    unsafe.putInt(chunk + SIZE_OFFSET, (int) (regionEnd - chunk));
+                    lost += regionEnd - chunk;
+                    break;
+                }
+                if (sizeField < 0) {
+                    chunks.set(chunk + HEADER_SIZE);
+                }
+                chunk += size;
+            }
+            start = regionEnd + HEADER_SIZE;
+        } while (end - start >= MIN_CHUNK);
+
+        return lost;
+    }
+
+    // Crash recovery, phase 2: occupied chunks still marked in the bitmap are not referenced by the owner
+    // and are released. All free space is coalesced and linked into empty bins, neighbour offsets are rewritten
+    synchronized void rebuildFreeLists(ChunkBitmap chunks) {
+        for (int bin = getBin(MIN_CHUNK); bin < BIN_COUNT; bin++) {
+            unsafe.putLong(base + bin * BIN_SIZE + NEXT_OFFSET, 0);
+        }
+        freeMemory = 0;
+
+        long start = base + BIN_SPACE;
+        long end = base + capacity - HEADER_SIZE * 2;
+        int prevSize = 0;
+
+        do {
+            long regionEnd = start + Math.min(end - start, MAX_CHUNK);
+            long freeStart = 0;
+
+            for (long chunk = start; chunk < regionEnd; ) {
+                int sizeField = unsafe.getInt(chunk + SIZE_OFFSET);
+                int size = sizeField & FREE_MASK;
+
+                if (sizeField > 0 || chunks.get(chunk + HEADER_SIZE)) {
+                    if (freeStart == 0) {
+                        freeStart = chunk;
+                        unsafe.putInt(chunk + LEFT_OFFSET, prevSize);
+                    }
+                } else {
+                    if (freeStart != 0) {
+                        prevSize = (int) (chunk - freeStart);
+                        addFreeChunk(freeStart, prevSize);
+                        freeMemory += prevSize;
+                        freeStart = 0;
+                    }
+                    unsafe.putInt(chunk + LEFT_OFFSET, prevSize);
+                    prevSize = size;
+                }
+                chunk += size;
+            }
+
+            if (freeStart != 0) {
+                int size = (int) (regionEnd - freeStart);
+                addFreeChunk(freeStart, size);
+                freeMemory += size;
+            } else {
+                unsafe.putInt(regionEnd + LEFT_OFFSET, prevSize);
+            }
+
+            addBoundary(regionEnd);
+            prevSize = HEADER_SIZE;
+            start = regionEnd + HEADER_SIZE;
+        } while (end - start >= MIN_CHUNK);
+    }
+
     // Unlink free chunks and put them to bins according to newer Malloc format
     private void upgradeBinFormat() {
         // Unlink
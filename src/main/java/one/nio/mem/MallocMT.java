@@ -31,6 +31,7 @@ public class MallocMT extends Malloc {
 
     private Malloc[] segments; // segments.length is a power of 2
     private long segmentSize;
+    private boolean recover;
 
     public MallocMT(long capacity, int concurrencyLevel) {
         super(capacity);
@@ -50,6 +51,13 @@ public class MallocMT extends Malloc {
         this(base, capacity, DEFAULT_CONCURRENCY_LEVEL);
     }
 
+    // See Malloc(long, long, boolean)
+    public MallocMT(long base, long capacity, int concurrencyLevel, boolean recover) {
+        super(base, capacity);
+        this.recover = recover;
+        initSegments(concurrencyLevel);
+    }
+
     public MallocMT(MappedFile mmap, int concurrencyLevel) {
         super(mmap);
         initSegments(concurrencyLevel);
@@ -150,7 +158,7 @@ public class MallocMT extends Malloc {
         this.segmentSize = capacity / concurrencyLevel;
 
         for (int i = 0; i < segments.length; i++) {
-            segments[i] = new Malloc(base + i * segmentSize, segmentSize);
+            segments[i] = new Malloc(base + i * segmentSize, segmentSize, recover);
         }
 
         Management.registerMXBean(this, "one.nio.mem:type=MallocMT,base=" + Long.toHexString(base));
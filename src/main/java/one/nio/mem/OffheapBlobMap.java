@@ -53,6 +53,12 @@ public class OffheapBlobMap extends OffheapMap<byte[], byte[]> {
         return value;
     }
 
+    @Override
+    protected long valueAddress(long entry) {
+        int keyLength = (int) (unsafe.getLong(entry + HASH_OFFSET) >>> 32);
+        return entry + KEY_OFFSET + keyLength;
+    }
+
     @Override
     protected void setValueAt(long entry, byte[] value) {
         int keyLength = (int) (unsafe.getLong(entry + HASH_OFFSET) >>> 32);
@@ -78,6 +84,12 @@ public class OffheapBlobMap extends OffheapMap<byte[], byte[]> {
         return unsafe.getInt(entry + HEADER_SIZE);
     }
 
+    @Override
+    protected int entrySize(long entry) {
+        int keyLength = (int) (unsafe.getLong(entry + HASH_OFFSET) >>> 32);
+        return KEY_OFFSET + keyLength + sizeOf(entry);
+    }
+
     @Override
     protected int sizeOf(byte[] value) {
         return value.length;
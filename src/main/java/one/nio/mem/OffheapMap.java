@@ -19,7 +19,9 @@ package one.nio.mem;
 import one.nio.async.AsyncExecutor;
 import one.nio.async.ParallelTask;
 import one.nio.lock.RWLock;
+import one.nio.net.Socket;
 import one.nio.os.BatchThread;
+import one.nio.serial.DataStream;
 import one.nio.util.JavaInternals;
 import one.nio.util.QuickSelect;
 
@@ -28,11 +30,13 @@ import org.slf4j.LoggerFactory;
 
 import sun.misc.Unsafe;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
     protected static final Logger log = LoggerFactory.getLogger(OffheapMap.class);
@@ -47,12 +51,35 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
     protected static final int TIME_OFFSET = 16;
     protected static final int HEADER_SIZE = 24;
 
-    protected final int capacity;
+    // The time field keeps milliseconds in the lower bits and eviction policy metadata in the upper 16 bits
+    protected static final int META_SHIFT = 48;
+    protected static final long TIME_MASK = (1L << META_SHIFT) - 1;
+
+    // Larger entries are always read under the lock
+    protected static final int MAX_OPTIMISTIC_READ_SIZE = 65536;
+    protected static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private static final Object RETRY = new Object();
+
+    // Results of putLocked()
+    private static final int INSERTED = 0;
+    private static final int UPDATED = 1;
+    private static final int REJECTED = 2;
+
+    private static final ThreadLocal<ReadBuffer> readBuffers = new ThreadLocal<>();
+    private static final int MAX_CACHED_BATCH = 4096;
+    private static final ThreadLocal<BatchBuffer> batchBuffers = new ThreadLocal<>();
+
+    protected volatile int capacity;
     protected final AtomicInteger count = new AtomicInteger();
     protected final AtomicLong expirations = new AtomicLong();
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final AtomicLong evictions = new AtomicLong();
+    protected final AtomicLong rejections = new AtomicLong();
     protected final RWLock[] locks = createLocks();
 
-    protected long mapBase;
+    protected volatile long mapBase;
     protected long timeToLive = Long.MAX_VALUE;
     protected long minTimeToLive = 0;
     protected long lockWaitTime = 10;
@@ -60,14 +87,30 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
     protected double cleanupThreshold = 0.1;
     protected int maxSamples = 1000;
     protected BasicCleanup cleanupThread;
+    protected volatile boolean optimisticReads;
+    protected double maxLoadFactor;  // 0 disables automatic growth
+    protected volatile EvictionPolicy evictionPolicy;
+    private final AtomicInteger evictionHand = new AtomicInteger();
+    private volatile EpochReclaimer reclaimer;
+    private volatile Resize resize;
+    private Object tableOwner;
 
     protected OffheapMap(int capacity) {
-        this.capacity = (capacity + (CONCURRENCY_LEVEL - 1)) & ~(CONCURRENCY_LEVEL - 1);
+        this.capacity = alignCapacity(capacity);
     }
 
     protected OffheapMap(int capacity, long address) {
         this(capacity);
-        this.mapBase = address != 0 ? address : DirectMemory.allocateAndClear(this.capacity * 8L, this);
+        if (address != 0) {
+            this.mapBase = address;
+        } else {
+            this.tableOwner = new Object();
+            this.mapBase = DirectMemory.allocateAndClear(this.capacity * 8L, tableOwner);
+        }
+    }
+
+    private static int alignCapacity(int capacity) {
+        return (capacity + (CONCURRENCY_LEVEL - 1)) & ~(CONCURRENCY_LEVEL - 1);
     }
 
     private static RWLock[] createLocks() {
@@ -87,6 +130,10 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
                 Thread.currentThread().interrupt();
             }
         }
+        completeResize();
+        if (reclaimer != null) {
+            reclaimer.drain();
+        }
         closeInternal();
     }
 
@@ -154,11 +201,77 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         this.maxSamples = maxSamples;
     }
 
+    @Override
+    public boolean isOptimisticReads() {
+        return optimisticReads;
+    }
+
+    // Once enabled, freed entries go through the epoch reclaimer even if optimistic reads are turned off later,
+    // since a reader that has observed the flag may still be walking a chain
+    @Override
+    public synchronized void setOptimisticReads(boolean optimisticReads) {
+        if (optimisticReads && reclaimer == null) {
+            reclaimer = new EpochReclaimer(this);
+        }
+        this.optimisticReads = optimisticReads;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    // Hit and miss counters are maintained only while an eviction policy is set
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    @Override
+    public double getMaxLoadFactor() {
+        return maxLoadFactor;
+    }
+
+    @Override
+    public void setMaxLoadFactor(double maxLoadFactor) {
+        this.maxLoadFactor = maxLoadFactor;
+    }
+
     @Override
     public int getCapacity() {
         return capacity;
     }
 
+    @Override
+    public boolean isResizing() {
+        return resize != null;
+    }
+
     @Override
     public int getCount() {
         return count.get();
@@ -171,10 +284,27 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
 
     public V get(K key) {
         long hashCode = hashCode(key);
-        long currentPtr = bucketFor(hashCode);
+        V value = lookup(key, hashCode);
+
+        EvictionPolicy policy = evictionPolicy;
+        if (policy != null) {
+            recordAccess(policy, hashCode, value != null);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V lookup(K key, long hashCode) {
+        if (optimisticReads) {
+            Object result = getOptimistic(key, hashCode);
+            if (result != RETRY) {
+                return (V) result;
+            }
+        }
 
         RWLock lock = lockFor(hashCode).lockRead();
         try {
+            long currentPtr = bucketFor(hashCode);
             for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
                 if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
                     return isExpired(entry, true) ? null : valueAt(entry);
@@ -187,58 +317,174 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         return null;
     }
 
-    // Returns true for new entry and false for value update
-    public boolean put(K key, V value) throws OutOfMemoryException {
-        long hashCode = hashCode(key);
-        long currentPtr = bucketFor(hashCode);
-        int newSize = sizeOf(value);
-        boolean newEntry = true;
+    private void recordAccess(EvictionPolicy policy, long hashCode, boolean hit) {
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+            policy.onMiss(hashCode);
+        }
+    }
 
-        RWLock lock = lockFor(hashCode).lockWrite();
+    // Seqlock-style lookup without acquiring the stripe lock. The entry is copied to a thread-local buffer,
+    // and the value is decoded from the copy only after the stripe sequence has been validated.
+    // Returns RETRY if the lookup has to be repeated under the read lock.
+    private Object getOptimistic(K key, long hashCode) {
+        EpochReclaimer reclaimer = this.reclaimer;
+        int slot = reclaimer.enter();
+        if (slot < 0) {
+            return RETRY;
+        }
+
+        long copy;
         try {
-            for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
-                if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
-                    if (reuseEntry(entry, newSize)) {
-                        setTimeAt(entry);
-                        setValueAt(entry, value);
-                        return false;
+            RWLock lock = lockFor(hashCode);
+            for (int attempt = 0; ; attempt++) {
+                if (attempt == OPTIMISTIC_READ_ATTEMPTS) {
+                    return RETRY;
+                }
+
+                int sequence = lock.readSequence();
+                if ((sequence & 1) != 0) {
+                    continue;
+                }
+
+                long entry;
+                for (long currentPtr = bucketFor(hashCode); (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
+                    if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
+                        break;
+                    }
+                }
+
+                if (entry == 0) {
+                    if (lock.validate(sequence)) {
+                        return null;
                     }
+                    continue;
+                }
+
+                int size = entrySize(entry);
+                if (size < HEADER_SIZE || size > MAX_OPTIMISTIC_READ_SIZE) {
+                    return RETRY;
+                }
 
-                    unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
-                    destroyEntry(entry);
-                    count.decrementAndGet();
-                    newEntry = false;
+                copy = readBuffer(size);
+                unsafe.copyMemory(entry, copy, size);
+                if (lock.validate(sequence)) {
+                    // The entry cannot be freed while we are in the epoch, so touching it is safe
+                    if (isExpired(entry, true)) {
+                        return null;
+                    }
                     break;
                 }
             }
+        } finally {
+            reclaimer.exit(slot);
+        }
 
-            long entry = allocateEntry(key, hashCode, newSize);
-            unsafe.putLong(entry + HASH_OFFSET, hashCode);
-            unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(currentPtr));
-            setTimeAt(entry);
-            setValueAt(entry, value);
+        return valueAt(copy);
+    }
 
-            unsafe.putAddress(currentPtr, entry);
+    private static long readBuffer(int size) {
+        ReadBuffer buffer = readBuffers.get();
+        if (buffer == null || buffer.size < size) {
+            readBuffers.set(buffer = new ReadBuffer(size));
+        }
+        return buffer.address;
+    }
+
+    // Frees the entry immediately or, if optimistic reads have been enabled,
+    // after all readers that could have observed it are finished
+    protected final void freeEntry(long entry) {
+        EpochReclaimer reclaimer = this.reclaimer;
+        if (reclaimer == null) {
+            destroyEntry(entry);
+        } else {
+            reclaimer.retire(entry);
+        }
+    }
+
+    // Returns true for new entry and false for value update.
+    // A new entry is not stored and false is returned if the eviction policy does not admit it;
+    // such rejections are reported through entryRejected()
+    public boolean put(K key, V value) throws OutOfMemoryException {
+        long hashCode = hashCode(key);
+        int newSize = sizeOf(value);
+        int result;
+
+        RWLock lock = lockFor(hashCode).lockWrite();
+        try {
+            result = putLocked(key, hashCode, value, newSize);
         } finally {
             lock.unlockWrite();
         }
 
+        if (result == INSERTED) {
+            entryAdded(count.get());
+        } else {
+            helpResize();
+            if (result == REJECTED) {
+                entryRejected(key, value);
+            }
+        }
+        return result == INSERTED;
+    }
+
+    // Must be called under the stripe write lock. Returns INSERTED, UPDATED or REJECTED
+    private int putLocked(K key, long hashCode, V value, int newSize) throws OutOfMemoryException {
+        long currentPtr = bucketFor(hashCode);
+        boolean newEntry = true;
+
+        for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
+            if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
+                if (reuseEntry(entry, newSize)) {
+                    setTimeAt(entry);
+                    setValueAt(entry, value);
+                    return UPDATED;
+                }
+
+                unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
+                freeEntry(entry);
+                count.decrementAndGet();
+                newEntry = false;
+                break;
+            }
+        }
+
+        if (newEntry && !admit(hashCode)) {
+            return REJECTED;
+        }
+
+        long entry = allocateEntry(key, hashCode, newSize);
+        unsafe.putLong(entry + HASH_OFFSET, hashCode);
+        unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(currentPtr));
+        initTimeAt(entry, hashCode);
+        setValueAt(entry, value);
+
+        // Optimistic readers may follow the pointer as soon as it is stored
+        unsafe.storeFence();
+        unsafe.putAddress(currentPtr, entry);
+
         count.incrementAndGet();
-        return newEntry;
+        return newEntry ? INSERTED : UPDATED;
     }
 
+    // Returns false if the key is present or the eviction policy does not admit it;
+    // the latter is reported through entryRejected()
     public boolean putIfAbsent(K key, V value) throws OutOfMemoryException {
         long hashCode = hashCode(key);
-        long currentPtr = bucketFor(hashCode);
         int newSize = sizeOf(value);
 
+        boolean admitted;
+
         RWLock lock = lockFor(hashCode).lockWrite();
         try {
+            long currentPtr = bucketFor(hashCode);
             for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
                 if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
                     if (isExpired(entry, false)) {
                         unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
-                        destroyEntry(entry);
+                        freeEntry(entry);
                         count.decrementAndGet();
                         break;
                     }
@@ -246,54 +492,257 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
                 }
             }
 
-            long entry = allocateEntry(key, hashCode, newSize);
-            unsafe.putLong(entry + HASH_OFFSET, hashCode);
-            unsafe.putAddress(entry + NEXT_OFFSET, 0);
-            setTimeAt(entry);
-            setValueAt(entry, value);
-
-            unsafe.putAddress(currentPtr, entry);
+            admitted = admit(hashCode);
+            if (admitted) {
+                long entry = allocateEntry(key, hashCode, newSize);
+                unsafe.putLong(entry + HASH_OFFSET, hashCode);
+                unsafe.putAddress(entry + NEXT_OFFSET, 0);
+                initTimeAt(entry, hashCode);
+                setValueAt(entry, value);
+
+                // Optimistic readers may follow the pointer as soon as it is stored
+                unsafe.storeFence();
+                unsafe.putAddress(currentPtr, entry);
+            }
         } finally {
             lock.unlockWrite();
         }
 
-        count.incrementAndGet();
+        if (!admitted) {
+            entryRejected(key, value);
+            return false;
+        }
+
+        entryAdded(count.incrementAndGet());
         return true;
     }
 
     public boolean remove(K key) {
         long hashCode = hashCode(key);
-        long currentPtr = bucketFor(hashCode);
         long entry;
 
         RWLock lock = lockFor(hashCode).lockWrite();
         try {
-            for (;;) {
-                if ((entry = unsafe.getAddress(currentPtr)) == 0) {
-                    return false;
-                }
-                if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
-                    unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
-                    break;
-                }
-                currentPtr = entry + NEXT_OFFSET;
-            }
+            entry = unlinkLocked(key, hashCode);
         } finally {
             lock.unlockWrite();
         }
 
+        if (entry == 0) {
+            return false;
+        }
+
         final boolean expired = isExpired(entry, false);
-        destroyEntry(entry);
+        freeEntry(entry);
         count.decrementAndGet();
+        helpResize();
         return !expired;
     }
 
+    // Must be called under the stripe write lock. Returns the unlinked entry or 0 if the key is not found
+    private long unlinkLocked(K key, long hashCode) {
+        long currentPtr = bucketFor(hashCode);
+        for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
+            if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
+                unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    // Batch operations hash all keys up front and process them grouped by stripe,
+    // so that every stripe lock is taken once per call.
+
+    // Stores the value for keys[i] into values[i], or null if there is no such key. Returns the number of keys found
+    public int getAll(K[] keys, V[] values) {
+        int length = keys.length;
+        BatchBuffer batch = batchBuffer(length);
+        long[] order = batch.order;
+        long[] hashes = batch.hashes;
+        long[] heads = batch.entries;
+        groupByStripe(keys, batch);
+
+        int found = 0;
+        for (int start = 0, end; start < length; start = end) {
+            int stripe = (int) (order[start] >>> 32);
+            end = groupEnd(order, start, length);
+
+            RWLock lock = locks[stripe].lockRead();
+            try {
+                // Load all bucket heads of the group first, so that their cache misses overlap
+                for (int j = start; j < end; j++) {
+                    heads[j] = unsafe.getAddress(bucketFor(hashes[(int) order[j]]));
+                }
+
+                for (int j = start; j < end; j++) {
+                    int i = (int) order[j];
+                    long hashCode = hashes[i];
+                    V value = null;
+                    for (long entry = heads[j]; entry != 0; entry = unsafe.getAddress(entry + NEXT_OFFSET)) {
+                        if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, keys[i])) {
+                            if (!isExpired(entry, true)) {
+                                value = valueAt(entry);
+                                found++;
+                            }
+                            break;
+                        }
+                    }
+                    values[i] = value;
+                }
+            } finally {
+                lock.unlockRead();
+            }
+        }
+
+        EvictionPolicy policy = evictionPolicy;
+        if (policy != null) {
+            for (int i = 0; i < length; i++) {
+                recordAccess(policy, hashes[i], values[i] != null);
+            }
+        }
+
+        return found;
+    }
+
+    // Equivalent to put(keys[i], values[i]) for every i. Returns the number of new entries
+    public int putAll(K[] keys, V[] values) throws OutOfMemoryException {
+        int length = keys.length;
+        BatchBuffer batch = batchBuffer(length);
+        long[] order = batch.order;
+        long[] hashes = batch.hashes;
+        int[] sizes = batch.sizes;
+        groupByStripe(keys, batch);
+
+        // Calculate sizes before taking locks
+        for (int i = 0; i < length; i++) {
+            sizes[i] = sizeOf(values[i]);
+        }
+
+        int inserted = 0;
+        int rejected = 0;
+        try {
+            for (int start = 0, end; start < length; start = end) {
+                int stripe = (int) (order[start] >>> 32);
+                end = groupEnd(order, start, length);
+
+                RWLock lock = locks[stripe].lockWrite();
+                try {
+                    for (int j = start; j < end; j++) {
+                        int i = (int) order[j];
+                        int result = putLocked(keys[i], hashes[i], values[i], sizes[i]);
+                        if (result == INSERTED) {
+                            inserted++;
+                        } else if (result == REJECTED) {
+                            // Reported after all locks are released
+                            sizes[i] = -1;
+                            rejected++;
+                        }
+                    }
+                } finally {
+                    lock.unlockWrite();
+                }
+            }
+        } finally {
+            if (inserted > 0) {
+                entryAdded(count.get());
+            } else {
+                helpResize();
+            }
+        }
+
+        for (int i = 0; i < length && rejected > 0; i++) {
+            if (sizes[i] < 0) {
+                entryRejected(keys[i], values[i]);
+                rejected--;
+            }
+        }
+
+        return inserted;
+    }
+
+    // Equivalent to remove(keys[i]) for every i. Returns the number of removed entries that were not expired
+    public int removeAll(K[] keys) {
+        int length = keys.length;
+        BatchBuffer batch = batchBuffer(length);
+        long[] order = batch.order;
+        long[] hashes = batch.hashes;
+        long[] removed = batch.entries;
+        groupByStripe(keys, batch);
+
+        int removedCount = 0;
+        for (int start = 0, end; start < length; start = end) {
+            int stripe = (int) (order[start] >>> 32);
+            end = groupEnd(order, start, length);
+
+            RWLock lock = locks[stripe].lockWrite();
+            try {
+                for (int j = start; j < end; j++) {
+                    int i = (int) order[j];
+                    long entry = unlinkLocked(keys[i], hashes[i]);
+                    if (entry != 0) {
+                        removed[removedCount++] = entry;
+                    }
+                }
+            } finally {
+                lock.unlockWrite();
+            }
+        }
+
+        int result = 0;
+        for (int i = 0; i < removedCount; i++) {
+            long entry = removed[i];
+            if (!isExpired(entry, false)) {
+                result++;
+            }
+            freeEntry(entry);
+        }
+
+        count.addAndGet(-removedCount);
+        helpResize();
+        return result;
+    }
+
+    // Fills batch.hashes and sorts batch.order as (stripe << 32 | key index)
+    private void groupByStripe(K[] keys, BatchBuffer batch) {
+        long[] order = batch.order;
+        long[] hashes = batch.hashes;
+        for (int i = 0; i < keys.length; i++) {
+            long hashCode = hashCode(keys[i]);
+            hashes[i] = hashCode;
+            order[i] = (hashCode & (CONCURRENCY_LEVEL - 1)) << 32 | i;
+        }
+        Arrays.sort(order, 0, keys.length);
+    }
+
+    private static int groupEnd(long[] order, int start, int length) {
+        long stripe = order[start] >>> 32;
+        int end = start + 1;
+        while (end < length && order[end] >>> 32 == stripe) {
+            end++;
+        }
+        return end;
+    }
+
+    // Buffers for larger batches are not cached, so that one huge call does not pin memory in the thread forever
+    private static BatchBuffer batchBuffer(int size) {
+        if (size > MAX_CACHED_BATCH) {
+            return new BatchBuffer(size);
+        }
+
+        BatchBuffer batch = batchBuffers.get();
+        if (batch == null || batch.order.length < size) {
+            batchBuffers.set(batch = new BatchBuffer(Math.max(size, 64)));
+        }
+        return batch;
+    }
+
     public void touch(K key) {
         long hashCode = hashCode(key);
-        long currentPtr = bucketFor(hashCode);
 
         RWLock lock = lockFor(hashCode).lockRead();
         try {
+            long currentPtr = bucketFor(hashCode);
             for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
                 if (unsafe.getLong(entry + HASH_OFFSET) == hashCode && equalsAt(entry, key)) {
                     setTimeAt(entry);
@@ -382,14 +831,17 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
             }
 
             try {
+                Resize resize = this.resize;
+                long base = tableBase(resize, i);
+                int capacity = tableCapacity(resize, i);
                 for (int j = i; j < capacity; j += CONCURRENCY_LEVEL) {
-                    long currentPtr = mapBase + (long) j * 8;
+                    long currentPtr = base + (long) j * 8;
                     long nextEntry;
                     for (long entry = unsafe.getAddress(currentPtr); entry != 0; entry = nextEntry) {
                         nextEntry = unsafe.getAddress(entry + NEXT_OFFSET);
                         if (shouldCleanup(entry, expirationTime)) {
                             unsafe.putAddress(currentPtr, nextEntry);
-                            destroyEntry(entry);
+                            freeEntry(entry);
                             expired++;
                         } else {
                             currentPtr = entry + NEXT_OFFSET;
@@ -412,12 +864,15 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         for (int i = 0; i < CONCURRENCY_LEVEL; i++) {
             RWLock lock = locks[i].lockWrite();
             try {
+                Resize resize = this.resize;
+                long base = tableBase(resize, i);
+                int capacity = tableCapacity(resize, i);
                 for (int j = i; j < capacity; j += CONCURRENCY_LEVEL) {
-                    long currentPtr = mapBase + (long) j * 8;
+                    long currentPtr = base + (long) j * 8;
                     long nextEntry;
                     for (long entry = unsafe.getAddress(currentPtr); entry != 0; entry = nextEntry) {
                         nextEntry = unsafe.getAddress(entry + NEXT_OFFSET);
-                        destroyEntry(entry);
+                        freeEntry(entry);
                         cleared++;
                     }
                     unsafe.putAddress(currentPtr, 0);
@@ -431,29 +886,43 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
     }
 
     public void iterate(Visitor<K, V> visitor) {
-        iterate(visitor, 0, capacity, 1);
+        iterateStripes(visitor, 0, 1);
     }
 
     public void iterate(final Visitor<K, V> visitor, final int workers) {
         AsyncExecutor.fork(workers, new ParallelTask() {
             @Override
             public void execute(int taskNum, int taskCount) {
-                iterate(visitor, taskNum, capacity, taskCount);
+                iterateStripes(visitor, taskNum, taskCount);
             }
         });
     }
 
+    // Bucket indices refer to the current table. A pending resize is completed first
     public void iterate(Visitor<K, V> visitor, int start, int end, int step) {
+        completeResize();
         if (start < 0 || end > capacity) {
             throw new IndexOutOfBoundsException();
         }
 
         for (int i = start; i < end; i += step) {
-            long currentPtr = mapBase + (long) i * 8;
             RWLock lock = locks[i & (CONCURRENCY_LEVEL - 1)].lockRead();
             try {
-                for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
-                    visitor.visit(new Record<>(this, lock, entry));
+                visitBucket(visitor, lock, i);
+            } finally {
+                lock.unlockRead();
+            }
+        }
+    }
+
+    // Visits whole stripes, so that every entry is seen exactly once even if the table is being resized
+    private void iterateStripes(Visitor<K, V> visitor, int start, int step) {
+        for (int i = start; i < CONCURRENCY_LEVEL; i += step) {
+            RWLock lock = locks[i].lockRead();
+            try {
+                int capacity = tableCapacity(resize, i);
+                for (int j = i; j < capacity; j += CONCURRENCY_LEVEL) {
+                    visitBucket(visitor, lock, j);
                 }
             } finally {
                 lock.unlockRead();
@@ -461,34 +930,56 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         }
     }
 
+    private void visitBucket(Visitor<K, V> visitor, RWLock lock, int bucket) {
+        Resize resize = this.resize;
+        int stripe = bucket & (CONCURRENCY_LEVEL - 1);
+        if (bucket >= tableCapacity(resize, stripe)) {
+            return;
+        }
+
+        long currentPtr = tableBase(resize, stripe) + (long) bucket * 8;
+        for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
+            visitor.visit(new Record<>(this, lock, entry));
+        }
+    }
+
     public void iterate(WritableVisitor<K, V> visitor) {
-        iterate(visitor, 0, capacity, 1);
+        iterateWritableStripes(visitor, 0, 1);
     }
 
     public void iterate(final WritableVisitor<K, V> visitor, final int workers) {
         AsyncExecutor.fork(workers, new ParallelTask() {
             @Override
             public void execute(int taskNum, int taskCount) {
-                iterate(visitor, taskNum, capacity, taskCount);
+                iterateWritableStripes(visitor, taskNum, taskCount);
             }
         });
     }
 
+    // Bucket indices refer to the current table. A pending resize is completed first
     public void iterate(WritableVisitor<K, V> visitor, int start, int end, int step) {
+        completeResize();
         if (start < 0 || end > capacity) {
             throw new IndexOutOfBoundsException();
         }
 
         for (int i = start; i < end; i += step) {
-            long currentPtr = mapBase + (long) i * 8;
             RWLock lock = locks[i & (CONCURRENCY_LEVEL - 1)].lockWrite();
             try {
-                for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; ) {
-                    WritableRecord<K, V> record = new WritableRecord<>(this, lock, entry, keyAt(entry), currentPtr);
-                    visitor.visit(record);
-                    if (record.entry != 0) {
-                        currentPtr = record.entry + NEXT_OFFSET;
-                    }
+                visitWritableBucket(visitor, lock, i);
+            } finally {
+                lock.unlockWrite();
+            }
+        }
+    }
+
+    private void iterateWritableStripes(WritableVisitor<K, V> visitor, int start, int step) {
+        for (int i = start; i < CONCURRENCY_LEVEL; i += step) {
+            RWLock lock = locks[i].lockWrite();
+            try {
+                int capacity = tableCapacity(resize, i);
+                for (int j = i; j < capacity; j += CONCURRENCY_LEVEL) {
+                    visitWritableBucket(visitor, lock, j);
                 }
             } finally {
                 lock.unlockWrite();
@@ -496,37 +987,299 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         }
     }
 
+    private void visitWritableBucket(WritableVisitor<K, V> visitor, RWLock lock, int bucket) {
+        Resize resize = this.resize;
+        int stripe = bucket & (CONCURRENCY_LEVEL - 1);
+        if (bucket >= tableCapacity(resize, stripe)) {
+            return;
+        }
+
+        long currentPtr = tableBase(resize, stripe) + (long) bucket * 8;
+        for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; ) {
+            WritableRecord<K, V> record = new WritableRecord<>(this, lock, entry, keyAt(entry), currentPtr);
+            visitor.visit(record);
+            if (record.entry != 0) {
+                currentPtr = record.entry + NEXT_OFFSET;
+            }
+        }
+    }
+
+    // Must be called under the stripe lock, or validated by the stripe sequence
     protected long bucketFor(long hashCode) {
+        Resize resize = this.resize;
+        if (resize != null && resize.migrated[(int) hashCode & (CONCURRENCY_LEVEL - 1)]) {
+            return resize.base + (hashCode & Long.MAX_VALUE) % resize.capacity * 8;
+        }
+        // Read capacity before mapBase: see finishResize()
+        int capacity = this.capacity;
         return mapBase + (hashCode & Long.MAX_VALUE) % capacity * 8;
     }
 
+    // Both methods return a table that holds the given stripe; the result is stable while the stripe is locked
+    private long tableBase(Resize resize, int stripe) {
+        return resize != null && resize.migrated[stripe] ? resize.base : mapBase;
+    }
+
+    private int tableCapacity(Resize resize, int stripe) {
+        return resize != null && resize.migrated[stripe] ? resize.capacity : capacity;
+    }
+
+    // Starts incremental rehashing into a larger bucket table. Since capacity is a multiple of CONCURRENCY_LEVEL,
+    // all entries of a stripe stay within the same stripe, so the table is migrated stripe by stripe
+    // under the stripe write lock while the rest of the map remains available.
+    // Stripes are moved by subsequent updates or by completeResize(). Returns false if a resize is already running.
+    public synchronized boolean resize(int newCapacity) throws OutOfMemoryException {
+        if (resize != null) {
+            return false;
+        }
+
+        newCapacity = alignCapacity(newCapacity);
+        if (newCapacity <= capacity) {
+            throw new IllegalArgumentException("New capacity " + newCapacity + " is not greater than " + capacity);
+        }
+
+        Object owner = new Object();
+        long base = allocateTable(newCapacity, owner);
+        this.resize = new Resize(base, newCapacity, owner);
+
+        log.info("Resizing {} from {} to {} buckets", getClass().getSimpleName(), capacity, newCapacity);
+        return true;
+    }
+
+    // Migrates all remaining stripes in the calling thread. Must not be called while holding a stripe lock
+    public void completeResize() {
+        Resize resize = this.resize;
+        if (resize == null) {
+            return;
+        }
+
+        while (migrateNextStripe(resize)) {
+            // Keep going
+        }
+
+        // Other threads may still be moving their stripes
+        while (this.resize == resize) {
+            Thread.yield();
+        }
+    }
+
+    void entryAdded(int count) {
+        growIfNeeded(count);
+        helpResize();
+    }
+
+    private void growIfNeeded(int count) {
+        double maxLoadFactor = this.maxLoadFactor;
+        int capacity = this.capacity;
+        if (maxLoadFactor > 0 && count > capacity * maxLoadFactor && resize == null && capacity <= Integer.MAX_VALUE / 2) {
+            synchronized (this) {
+                if (this.capacity != capacity || resize != null) {
+                    return;
+                }
+                try {
+                    resize(capacity * 2);
+                } catch (OutOfMemoryException e) {
+                    log.warn("Could not grow {} beyond {} buckets, automatic growth disabled", getClass().getSimpleName(), capacity, e);
+                    this.maxLoadFactor = 0;
+                }
+            }
+        }
+    }
+
+    private void helpResize() {
+        Resize resize = this.resize;
+        if (resize != null) {
+            migrateNextStripe(resize);
+        }
+    }
+
+    private boolean migrateNextStripe(Resize resize) {
+        int stripe = resize.nextStripe.getAndIncrement();
+        if (stripe >= CONCURRENCY_LEVEL) {
+            return false;
+        }
+
+        RWLock lock = locks[stripe].lockWrite();
+        try {
+            for (int i = stripe; i < capacity; i += CONCURRENCY_LEVEL) {
+                long nextEntry;
+                for (long entry = unsafe.getAddress(mapBase + (long) i * 8); entry != 0; entry = nextEntry) {
+                    nextEntry = unsafe.getAddress(entry + NEXT_OFFSET);
+                    long hashCode = unsafe.getLong(entry + HASH_OFFSET);
+                    long newPtr = resize.base + (hashCode & Long.MAX_VALUE) % resize.capacity * 8;
+                    unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(newPtr));
+                    unsafe.putAddress(newPtr, entry);
+                }
+            }
+            resize.migrated[stripe] = true;
+        } finally {
+            lock.unlockWrite();
+        }
+
+        if (resize.migratedStripes.incrementAndGet() == CONCURRENCY_LEVEL) {
+            finishResize(resize);
+        }
+        return true;
+    }
+
+    private void finishResize(Resize resize) {
+        long oldBase = mapBase;
+        int oldCapacity = capacity;
+
+        // bucketFor() reads capacity first, so it never combines a new capacity with the old smaller table
+        mapBase = resize.base;
+        capacity = resize.capacity;
+        this.resize = null;
+
+        // Optimistic readers may still be walking the old table
+        EpochReclaimer reclaimer = this.reclaimer;
+        if (reclaimer != null) {
+            reclaimer.awaitReaders();
+        }
+
+        synchronized (this) {
+            tableOwner = resize.owner;
+        }
+        destroyTable(oldBase, oldCapacity);
+
+        log.info("{} resized to {} buckets", getClass().getSimpleName(), resize.capacity);
+    }
+
+    // Allocates a zeroed bucket table for resize(). The owner is kept alive for as long as the table is in use
+    protected long allocateTable(int capacity, Object owner) throws OutOfMemoryException {
+        return DirectMemory.allocateAndClear(capacity * 8L, owner);
+    }
+
+    // Called when the old table is no longer in use. Tables allocated by default are freed once their owner is gone
+    protected void destroyTable(long address, int capacity) {
+        // Nothing to do by default
+    }
+
     protected RWLock lockFor(long hashCode) {
         return locks[(int) hashCode & (CONCURRENCY_LEVEL - 1)];
     }
 
     protected long timeAt(long entry) {
-        return unsafe.getLong(entry + TIME_OFFSET);
+        return unsafe.getLong(entry + TIME_OFFSET) & TIME_MASK;
     }
 
     protected void setTimeAt(long entry) {
-        unsafe.putLong(entry + TIME_OFFSET, System.currentTimeMillis());
+        setTimeAt(entry, System.currentTimeMillis());
     }
 
     protected void setTimeAt(long entry, long time) {
-        unsafe.putLong(entry + TIME_OFFSET, time);
+        long meta = unsafe.getLong(entry + TIME_OFFSET) & ~TIME_MASK;
+        unsafe.putLong(entry + TIME_OFFSET, meta | time);
+    }
+
+    protected int metaAt(long entry) {
+        return (int) (unsafe.getLong(entry + TIME_OFFSET) >>> META_SHIFT);
+    }
+
+    // Initializes time and policy metadata of a new entry
+    protected void initTimeAt(long entry, long hashCode) {
+        EvictionPolicy policy = evictionPolicy;
+        long meta = policy == null ? 0 : (long) policy.onInsert(hashCode) << META_SHIFT;
+        unsafe.putLong(entry + TIME_OFFSET, meta | System.currentTimeMillis());
     }
 
     protected boolean isExpired(long entry, boolean touch) {
         long currentTime = System.currentTimeMillis();
-        if (currentTime - unsafe.getLong(entry + TIME_OFFSET) > timeToLive) {
+        long time = unsafe.getLong(entry + TIME_OFFSET);
+        if (currentTime - (time & TIME_MASK) > timeToLive) {
             return true;
         }
         if (touch) {
-            unsafe.putLong(entry + TIME_OFFSET, currentTime);
+            long meta = time & ~TIME_MASK;
+            EvictionPolicy policy = evictionPolicy;
+            if (policy != null) {
+                int oldMeta = (int) (time >>> META_SHIFT);
+                meta = (long) policy.onAccess(unsafe.getLong(entry + HASH_OFFSET), oldMeta) << META_SHIFT;
+            }
+            unsafe.putLong(entry + TIME_OFFSET, meta | currentTime);
         }
         return false;
     }
 
+    private boolean admit(long hashCode) {
+        EvictionPolicy policy = evictionPolicy;
+        if (policy == null || policy.admit(hashCode)) {
+            return true;
+        }
+        rejections.incrementAndGet();
+        return false;
+    }
+
+    // Called outside the lock when put(), putIfAbsent() or putAll() did not store a new entry
+    // because the eviction policy rejected it. Can be used to tell rejections from updates
+    protected void entryRejected(K key, V value) {
+        // Nothing to do by default
+    }
+
+    // Evicts up to the given number of entries selected by the eviction policy.
+    // Stripes are swept in turn starting where the previous call stopped, like a clock hand;
+    // expired entries met on the way are removed as well and counted as expirations rather than evictions.
+    // Returns the number of removed entries
+    public int evict(int maxEntries) {
+        EvictionPolicy policy = evictionPolicy;
+        if (policy == null || maxEntries <= 0) {
+            return 0;
+        }
+
+        int removed = 0;
+        int expired = 0;
+        long expirationTime = System.currentTimeMillis() - timeToLive;
+
+        for (int step = 0; step < CONCURRENCY_LEVEL * EvictionPolicy.MAX_ROUNDS && removed < maxEntries; step++) {
+            int stripe = evictionHand.getAndIncrement() & (CONCURRENCY_LEVEL - 1);
+            int round = step / CONCURRENCY_LEVEL;
+
+            RWLock lock = locks[stripe];
+            if (!lock.lockWrite(lockWaitTime)) {
+                continue;
+            }
+
+            try {
+                Resize resize = this.resize;
+                long base = tableBase(resize, stripe);
+                int capacity = tableCapacity(resize, stripe);
+                for (int j = stripe; j < capacity && removed < maxEntries; j += CONCURRENCY_LEVEL) {
+                    long currentPtr = base + (long) j * 8;
+                    long nextEntry;
+                    for (long entry = unsafe.getAddress(currentPtr); entry != 0 && removed < maxEntries; entry = nextEntry) {
+                        nextEntry = unsafe.getAddress(entry + NEXT_OFFSET);
+
+                        long time = unsafe.getLong(entry + TIME_OFFSET);
+                        int meta = (int) (time >>> META_SHIFT);
+                        int newMeta = (time & TIME_MASK) <= expirationTime ? EvictionPolicy.EVICT
+                                : policy.onSweep(unsafe.getLong(entry + HASH_OFFSET), meta, round);
+
+                        if (newMeta == EvictionPolicy.EVICT) {
+                            unsafe.putAddress(currentPtr, nextEntry);
+                            freeEntry(entry);
+                            removed++;
+                            if ((time & TIME_MASK) <= expirationTime) {
+                                expired++;
+                            }
+                        } else {
+                            if (newMeta != meta) {
+                                unsafe.putLong(entry + TIME_OFFSET, (time & TIME_MASK) | (long) newMeta << META_SHIFT);
+                            }
+                            currentPtr = entry + NEXT_OFFSET;
+                        }
+                    }
+                }
+            } finally {
+                lock.unlockWrite();
+            }
+        }
+
+        count.addAndGet(-removed);
+        evictions.addAndGet(removed - expired);
+        expirations.addAndGet(expired);
+        return removed;
+    }
+
     // Called from CleanupThread. Returns true if the entry should be removed.
     // Can be used to perform custom logic on entry eviction.
     protected boolean shouldCleanup(long entry, long expirationTime) {
@@ -548,6 +1301,22 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
     protected abstract long allocateEntry(K key, long hashCode, int size) throws OutOfMemoryException;
     protected abstract void destroyEntry(long entry);
     protected abstract int sizeOf(long entry);
+
+    // Location and length of the stored value for zero-copy access through Record.
+    // 0 means the map does not expose value memory, and Record copies the value obtained by valueAt() instead
+    protected long valueAddress(long entry) {
+        return 0;
+    }
+
+    protected int valueLength(long entry) {
+        return sizeOf(entry);
+    }
+
+    // Total size of the entry memory that valueAt() and isExpired() read, including the header.
+    // Returning -1 means the entry can not be copied, and optimistic reads fall back to locking.
+    protected int entrySize(long entry) {
+        return -1;
+    }
     protected abstract int sizeOf(V value);
 
     public static class Record<K, V> {
@@ -597,6 +1366,51 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
             return map.sizeOf(entry);
         }
 
+        // Zero-copy view of the value. The memory is valid only until the record is released.
+        // Returns 0 if the map does not expose value memory
+        public long valueAddress() {
+            return map.valueAddress(entry);
+        }
+
+        public int valueLength() {
+            return map.valueAddress(entry) != 0 ? map.valueLength(entry) : valueCopy().length;
+        }
+
+        public DataStream valueStream() {
+            long address = map.valueAddress(entry);
+            return address != 0 ? new DataStream(address, map.valueLength(entry)) : new DataStream(valueCopy());
+        }
+
+        // Sends the value directly from the map memory. The stripe lock is held until the whole value is written,
+        // so only blocking sockets are accepted: a non-blocking one would make this spin under the lock
+        public void writeValue(Socket socket) throws IOException {
+            if (!socket.isBlocking()) {
+                throw new IllegalArgumentException("writeValue requires a blocking socket");
+            }
+
+            long address = map.valueAddress(entry);
+            if (address == 0) {
+                byte[] value = valueCopy();
+                socket.writeFully(value, 0, value.length);
+                return;
+            }
+
+            for (int length = map.valueLength(entry); length > 0; ) {
+                int bytes = socket.writeRaw(address, length, 0);
+                address += bytes;
+                length -= bytes;
+            }
+        }
+
+        // Fallback for maps without value memory: the raw form is defined only for byte[] values
+        private byte[] valueCopy() {
+            V value = map.valueAt(entry);
+            if (value instanceof byte[]) {
+                return (byte[]) value;
+            }
+            throw new UnsupportedOperationException(map.getClass().getName() + " does not expose value memory");
+        }
+
         public void release() {
             lock.unlockRead();
         }
@@ -623,7 +1437,7 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
                 }
 
                 unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
-                map.destroyEntry(entry);
+                map.freeEntry(entry);
                 map.count.decrementAndGet();
             }
 
@@ -631,11 +1445,12 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
             entry = map.allocateEntry(key, hash, newSize);
             unsafe.putLong(entry + HASH_OFFSET, hash);
             unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(currentPtr));
-            map.setTimeAt(entry);
+            map.initTimeAt(entry, hash);
             map.setValueAt(entry, value);
 
+            unsafe.storeFence();
             unsafe.putAddress(currentPtr, entry);
-            map.count.incrementAndGet();
+            map.growIfNeeded(map.count.incrementAndGet());
         }
 
         public long create(int entrySize) throws OutOfMemoryException {
@@ -647,9 +1462,10 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
             entry = map.allocateEntry(key, hash, entrySize);
             unsafe.putLong(entry + HASH_OFFSET, hash);
             unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(currentPtr));
+            map.initTimeAt(entry, hash);
 
             unsafe.putAddress(currentPtr, entry);
-            map.count.incrementAndGet();
+            map.growIfNeeded(map.count.incrementAndGet());
             return entry;
         }
 
@@ -662,7 +1478,7 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
 
         public void remove() {
             unsafe.putAddress(currentPtr, unsafe.getAddress(entry + NEXT_OFFSET));
-            map.destroyEntry(entry);
+            map.freeEntry(entry);
             map.count.decrementAndGet();
             entry = 0;
         }
@@ -690,6 +1506,45 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         }
     }
 
+    private static final class Resize {
+        final long base;
+        final int capacity;
+        final Object owner;
+        final boolean[] migrated = new boolean[CONCURRENCY_LEVEL];
+        final AtomicInteger nextStripe = new AtomicInteger();
+        final AtomicInteger migratedStripes = new AtomicInteger();
+
+        Resize(long base, int capacity, Object owner) {
+            this.base = base;
+            this.capacity = capacity;
+            this.owner = owner;
+        }
+    }
+
+    static final class BatchBuffer {
+        final long[] order;
+        final long[] hashes;
+        final long[] entries;
+        final int[] sizes;
+
+        BatchBuffer(int size) {
+            this.order = new long[size];
+            this.hashes = new long[size];
+            this.entries = new long[size];
+            this.sizes = new int[size];
+        }
+    }
+
+    static final class ReadBuffer {
+        final long address;
+        final int size;
+
+        ReadBuffer(int size) {
+            this.size = Math.max(Integer.highestOneBit(size - 1) << 1, 256);
+            this.address = DirectMemory.allocate(this.size, this);
+        }
+    }
+
     public interface Visitor<K, V> {
         void visit(Record<K, V> record);
     }
@@ -742,6 +1597,19 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
         }
     }
 
+    // Evicts entries chosen by the eviction policy whenever the map exceeds its cleanup threshold
+    public class EvictionCleanup extends BasicCleanup {
+
+        public EvictionCleanup(String name) {
+            super(name);
+        }
+
+        @Override
+        protected int cleanup() {
+            return evict(entriesToClean());
+        }
+    }
+
     public class SamplingCleanup extends BasicCleanup {
 
         public SamplingCleanup(String name) {
@@ -783,8 +1651,11 @@ public abstract class OffheapMap<K, V> implements OffheapMapMXBean {
             do {
                 RWLock lock = locks[bucket].lockRead();
                 try {
+                    Resize resize = OffheapMap.this.resize;
+                    long base = tableBase(resize, bucket);
+                    int capacity = tableCapacity(resize, bucket);
                     for (int i = bucket; i < capacity; i += CONCURRENCY_LEVEL) {
-                        long currentPtr = mapBase + (long) i * 8;
+                        long currentPtr = base + (long) i * 8;
                         for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
                             timestamps[samples++] = timeAt(entry);
                             if (samples == timestamps.length) return samples;
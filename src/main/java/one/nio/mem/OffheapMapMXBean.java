@@ -32,4 +32,14 @@ public interface OffheapMapMXBean {
     void setCleanupThreshold(double cleanupThreshold);
     int getMaxSamples();
     void setMaxSamples(int maxSamples);
+    boolean isOptimisticReads();
+    void setOptimisticReads(boolean optimisticReads);
+    double getMaxLoadFactor();
+    void setMaxLoadFactor(double maxLoadFactor);
+    boolean isResizing();
+    long getHits();
+    long getMisses();
+    double getHitRate();
+    long getEvictions();
+    long getRejections();
 }
@@ -40,6 +40,16 @@ public class SharedMemoryBlobMap extends SharedMemoryLongMap<byte[]> {
         unsafe.copyMemory(value, byteArrayOffset, null, entry + (HEADER_SIZE + 4), length);
     }
 
+    @Override
+    protected long valueAddress(long entry) {
+        return entry + (HEADER_SIZE + 4);
+    }
+
+    @Override
+    protected int valueLength(long entry) {
+        return unsafe.getInt(entry + HEADER_SIZE);
+    }
+
     @Override
     protected byte[] valueAt(long entry) {
         int length = unsafe.getInt(entry + HEADER_SIZE);
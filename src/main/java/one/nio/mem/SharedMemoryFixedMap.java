@@ -70,6 +70,12 @@ public abstract class SharedMemoryFixedMap<K, V> extends SharedMemoryMap<K, V> {
         // Not used
     }
 
+    @Override
+    protected boolean isCrashRecoveryEnabled() {
+        // The free list of FixedSizeAllocator is stored only on close
+        return false;
+    }
+
     @Override
     protected void loadSchema() {
         // Standard schemas are not supported; CUSTOM_DATA_OFFSET is already used
@@ -96,11 +102,42 @@ public abstract class SharedMemoryFixedMap<K, V> extends SharedMemoryMap<K, V> {
         allocator.free(entry);
     }
 
+    @Override
+    protected long allocateRaw(long hashCode, int size) {
+        if (HEADER_SIZE + size > allocator.entrySize) {
+            throw new IllegalArgumentException("Entry of " + size + " bytes does not fit fixed size allocator");
+        }
+        return allocator.malloc();
+    }
+
+    // The fixed size allocator cannot hold a bucket table, so the map never grows
+    @Override
+    public void setMaxLoadFactor(double maxLoadFactor) {
+        if (maxLoadFactor > 0) {
+            throw new UnsupportedOperationException("SharedMemoryFixedMap cannot be resized");
+        }
+    }
+
+    @Override
+    public boolean resize(int newCapacity) {
+        throw new UnsupportedOperationException("SharedMemoryFixedMap cannot be resized");
+    }
+
     @Override
     protected int sizeOf(long entry) {
         return 0;
     }
 
+    @Override
+    protected int valueLength(long entry) {
+        return valueSize;
+    }
+
+    @Override
+    protected int entrySize(long entry) {
+        return (int) allocator.entrySize;
+    }
+
     @Override
     protected int sizeOf(V value) {
         return 0;
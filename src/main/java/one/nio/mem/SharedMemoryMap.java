@@ -16,8 +16,10 @@
 
 package one.nio.mem;
 
+import one.nio.async.AsyncException;
 import one.nio.async.AsyncExecutor;
 import one.nio.async.ParallelTask;
+import one.nio.lock.RWLock;
 import one.nio.mgt.Management;
 import one.nio.serial.CalcSizeStream;
 import one.nio.serial.DeserializeStream;
@@ -27,11 +29,22 @@ import one.nio.serial.Serializer;
 import one.nio.serial.SerializerCollector;
 import one.nio.serial.SerializerNotFoundException;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements SharedMemoryMapMXBean {
+    // When set, a map left dirty by a crashed process is validated and repaired instead of being cleared
+    public static final String CRASH_RECOVERY_PROP = "one.nio.mem.crashRecovery";
+
     protected static final long SIGNATURE_CLEAR  = 0xa10a1e4c436d6873L;
     protected static final long SIGNATURE_LEGACY = 0xa1091e4c436d6873L;
     protected static final long SIGNATURE_DIRTY  = 0xa10a1f49446d6873L;
@@ -45,13 +58,22 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
     protected static final long CUSTOM_DATA_OFFSET = 48;
     protected static final long MAP_OFFSET         = MB;
 
-    protected static final int MAX_CUSTOM_DATA_SIZE = (int) (MAP_OFFSET - CUSTOM_DATA_OFFSET);
+    // Location of the bucket table after resize(); both are 0 while the initial table at MAP_OFFSET is used
+    protected static final long TABLE_CAPACITY_OFFSET = MAP_OFFSET - 16;
+    protected static final long TABLE_OFFSET          = MAP_OFFSET - 8;
+
+    protected static final int MAX_CUSTOM_DATA_SIZE = (int) (TABLE_CAPACITY_OFFSET - CUSTOM_DATA_OFFSET);
+
+    // Snapshot record header: hash, time, length
+    private static final int SNAPSHOT_RECORD_HEADER = 20;
+    private static final int SNAPSHOT_BUCKET_BATCH = 1024;
 
     protected final String className;
     protected final MappedFile mmap;
     protected final String name;
     protected MallocMT allocator;
     protected Serializer<V> serializer;
+    private long recoveryDelta = -1;  // relocation delta while crash recovery is pending, -1 otherwise
 
     protected SharedMemoryMap(int capacity, String fileName, long fileSize) throws IOException {
         this(capacity, fileName, fileSize, 0);
@@ -77,8 +99,24 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
             throw new IllegalArgumentException("Minimum " + className + " size is " + minSize + " MB");
         }
 
+        int initialCapacity = this.capacity;
         init(expirationTime);
-        createAllocator(mmap.getAddr() + mallocOffset, mmap.getSize() - mallocOffset);
+
+        if (recoveryDelta == -1) {
+            createAllocator(mmap.getAddr() + mallocOffset, mmap.getSize() - mallocOffset);
+        } else {
+            try {
+                createAllocator(mmap.getAddr() + mallocOffset, mmap.getSize() - mallocOffset);
+                recover(recoveryDelta);
+                recoveryDelta = -1;
+            } catch (RuntimeException e) {
+                log.warn("Failed to recover " + className + ", performing cleanup...", e);
+                recoveryDelta = -1;
+                reset(initialCapacity);
+                createAllocator(mmap.getAddr() + mallocOffset, mmap.getSize() - mallocOffset);
+            }
+            setHeader(BASE_OFFSET, mmap.getAddr());
+        }
 
         Management.registerMXBean(this, "one.nio.mem:type=SharedMemoryMap,name=" + name);
     }
@@ -88,6 +126,7 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         Management.unregisterMXBean("one.nio.mem:type=SharedMemoryMap,name=" + name);
 
         storeSchema();
+        storeTable();
         setHeader(TIMESTAMP_OFFSET, System.currentTimeMillis());
         setHeader(SIGNATURE_OFFSET, SIGNATURE_CLEAR);
         mmap.close();
@@ -95,7 +134,8 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
     }
 
     private void init(long expirationTime) {
-        if (needCleanup(expirationTime)) {
+        boolean recovery = needRecovery();
+        if (!recovery && needCleanup(expirationTime)) {
             DirectMemory.clear(mmap.getAddr(), mmap.getSize());
             setHeader(CAPACITY_OFFSET, capacity);
         }
@@ -103,7 +143,19 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         setHeader(SIGNATURE_OFFSET, SIGNATURE_DIRTY);
         this.mapBase = mmap.getAddr() + MAP_OFFSET;
 
+        long tableCapacity = getHeader(TABLE_CAPACITY_OFFSET);
+        if (tableCapacity != 0) {
+            log.info(className + " has been resized to " + tableCapacity + " buckets");
+            this.capacity = (int) tableCapacity;
+            this.mapBase = mmap.getAddr() + getHeader(TABLE_OFFSET);
+        }
+
         long oldBase = getHeader(BASE_OFFSET);
+        if (recovery) {
+            // Pointers are relocated by recover() as they are validated; BASE_OFFSET is updated afterwards
+            this.recoveryDelta = oldBase == 0 ? 0 : mmap.getAddr() - oldBase;
+            return;
+        }
         if (oldBase != 0) {
             log.info("Relocating " + className + "...");
             relocate(mmap.getAddr() - oldBase);
@@ -111,6 +163,112 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         setHeader(BASE_OFFSET, mmap.getAddr());
     }
 
+    // Clears the whole file as if it was never used
+    private void reset(int initialCapacity) {
+        DirectMemory.clear(mmap.getAddr(), mmap.getSize());
+        setHeader(CAPACITY_OFFSET, initialCapacity);
+        setHeader(SIGNATURE_OFFSET, SIGNATURE_DIRTY);
+        this.capacity = initialCapacity;
+        this.mapBase = mmap.getAddr() + MAP_OFFSET;
+        this.count.set(0);
+    }
+
+    protected boolean isCrashRecoveryEnabled() {
+        return Boolean.getBoolean(CRASH_RECOVERY_PROP);
+    }
+
+    protected boolean needRecovery() {
+        if (getHeader(SIGNATURE_OFFSET) != SIGNATURE_DIRTY || !isCrashRecoveryEnabled()) {
+            return false;
+        }
+        if (getHeader(CAPACITY_OFFSET) != capacity) {
+            log.info(className + " capacity has changed, crash recovery is not possible");
+            return false;
+        }
+        log.info("Recovering dirty " + className + "...");
+        return true;
+    }
+
+    // Repairs a map left by a crashed process: pointers to anything but live entries of the right bucket
+    // cut the chain, chunks no longer referenced by the map are released, allocator free lists are rebuilt.
+    // Allocator segments and buckets are processed in parallel
+    protected void recover(final long delta) {
+        long startTime = System.currentTimeMillis();
+        final ChunkBitmap chunks = new ChunkBitmap(allocator.base(), allocator.getTotalMemory());
+        final AtomicLong lostMemory = new AtomicLong();
+
+        AsyncExecutor.fork(allocator.segments(), new ParallelTask() {
+            @Override
+            public void execute(int taskNum, int taskCount) {
+                lostMemory.addAndGet(allocator.segment(taskNum).markChunks(chunks));
+            }
+        });
+
+        if (mapBase != mmap.getAddr() + MAP_OFFSET) {
+            if (!chunks.clear(mapBase) || allocator.allocatedSize(mapBase) < capacity * 8L) {
+                throw new IllegalStateException("Bucket table is corrupted");
+            }
+        }
+
+        final AtomicInteger totalCount = new AtomicInteger();
+        final AtomicInteger totalDropped = new AtomicInteger();
+
+        AsyncExecutor.fork(new ParallelTask() {
+            @Override
+            public void execute(int taskNum, int taskCount) {
+                int count = 0;
+                int dropped = 0;
+
+                for (int i = taskNum; i < capacity; i += taskCount) {
+                    long currentPtr = mapBase + (long) i * 8;
+                    for (long entry; (entry = unsafe.getAddress(currentPtr)) != 0; currentPtr = entry + NEXT_OFFSET) {
+                        entry += delta;
+                        if (!chunks.clear(entry)) {
+                            // Not an occupied chunk or already referenced from elsewhere
+                            unsafe.putAddress(currentPtr, 0);
+                            dropped++;
+                            break;
+                        }
+                        if (!isValidEntry(entry, i)) {
+                            chunks.set(entry);
+                            unsafe.putAddress(currentPtr, 0);
+                            dropped++;
+                            break;
+                        }
+                        unsafe.putAddress(currentPtr, entry);
+                        count++;
+                    }
+                }
+
+                totalCount.addAndGet(count);
+                totalDropped.addAndGet(dropped);
+            }
+        });
+
+        AsyncExecutor.fork(allocator.segments(), new ParallelTask() {
+            @Override
+            public void execute(int taskNum, int taskCount) {
+                allocator.segment(taskNum).rebuildFreeLists(chunks);
+            }
+        });
+
+        this.count.set(totalCount.get());
+
+        long endTime = System.currentTimeMillis();
+        log.info("Recovered " + totalCount.get() + " entries of " + className + " in " + (endTime - startTime) +
+                " ms. Dropped chains = " + totalDropped.get() + ", lost memory = " + lostMemory.get());
+    }
+
+    // Sanity check of an entry found in the given bucket during crash recovery
+    protected boolean isValidEntry(long entry, int bucket) {
+        long hashCode = unsafe.getLong(entry + HASH_OFFSET);
+        if ((hashCode & Long.MAX_VALUE) % capacity != bucket) {
+            return false;
+        }
+        int valueLength = valueLength(entry);
+        return valueLength >= 0 && valueLength <= sizeOf(entry);
+    }
+
     protected boolean needCleanup(long expirationTime) {
         long signature = getHeader(SIGNATURE_OFFSET);
         if (signature == SIGNATURE_DIRTY) {
@@ -148,6 +306,17 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         this.count.set(count);
     }
 
+    protected void storeTable() {
+        long initialTable = mmap.getAddr() + MAP_OFFSET;
+        if (mapBase == initialTable) {
+            setHeader(TABLE_CAPACITY_OFFSET, 0);
+            setHeader(TABLE_OFFSET, 0);
+        } else {
+            setHeader(TABLE_CAPACITY_OFFSET, capacity);
+            setHeader(TABLE_OFFSET, mapBase - mmap.getAddr());
+        }
+    }
+
     protected long getHeader(long offset) {
         return unsafe.getLong(mmap.getAddr() + offset);
     }
@@ -185,6 +354,39 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         return allocator.allocatedSize(entry) - headerSize(entry);
     }
 
+    @Override
+    protected long allocateTable(int capacity, Object owner) {
+        long size = capacity * 8L;
+        if (size > 1024 * MB) {
+            throw new OutOfMemoryException("Bucket table of " + capacity + " entries is too large");
+        }
+        long address = allocator.malloc((int) size);
+        DirectMemory.clear(address, size);
+        return address;
+    }
+
+    @Override
+    protected void destroyTable(long address, int capacity) {
+        // Persist the new table location at once, so that crash recovery can find it
+        storeTable();
+
+        // The initial table is a fixed part of the file layout
+        if (address != mmap.getAddr() + MAP_OFFSET) {
+            allocator.free(address);
+        }
+    }
+
+    @Override
+    protected int entrySize(long entry) {
+        return allocator.allocatedSize(entry);
+    }
+
+    // For serialized values the region may include allocation padding after the serialized data
+    @Override
+    protected long valueAddress(long entry) {
+        return entry + headerSize(entry);
+    }
+
     @Override
     protected V valueAt(long entry) {
         try {
@@ -247,7 +449,7 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
     }
 
     protected void createAllocator(long startAddress, long totalMemory) {
-        this.allocator = new MallocMT(startAddress, totalMemory);
+        this.allocator = new MallocMT(startAddress, totalMemory, MallocMT.DEFAULT_CONCURRENCY_LEVEL, recoveryDelta != -1);
 
         log.info(className + " initialized: capacity = " + getCount() + "/" + getCapacity()
                 + ", memory = " + allocator.getUsedMemory() / MB + "/" + allocator.getTotalMemory() / MB + " MB");
@@ -289,6 +491,8 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
         long oldUid = getHeader(UID_OFFSET);
         if (oldUid != 0 && oldUid != serializer.uid()) {
             convert(findSerializer(oldUid), serializer);
+            // Entries are already in the new format, even if the process crashes before close
+            storeSchema();
         }
     }
 
@@ -381,6 +585,258 @@ public abstract class SharedMemoryMap<K, V> extends OffheapMap<K, V> implements
                 (endFreeMemory - startFreeMemory));
     }
 
+    public long snapshot(OutputStream out) throws IOException {
+        return snapshot(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Writes live entries in a compact LZ4-compressed format with checksums, see SnapshotFormat.
+    // Bucket ranges are packed and compressed by the given number of workers in parallel.
+    // The map remains available meanwhile, so the snapshot is not atomic: entries updated
+    // or moved by a table resize during the snapshot may be missing. Returns the number of written entries
+    public long snapshot(OutputStream out, final int workers) throws IOException {
+        long startTime = System.currentTimeMillis();
+        final DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 65536));
+        dos.writeLong(SnapshotFormat.MAGIC);
+        dos.writeUTF(className);
+        dos.writeLong(serializer == null ? 0 : serializer.uid());
+
+        completeResize();
+        final int capacity = this.capacity;
+        final AtomicLong totalEntries = new AtomicLong();
+        final Set<Serializer<?>> serializers = new HashSet<>();
+
+        try {
+            AsyncExecutor.fork(workers, new ParallelTask() {
+                @Override
+                public void execute(int taskNum, int taskCount) throws IOException {
+                    int start = (int) ((long) capacity * taskNum / taskCount);
+                    int end = (int) ((long) capacity * (taskNum + 1) / taskCount);
+
+                    SnapshotWriter writer = new SnapshotWriter(dos);
+                    for (int i = start; i < end; i += SNAPSHOT_BUCKET_BATCH) {
+                        iterate(writer, i, Math.min(end, i + SNAPSHOT_BUCKET_BATCH), 1);
+                        if (writer.length >= SnapshotFormat.BLOCK_SIZE) {
+                            writer.flush();
+                        }
+                    }
+                    writer.flush();
+
+                    totalEntries.addAndGet(writer.entries);
+                    if (writer.collector != null) {
+                        synchronized (serializers) {
+                            for (Serializer<?> serializer : writer.collector.serializers()) {
+                                serializers.add(serializer);
+                            }
+                        }
+                    }
+                }
+            });
+        } catch (AsyncException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+
+        if (serializer != null) {
+            if (serializer.uid() >= 0) {
+                serializers.add(serializer);
+            }
+            writeSchema(dos, serializers);
+        }
+        SnapshotFormat.writeEnd(dos, totalEntries.get());
+
+        long endTime = System.currentTimeMillis();
+        log.info("Snapshot of " + totalEntries.get() + " " + className + " entries written in " + (endTime - startTime) + " ms");
+        return totalEntries.get();
+    }
+
+    private static void writeSchema(DataOutputStream out, Set<Serializer<?>> serializers) throws IOException {
+        CalcSizeStream css = new CalcSizeStream();
+        for (Serializer<?> serializer : serializers) {
+            css.writeObject(serializer);
+        }
+
+        byte[] data = new byte[css.count()];
+        SerializeStream ss = new SerializeStream(data);
+        for (Serializer<?> serializer : serializers) {
+            ss.writeObject(serializer);
+        }
+
+        if (data.length > 0) {
+            SnapshotFormat.writeBlock(out, SnapshotFormat.SCHEMA, data, data.length);
+        }
+    }
+
+    // Loads entries from a snapshot, possibly taken from a map of a different capacity.
+    // Snapshot entries replace existing entries with the same key. If values were written with
+    // another serializer version, they are converted after loading; this requires an empty map.
+    // On error, entries loaded so far remain in the map. Returns the number of loaded entries
+    public long restore(InputStream in) throws IOException, ClassNotFoundException {
+        long startTime = System.currentTimeMillis();
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readLong() != SnapshotFormat.MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+
+        String snapshotClassName = dis.readUTF();
+        if (!snapshotClassName.equals(className)) {
+            throw new IOException("Snapshot of " + snapshotClassName + " cannot be restored to " + className);
+        }
+
+        long uid = dis.readLong();
+        boolean convert = uid != 0 && serializer != null && serializer.uid() != uid;
+        if (convert && getCount() != 0) {
+            throw new IllegalStateException("Snapshot with a different serializer requires an empty map");
+        }
+
+        // No valid block holds more data than fits into the map
+        long maxBlockLength = mmap.getSize();
+        long entries = 0;
+        for (byte type; (type = dis.readByte()) != SnapshotFormat.END; ) {
+            byte[] data = SnapshotFormat.readBlock(dis, maxBlockLength);
+            if (type == SnapshotFormat.ENTRIES) {
+                entries += restoreEntries(data);
+            } else if (type == SnapshotFormat.SCHEMA) {
+                DeserializeStream ds = new DeserializeStream(data);
+                while (ds.available() > 0) {
+                    Repository.provideSerializer((Serializer<?>) ds.readObject());
+                }
+            } else {
+                throw new IOException("Unknown snapshot block: " + type);
+            }
+        }
+
+        long expectedEntries = dis.readLong();
+        if (entries != expectedEntries) {
+            throw new IOException("Snapshot has " + entries + " entries, expected " + expectedEntries);
+        }
+
+        if (convert) {
+            convert(findSerializer(uid), serializer);
+        } else if (uid != 0 && serializer == null) {
+            // setSerializer() will convert the values if needed
+            setHeader(UID_OFFSET, uid);
+        }
+
+        long endTime = System.currentTimeMillis();
+        log.info("Restored " + entries + " " + className + " entries in " + (endTime - startTime) + " ms");
+        return entries;
+    }
+
+    private int restoreEntries(byte[] data) throws IOException {
+        int entries = 0;
+        for (int offset = 0; offset < data.length; entries++) {
+            if (data.length - offset < SNAPSHOT_RECORD_HEADER) {
+                throw new IOException("Malformed snapshot block");
+            }
+
+            long address = byteArrayOffset + offset;
+            long hashCode = unsafe.getLong(data, address);
+            long time = unsafe.getLong(data, address + 8);
+            int length = unsafe.getInt(data, address + 16);
+            offset += SNAPSHOT_RECORD_HEADER;
+            if (length < 0 || length > data.length - offset) {
+                throw new IOException("Malformed snapshot block");
+            }
+
+            restoreEntry(hashCode, time, data, offset, length);
+            offset += length;
+        }
+        return entries;
+    }
+
+    private void restoreEntry(long hashCode, long time, byte[] data, int offset, int length) {
+        long entry = allocateRaw(hashCode, length);
+        unsafe.copyMemory(data, byteArrayOffset + offset, null, entry + HEADER_SIZE, length);
+        unsafe.putLong(entry + HASH_OFFSET, hashCode);
+        unsafe.putLong(entry + TIME_OFFSET, time);
+
+        RWLock lock = lockFor(hashCode).lockWrite();
+        try {
+            long bucket = bucketFor(hashCode);
+            long currentPtr = bucket;
+            for (long existing; (existing = unsafe.getAddress(currentPtr)) != 0; currentPtr = existing + NEXT_OFFSET) {
+                if (unsafe.getLong(existing + HASH_OFFSET) == hashCode && keyEquals(existing, entry)) {
+                    unsafe.putAddress(currentPtr, unsafe.getAddress(existing + NEXT_OFFSET));
+                    freeEntry(existing);
+                    count.decrementAndGet();
+                    break;
+                }
+            }
+
+            unsafe.putAddress(entry + NEXT_OFFSET, unsafe.getAddress(bucket));
+            unsafe.storeFence();
+            unsafe.putAddress(bucket, entry);
+        } finally {
+            lock.unlockWrite();
+        }
+
+        entryAdded(count.incrementAndGet());
+    }
+
+    // Compares keys of two entries with the same hash code. The key, if any, is stored right after the header
+    private boolean keyEquals(long entry1, long entry2) {
+        int keySize = headerSize(entry1) - HEADER_SIZE;
+        return keySize == 0 || DirectMemory.compare(null, entry1 + HEADER_SIZE, null, entry2 + HEADER_SIZE, keySize);
+    }
+
+    // Allocates an entry for a snapshot record of the given size following the header
+    protected long allocateRaw(long hashCode, int size) {
+        return allocator.segmentFor(hashCode).malloc(HEADER_SIZE + size);
+    }
+
+    private class SnapshotWriter implements Visitor<K, V> {
+        final DataOutputStream out;
+        final SerializerCollector collector;
+        byte[] buffer = new byte[SnapshotFormat.BLOCK_SIZE];
+        int length;
+        long entries;
+
+        SnapshotWriter(DataOutputStream out) {
+            this.out = out;
+            this.collector = serializer == null ? null : new SerializerCollector(mmap.getAddr(), mmap.getSize());
+        }
+
+        @Override
+        public void visit(Record<K, V> record) {
+            long entry = record.entry();
+            if (isExpired(entry, false)) {
+                return;
+            }
+
+            // Exact value length is known for some maps; otherwise allocation padding is included
+            int size = (int) (valueAddress(entry) - entry) + valueLength(entry) - HEADER_SIZE;
+            if (buffer.length - length < SNAPSHOT_RECORD_HEADER + size) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + SNAPSHOT_RECORD_HEADER + size));
+            }
+
+            long address = byteArrayOffset + length;
+            unsafe.putLong(buffer, address, unsafe.getLong(entry + HASH_OFFSET));
+            unsafe.putLong(buffer, address + 8, unsafe.getLong(entry + TIME_OFFSET));
+            unsafe.putInt(buffer, address + 16, size);
+            unsafe.copyMemory(null, entry + HEADER_SIZE, buffer, address + SNAPSHOT_RECORD_HEADER, size);
+            length += SNAPSHOT_RECORD_HEADER + size;
+            entries++;
+
+            if (collector != null) {
+                try {
+                    collector.setOffset(entry + headerSize(entry));
+                    serializer.read(collector);
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (length > 0) {
+                SnapshotFormat.writeBlock(out, SnapshotFormat.ENTRIES, buffer, length);
+                length = 0;
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private Serializer<V> findSerializer(long uid) throws SerializerNotFoundException {
         return Repository.requestSerializer(uid);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import one.nio.lz4.LZ4;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Stream format of {@link SharedMemoryMap#snapshot(java.io.OutputStream)}.
+ * <pre>
+ * long   MAGIC
+ * UTF    map class name
+ * long   uid of the value serializer, 0 if none
+ * Block* byte type, int raw length, int compressed length, int CRC32 of raw data, LZ4 compressed data
+ * byte   END, long number of entries
+ * </pre>
+ * ENTRIES blocks are independent of each other and may come in any order. Every entry is stored as
+ * {@code long hash, long time, int length, byte[length]} where the bytes are the entry memory
+ * following the common header, i.e. the key (if stored in the entry) and the value.
+ * A SCHEMA block contains serializers referenced by the values.
+ */
+final class SnapshotFormat {
+    static final long MAGIC = 0x3170616e53686d53L;
+
+    static final byte END = 0;
+    static final byte ENTRIES = 1;
+    static final byte SCHEMA = 2;
+
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    // Largest input LZ4 can compress
+    static final int MAX_BLOCK_SIZE = 0x7E000000;
+
+    static void writeBlock(DataOutputStream out, byte type, byte[] data, int length) throws IOException {
+        byte[] compressed = new byte[LZ4.compressBound(length)];
+        int compressedLength = LZ4.compress(data, 0, compressed, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.writeInt(compressedLength);
+            out.writeInt((int) crc.getValue());
+            out.write(compressed, 0, compressedLength);
+        }
+    }
+
+    static void writeEnd(DataOutputStream out, long entries) throws IOException {
+        synchronized (out) {
+            out.writeByte(END);
+            out.writeLong(entries);
+            out.flush();
+        }
+    }
+
+    // Reads the body of a block whose type has been already consumed.
+    // Blocks larger than maxLength are rejected before any memory is allocated for them
+    static byte[] readBlock(DataInputStream in, long maxLength) throws IOException {
+        int length = in.readInt();
+        int compressedLength = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0 || length > Math.min(maxLength, MAX_BLOCK_SIZE)) {
+            throw new IOException("Snapshot block of " + length + " bytes exceeds the limit of " + maxLength);
+        }
+        if (compressedLength <= 0 || compressedLength > LZ4.compressBound(length)) {
+            throw new IOException("Corrupted snapshot block header");
+        }
+
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+
+        byte[] data = new byte[length];
+        try {
+            if (LZ4.decompress(compressed, 0, data, 0, compressedLength) != length) {
+                throw new IOException("Corrupted snapshot block");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted snapshot block", e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Snapshot block checksum mismatch");
+        }
+        return data;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+/**
+ * Frequency-aware eviction in the spirit of TinyLFU.
+ * <p>
+ * Access frequencies of all keys, including missing ones, are estimated by a count-min sketch
+ * of 4-bit counters that are halved every {@code 10 * width} increments, so the history ages.
+ * The sweep gives a second chance to recently referenced entries and to entries
+ * noticeably more popular than the typical victim. A new key is admitted only if its estimated
+ * frequency is not lower than that of recently evicted entries, so that one-hit wonders do not
+ * push out the working set.
+ */
+public class TinyLfuEvictionPolicy implements EvictionPolicy {
+    private static final int REFERENCED = 1;
+    private static final long SEED0 = 0xc3a5c85c97cb3127L;
+    private static final long SEED1 = 0xb492b66fbe98f273L;
+    private static final long SEED2 = 0x9ae16a3b2f90404fL;
+    private static final long SEED3 = 0xcbf29ce484222325L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+    private volatile int victimFrequency;
+
+    public TinyLfuEvictionPolicy(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(expectedEntries, 64) - 1) << 1;
+        this.table = new long[width / 16 * 4];  // 16 counters per long, 4 rows
+        this.mask = table.length / 4 - 1;
+        this.sampleSize = width * 10;
+    }
+
+    // Estimated number of recent accesses, 0..15
+    public int frequency(long hashCode) {
+        int frequency = 15;
+        for (int row = 0; row < 4; row++) {
+            long h = hash(hashCode, row);
+            int index = row * (mask + 1) + ((int) h & mask);
+            int shift = (int) (h >>> 58) & 0x3c;
+            frequency = Math.min(frequency, (int) (table[index] >>> shift) & 15);
+        }
+        return frequency;
+    }
+
+    public int getVictimFrequency() {
+        return victimFrequency;
+    }
+
+    @Override
+    public int onInsert(long hashCode) {
+        increment(hashCode);
+        return REFERENCED;
+    }
+
+    @Override
+    public int onAccess(long hashCode, int meta) {
+        increment(hashCode);
+        return meta | REFERENCED;
+    }
+
+    @Override
+    public void onMiss(long hashCode) {
+        increment(hashCode);
+    }
+
+    @Override
+    public boolean admit(long hashCode) {
+        return frequency(hashCode) >= victimFrequency;
+    }
+
+    @Override
+    public int onSweep(long hashCode, int meta, int round) {
+        if ((meta & REFERENCED) != 0) {
+            return meta & ~REFERENCED;
+        }
+
+        // Popular entries survive while the sweep is able to find colder victims.
+        // The threshold grows with every round, so the last round evicts unconditionally
+        int frequency = frequency(hashCode);
+        if (frequency > victimFrequency + round * 4) {
+            return meta;
+        }
+
+        // Moving average of victim frequencies, rounded up so that it can grow from 0
+        victimFrequency = (victimFrequency * 7 + frequency + 7) / 8;
+        return EVICT;
+    }
+
+    // Counters are updated without atomics; concurrent increments may occasionally be lost
+    private void increment(long hashCode) {
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            long h = hash(hashCode, row);
+            int index = row * (mask + 1) + ((int) h & mask);
+            int shift = (int) (h >>> 58) & 0x3c;
+            long value = table[index];
+            if (((value >>> shift) & 15) != 15) {
+                table[index] = value + (1L << shift);
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        additions = 0;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+        }
+        victimFrequency >>>= 1;
+    }
+
+    private static long hash(long hashCode, int row) {
+        long seed = row == 0 ? SEED0 : row == 1 ? SEED1 : row == 2 ? SEED2 : SEED3;
+        long h = (hashCode + seed) * seed;
+        return h ^ (h >>> 29);
+    }
+}
@@ -24,6 +24,7 @@ import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
@@ -34,11 +35,15 @@ final class JavaSelector extends Selector {
 
     private final java.nio.channels.Selector impl;
     private final ConcurrentLinkedQueue<Session> pendingSessions;
+    private final long busyPollNanos;
+    private final SelectedSessions selectedSessions;
     private long lastWakeupTime;
 
-    JavaSelector() throws IOException {
+    JavaSelector(long busyPollNanos) throws IOException {
         this.impl = java.nio.channels.Selector.open();
         this.pendingSessions = new ConcurrentLinkedQueue<>();
+        this.busyPollNanos = busyPollNanos;
+        this.selectedSessions = new SelectedSessions();
     }
 
     @Override
@@ -97,26 +102,45 @@ final class JavaSelector extends Selector {
         return iteratorFor(impl.keys());
     }
 
+    // Returns the same cursor on every call; it is valid until the next select()
     @Override
     public final Iterator<Session> select() {
         try {
             do {
                 registerPendingSessions();
-            } while (impl.select() == 0);
+            } while (!hasPendingTasks() && busyPoll() == 0 && impl.select() == 0);
         } catch (ClosedSelectorException e) {
-            return iteratorFor(Collections.<SelectionKey>emptySet());
+            return selectedSessions.reset(Collections.<SelectionKey>emptySet());
         } catch (Exception e) {
             log.warn("Unexpected exception while selecting", e);
-            return iteratorFor(Collections.<SelectionKey>emptySet());
+            return selectedSessions.reset(Collections.<SelectionKey>emptySet());
         }
 
         lastWakeupTime = System.nanoTime();
         Set<SelectionKey> selectedKeys = impl.selectedKeys();
-        Iterator<Session> result = iteratorFor(selectedKeys);
+        Iterator<Session> result = selectedSessions.reset(selectedKeys);
         selectedKeys.clear();
         return result;
     }
 
+    @Override
+    public final void wakeup() {
+        impl.wakeup();
+    }
+
+    private int busyPoll() throws IOException {
+        if (busyPollNanos <= 0) {
+            return 0;
+        }
+
+        long deadline = System.nanoTime() + busyPollNanos;
+        int ready;
+        while ((ready = impl.selectNow()) == 0 && !hasPendingTasks() && System.nanoTime() < deadline) {
+            registerPendingSessions();
+        }
+        return ready;
+    }
+
     @Override
     public long lastWakeupTime() {
         return lastWakeupTime;
@@ -137,6 +161,50 @@ final class JavaSelector extends Selector {
         }
     }
 
+    private static final class SelectedSessions implements Iterator<Session> {
+        private Session[] sessions = new Session[16];
+        private int count;
+        private int next;
+
+        SelectedSessions reset(Set<SelectionKey> keys) {
+            Session[] sessions = this.sessions;
+            if (sessions.length <= keys.size()) {
+                this.sessions = sessions = new Session[keys.size() * 2];
+                count = 0;
+            }
+
+            int i = 0;
+            for (SelectionKey key : keys) {
+                if (key.isValid()) {
+                    Session session = (Session) key.attachment();
+                    session.events = key.readyOps();
+                    sessions[i++] = session;
+                }
+            }
+            if (i < count) {
+                Arrays.fill(sessions, i, count, null);
+            }
+            count = i;
+            next = 0;
+            return this;
+        }
+
+        @Override
+        public final boolean hasNext() {
+            return sessions[next] != null;
+        }
+
+        @Override
+        public final Session next() {
+            return sessions[next++];
+        }
+
+        @Override
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static Iterator<Session> iteratorFor(Set<SelectionKey> keys) {
         final Session[] sessions = new Session[keys.size() + 1];
         int i = 0;
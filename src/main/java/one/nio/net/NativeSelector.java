@@ -28,25 +28,40 @@ final class NativeSelector extends Selector {
     private static final int EPOLL_CTL_DEL = 2;
     private static final int EPOLL_CTL_MOD = 3;
     private static final int EPOLL_HEADER_SIZE = 16;
-    private static final int EPOLL_MAX_EVENTS = 1000;
     private static final int EPOLL_STRUCT_SIZE = 12;
-    private static final int EPOLL_BUF_SIZE = EPOLL_HEADER_SIZE + EPOLL_MAX_EVENTS * EPOLL_STRUCT_SIZE;
+    private static final int EPOLLET = 1 << 31;
+    private static final int WAKEUP_SLOT = -2;
 
     private static native int epollCreate();
     private static native void epollClose(int epollFD);
-    private static native int epollWait(int epollFD, long epollStruct, int epollElements);
+    private static native int epollWait(int epollFD, long epollStruct, int epollElements, long spinNanos);
     private static native void epollCtl(int epollFD, int op, int fd, int data, int events);
+    static native int eventfdCreate();
+    static native void eventfdSignal(int fd);
+    static native void eventfdReset(int fd);
+    static native void eventfdClose(int fd);
 
     private final int epollFD;
+    private final int wakeupFD;
     private final long epollStruct;
+    private final int maxEvents;
+    private final long busyPollNanos;
+    private final boolean edgeTriggered;
+    private final SelectedSessions selectedSessions;
     private Session[] sessions;
     private int size;
     private volatile int closeFlag;
 
-    NativeSelector() {
+    NativeSelector(int maxEvents, long busyPollNanos, boolean edgeTriggered) {
         this.epollFD = epollCreate();
-        this.epollStruct = DirectMemory.allocate(EPOLL_BUF_SIZE, this) + EPOLL_HEADER_SIZE;
+        this.epollStruct = DirectMemory.allocate(EPOLL_HEADER_SIZE + maxEvents * EPOLL_STRUCT_SIZE, this) + EPOLL_HEADER_SIZE;
+        this.maxEvents = maxEvents;
+        this.busyPollNanos = busyPollNanos;
+        this.edgeTriggered = edgeTriggered;
+        this.selectedSessions = new SelectedSessions();
         this.sessions = new Session[1024];  // must be power of 2, see add()
+        this.wakeupFD = eventfdCreate();
+        epollCtl(epollFD, EPOLL_CTL_ADD, wakeupFD, WAKEUP_SLOT, Session.READABLE);
     }
 
     @Override
@@ -65,6 +80,7 @@ final class NativeSelector extends Selector {
             closeFlag = -1;
             size = 0;
             epollClose(epollFD);
+            eventfdClose(wakeupFD);
         }
     }
 
@@ -82,11 +98,20 @@ final class NativeSelector extends Selector {
 
     @Override
     public final void enable(Session session) {
-        epollCtl(epollFD, EPOLL_CTL_ADD, ((NativeSocket) session.socket).fd, session.slot, session.eventsToListen);
+        session.suspended = false;
+        // SSL sessions may need the opposite readiness to make progress, so they stay level-triggered
+        if (edgeTriggered && session.socket.getSslContext() == null) {
+            session.edgeTriggered = true;
+            epollCtl(epollFD, EPOLL_CTL_ADD, ((NativeSocket) session.socket).fd, session.slot,
+                    Session.READABLE | Session.WRITEABLE | EPOLLET);
+        } else {
+            epollCtl(epollFD, EPOLL_CTL_ADD, ((NativeSocket) session.socket).fd, session.slot, session.eventsToListen);
+        }
     }
 
     @Override
     public final void disable(Session session) {
+        session.suspended = true;
         epollCtl(epollFD, EPOLL_CTL_DEL, ((NativeSocket) session.socket).fd, session.slot, 0);
     }
 
@@ -129,49 +154,72 @@ final class NativeSelector extends Selector {
         };
     }
 
+    // Returns the same cursor on every call; it is valid until the next select()
     @Override
     public final Iterator<Session> select() {
-        final int count = epollWait(epollFD, epollStruct, EPOLL_MAX_EVENTS) | closeFlag;
+        int count = epollWait(epollFD, epollStruct, maxEvents, busyPollNanos) | closeFlag;
+        selectedSessions.reset(count);
+        return selectedSessions;
+    }
 
-        return new Iterator<Session>() {
-            private long nextAddr = epollStruct;
-            private long lastAddr = nextAddr + count * EPOLL_STRUCT_SIZE;
-            private Session next = findNext();
-
-            private Session findNext() {
-                for (long currentAddr = nextAddr; currentAddr < lastAddr; currentAddr = nextAddr) {
-                    Session session = sessions[unsafe.getInt(currentAddr + 4)];
-                    nextAddr = currentAddr + EPOLL_STRUCT_SIZE;
-                    if (session != null) {
-                        session.events = unsafe.getInt(currentAddr);
-                        return session;
-                    }
+    @Override
+    public long lastWakeupTime() {
+        return unsafe.getLong(epollStruct - EPOLL_HEADER_SIZE);
+    }
+
+    // Synchronized with close() so that a stale descriptor number is never signalled
+    @Override
+    public final synchronized void wakeup() {
+        if (closeFlag == 0) {
+            eventfdSignal(wakeupFD);
+        }
+    }
+
+    private final class SelectedSessions implements Iterator<Session> {
+        private long nextAddr;
+        private long lastAddr;
+        private Session next;
+
+        void reset(int count) {
+            nextAddr = epollStruct;
+            lastAddr = count > 0 ? epollStruct + (long) count * EPOLL_STRUCT_SIZE : epollStruct;
+            next = findNext();
+        }
+
+        private Session findNext() {
+            for (long currentAddr = nextAddr; currentAddr < lastAddr; currentAddr = nextAddr) {
+                int slot = unsafe.getInt(currentAddr + 4);
+                nextAddr = currentAddr + EPOLL_STRUCT_SIZE;
+                if (slot == WAKEUP_SLOT) {
+                    eventfdReset(wakeupFD);
+                    continue;
                 }
-                return null;
-            }
 
-            @Override
-            public final boolean hasNext() {
-                return next != null;
+                Session session = sessions[slot];
+                if (session != null) {
+                    session.events = unsafe.getInt(currentAddr);
+                    return session;
+                }
             }
+            return null;
+        }
 
-            @Override
-            public final Session next() {
-                Session handle = next;
-                next = findNext();
-                return handle;
-            }
+        @Override
+        public final boolean hasNext() {
+            return next != null;
+        }
 
-            @Override
-            public final void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
-    }
+        @Override
+        public final Session next() {
+            Session handle = next;
+            next = findNext();
+            return handle;
+        }
 
-    @Override
-    public long lastWakeupTime() {
-        return unsafe.getLong(epollStruct - EPOLL_HEADER_SIZE);
+        @Override
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
     private synchronized void add(Session session) {
@@ -34,6 +34,8 @@ class NativeSocket extends Socket {
     private static final long OFFSET_FIELD = JavaInternals.fieldOffset(ByteBuffer.class, "offset");
 
     int fd;
+    // Completion-based I/O state while the socket is served by UringSelector
+    volatile UringChannel channel;
 
     NativeSocket(int domain, int type) throws IOException {
         this.fd = socket0(domain != 0 ? domain : INET_FAMILY, type);
@@ -110,10 +112,27 @@ class NativeSocket extends Socket {
     public native void listen(int backlog) throws IOException;
 
     @Override
-    public native void close();
+    public void close() {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
+        close0();
+    }
 
     @Override
-    public native int writeRaw(long buf, int count, int flags) throws IOException;
+    public int writeRaw(long buf, int count, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            int bytes = channel.write(null, buf, count, flags, true);
+            if (bytes != UringChannel.NATIVE_IO) {
+                return bytes;
+            }
+            bytes = writeRaw0(buf, count, flags);
+            return bytes < count ? bytes + channel.write(null, buf + bytes, count - bytes, flags, false) : bytes;
+        }
+        return writeRaw0(buf, count, flags);
+    }
 
     @Override
     public int send(ByteBuffer src, int flags, InetAddress address, int port) throws IOException {
@@ -157,19 +176,74 @@ class NativeSocket extends Socket {
     }
 
     @Override
-    public native int write(byte[] data, int offset, int count, int flags) throws IOException;
+    public int write(byte[] data, int offset, int count, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            long address = JavaInternals.byteArrayOffset + offset;
+            int bytes = channel.write(data, address, count, flags, true);
+            if (bytes != UringChannel.NATIVE_IO) {
+                return bytes;
+            }
+            bytes = write0(data, offset, count, flags);
+            return bytes < count ? bytes + channel.write(data, address + bytes, count - bytes, flags, false) : bytes;
+        }
+        return write0(data, offset, count, flags);
+    }
 
     @Override
-    public native void writeFully(byte[] data, int offset, int count) throws IOException;
+    public int writev(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            int bytes = channel.writev(data, offsets, counts, n, flags, 0, true);
+            if (bytes != UringChannel.NATIVE_IO) {
+                return bytes;
+            }
+            bytes = writev0(data, offsets, counts, n, flags);
+            return bytes + channel.writev(data, offsets, counts, n, flags, bytes, false);
+        }
+        return writev0(data, offsets, counts, n, flags);
+    }
+
+    @Override
+    public void writeFully(byte[] data, int offset, int count) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.detach();
+        }
+        writeFully0(data, offset, count);
+    }
 
     @Override
-    public native int readRaw(long buf, int count, int flags) throws IOException;
+    public int readRaw(long buf, int count, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            int bytes = channel.read(null, buf, count, flags);
+            if (bytes != UringChannel.NATIVE_IO) {
+                return bytes;
+            }
+        }
+        return readRaw0(buf, count, flags);
+    }
 
     @Override
-    public native int read(byte[] data, int offset, int count, int flags) throws IOException;
+    public int read(byte[] data, int offset, int count, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            int bytes = channel.read(data, JavaInternals.byteArrayOffset + offset, count, flags);
+            if (bytes != UringChannel.NATIVE_IO) {
+                return bytes;
+            }
+        }
+        return read0(data, offset, count, flags);
+    }
 
     @Override
     public InetSocketAddress recv(ByteBuffer dst, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.detach();
+        }
+
         AddressHolder holder = new AddressHolder();
 
         int result;
@@ -187,10 +261,23 @@ class NativeSocket extends Socket {
     }
 
     @Override
-    public native void readFully(byte[] data, int offset, int count) throws IOException;
+    public void readFully(byte[] data, int offset, int count) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            // Data already received by the channel precedes anything left in the socket
+            int bytes = channel.readDetached(data, offset, count);
+            offset += bytes;
+            count -= bytes;
+        }
+        readFully0(data, offset, count);
+    }
 
     @Override
     public long sendFile(RandomAccessFile file, long offset, long count) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.detach();
+        }
         return sendFile0(Mem.getFD(file.getFD()), offset, count);
     }
 
@@ -229,16 +316,31 @@ class NativeSocket extends Socket {
 
     @Override
     public int sendMsg(Msg msg, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.detach();
+        }
         return sendMsg0(msg.data(), msg.cmsgType(), msg.cmsgData(), flags);
     }
 
     @Override
     public int recvMsg(Msg msg, int flags) throws IOException {
+        UringChannel channel = this.channel;
+        if (channel != null) {
+            channel.detach();
+        }
         return recvMsg0(msg.data(), msg, flags);
     }
 
     @Override
-    public final native void setBlocking(boolean blocking);
+    public final void setBlocking(boolean blocking) {
+        UringChannel channel = this.channel;
+        if (channel != null && blocking) {
+            // Blocking calls bypass the selector, so requests in flight must not race with them
+            channel.detach();
+        }
+        setBlocking0(blocking);
+    }
 
     @Override
     public final native boolean isBlocking();
@@ -329,6 +431,15 @@ class NativeSocket extends Socket {
     final native void connect0(Object address, int port) throws IOException;
     final native void bind0(Object address, int port) throws IOException;
     final native int accept0(boolean nonblock) throws IOException;
+    final native void close0();
+    final native int writeRaw0(long buf, int count, int flags) throws IOException;
+    final native int write0(byte[] data, int offset, int count, int flags) throws IOException;
+    final native int writev0(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException;
+    final native void writeFully0(byte[] data, int offset, int count) throws IOException;
+    final native int readRaw0(long buf, int count, int flags) throws IOException;
+    final native int read0(byte[] data, int offset, int count, int flags) throws IOException;
+    final native void readFully0(byte[] data, int offset, int count) throws IOException;
+    final native void setBlocking0(boolean blocking);
     native long sendFile0(int sourceFD, long offset, long count) throws IOException;
     final native int sendTo0(byte[] data, int offset, int size, int flags, Object address, int port) throws IOException;
     final native int sendTo1(long buf, int size, int flags, Object address, int port) throws IOException;
@@ -102,6 +102,11 @@ class NativeSslSocket extends NativeSocket {
     @Override
     public synchronized native int write(byte[] data, int offset, int count, int flags) throws IOException;
 
+    @Override
+    public int writev(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException {
+        return writevSequential(data, offsets, counts, n, flags);
+    }
+
     @Override
     public synchronized native void writeFully(byte[] data, int offset, int count) throws IOException;
 
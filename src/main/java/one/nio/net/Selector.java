@@ -16,11 +16,26 @@
 
 package one.nio.net;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class Selector implements Iterable<Session>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(Selector.class);
+
+    // Set to "uring" to use io_uring instead of epoll where the kernel supports it
+    public static final String SELECTOR_PROP = "one.nio.net.selector";
+    public static final int DEFAULT_MAX_EVENTS = 1000;
+    private static final int MAX_TASKS_PER_ROUND = 4096;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
     public abstract int size();
     public abstract boolean isOpen();
     public abstract void close();
@@ -30,10 +45,93 @@ public abstract class Selector implements Iterable<Session>, Closeable {
     public abstract void disable(Session session);
     public abstract void listen(Session session, int events);
     public abstract Iterator<Session> iterator();
+    // The returned iterator may be reused by the next select() call
     public abstract Iterator<Session> select();
     public abstract long lastWakeupTime();
+    // Makes the current or the next select() call return without waiting for I/O.
+    // Selectors that do not override it run submitted tasks after the next select() timeout.
+    public void wakeup() {
+        // Nothing to do by default
+    }
+
+    /**
+     * Schedules the task to run on the thread that polls this selector, after the current select() round.
+     * May be called from any thread. Tasks submitted between two rounds share a single wakeup.
+     * Tasks still queued when the selector is closed are never run.
+     */
+    public final void execute(Runnable task) {
+        tasks.add(task);
+        if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+            wakeup();
+        }
+    }
+
+    /**
+     * Runs the tasks submitted with execute(). Must be called by the polling thread after each select().
+     *
+     * @return the number of tasks completed
+     */
+    public final int runTasks() {
+        if (!wakeupPending.get()) {
+            return 0;
+        }
+
+        // Reset the flag before draining, so that a task added meanwhile triggers another wakeup
+        wakeupPending.set(false);
+
+        int count = 0;
+        for (Runnable task; (task = tasks.poll()) != null; ) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Uncaught exception in selector task", e);
+            }
+
+            if (++count == MAX_TASKS_PER_ROUND) {
+                // Let the selector serve I/O between batches of tasks that keep resubmitting themselves
+                if (!tasks.isEmpty() && wakeupPending.compareAndSet(false, true)) {
+                    wakeup();
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    final boolean hasPendingTasks() {
+        return wakeupPending.get();
+    }
 
     public static Selector create() throws IOException {
-        return Socket.USE_NATIVE_SOCKET ? new NativeSelector() : new JavaSelector();
+        return create(DEFAULT_MAX_EVENTS, 0, false);
+    }
+
+    /**
+     * @param maxEvents     the maximum number of sessions returned by one select() call
+     * @param busyPollNanos how long select() polls for ready sessions without blocking before it goes to sleep
+     * @param edgeTriggered register non-SSL sessions in edge-triggered mode; supported by the native selectors only
+     */
+    public static Selector create(int maxEvents, long busyPollNanos, boolean edgeTriggered) throws IOException {
+        if (!Socket.USE_NATIVE_SOCKET) {
+            return new JavaSelector(busyPollNanos);
+        } else if (Uring.ENABLED) {
+            return new UringSelector(maxEvents, busyPollNanos, edgeTriggered);
+        }
+        return new NativeSelector(maxEvents, busyPollNanos, edgeTriggered);
+    }
+
+    // Holder class to probe io_uring only when it is requested
+    private static final class Uring {
+        static final boolean ENABLED = isEnabled();
+
+        private static boolean isEnabled() {
+            if (!"uring".equalsIgnoreCase(System.getProperty(SELECTOR_PROP))) {
+                return false;
+            } else if (!UringSelector.IS_SUPPORTED) {
+                log.warn("io_uring is not supported by the kernel, falling back to epoll");
+                return false;
+            }
+            return true;
+        }
     }
 }
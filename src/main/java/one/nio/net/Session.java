@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Session implements Closeable {
     protected static final Logger log = LoggerFactory.getLogger(Session.class);
@@ -39,6 +41,9 @@ public class Session implements Closeable {
     public static final int IDLE   = 1;
     public static final int STALE  = 2;
 
+    private static final AtomicReferenceFieldUpdater<Session, PendingWrite> pendingWritesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Session.class, PendingWrite.class, "pendingWrites");
+
     protected Socket socket;
     protected Selector selector;
     protected int slot;
@@ -46,8 +51,42 @@ public class Session implements Closeable {
     protected int eventsToListen;
     protected boolean wasSelected;
     protected boolean closing;
+
+    // Set by an edge-triggered selector: interest changes are tracked locally without epoll_ctl
+    boolean edgeTriggered;
+    // Set while the selector does not watch the session, e.g. when the socket is handed over to blocking I/O
+    volatile boolean suspended;
+    private boolean readMore;
+    private int deferredEvents;
     protected QueueItem queueHead;
+    private QueueItem queueTail;
+    // Updated under the session lock, volatile for lock-free monitoring reads
+    private volatile int queueLength;
+    private volatile long queueBytes;
+    private long writeLowWatermark;
+    private long writeHighWatermark;
+    private volatile boolean writeBlocked;
+    private int writeWaiters;
     protected volatile long lastAccessTime;
+    protected long readTimeout;
+    protected long writeTimeout;
+
+    // Stack of items submitted by writeAsync() that the selector thread has not picked up yet
+    private volatile PendingWrite pendingWrites;
+
+    // Deadline in the TimingWheel of the owning selector; guarded by the wheel
+    volatile TimingWheel timingWheel;
+    long timerTick;
+    int timerSlot;
+    Session timerPrev;
+    Session timerNext;
+
+    // I/O vector for gather writes, allocated on demand
+    private byte[][] iovData;
+    private int[] iovOffsets;
+    private int[] iovCounts;
+    private int iovLength;
+    private int iovFlags;
 
     public Session(Socket socket) {
         this(socket, READABLE);
@@ -72,6 +111,73 @@ public class Session implements Closeable {
         return lastAccessTime;
     }
 
+    // Number of items pending in the write queue; maintained incrementally, may be read without lock
+    public final int queueLength() {
+        return queueLength;
+    }
+
+    // Number of bytes pending in the write queue; maintained incrementally, may be read without lock
+    public final long queueBytes() {
+        return queueBytes;
+    }
+
+    /**
+     * Limits the amount of data buffered in the write queue.
+     * Once the queue grows beyond {@code high} bytes, the session becomes non-writable
+     * until the queue is drained down to {@code low} bytes.
+     *
+     * @param low  the queue size at which the session becomes writable again
+     * @param high the queue size that makes the session non-writable, or 0 for unlimited queue
+     */
+    public synchronized void setWriteWatermarks(long low, long high) {
+        this.writeLowWatermark = Math.min(low, high);
+        this.writeHighWatermark = high;
+        checkWatermarks();
+    }
+
+    // Producers should stop writing to a non-writable session and wait for awaitWritable()
+    public final boolean isWritable() {
+        return !writeBlocked;
+    }
+
+    /**
+     * Blocks until the write queue is drained below the low watermark.
+     * Must not be called from a selector thread.
+     *
+     * @param timeout maximum time to wait in milliseconds, or 0 to wait infinitely
+     * @return true if the session is writable, false if the timeout has elapsed
+     */
+    public final synchronized boolean awaitWritable(long timeout) throws InterruptedException, SocketException {
+        for (long timeLimit = 0; writeBlocked; ) {
+            if (closing) {
+                throw new SocketException("Socket closed");
+            }
+
+            long waitTime = 0;
+            if (timeout > 0) {
+                long currentTime = System.currentTimeMillis();
+                if (timeLimit == 0) {
+                    timeLimit = currentTime + timeout;
+                } else if (currentTime >= timeLimit) {
+                    return false;
+                }
+                waitTime = timeLimit - currentTime;
+            }
+
+            writeWaiters++;
+            try {
+                wait(waitTime);
+            } finally {
+                writeWaiters--;
+            }
+        }
+
+        if (closing) {
+            throw new SocketException("Socket closed");
+        }
+        return true;
+    }
+
     public boolean isSsl() {
         return socket.getSslContext() != null;
     }
@@ -84,10 +190,51 @@ public class Session implements Closeable {
         return ACTIVE;
     }
 
+    /**
+     * Overrides the server-wide keepAlive for this session.
+     * New values are taken into account at the next scheduled check of the session.
+     *
+     * @param readTimeout  close the session as idle after this many ms without activity, or 0 to use keepAlive
+     * @param writeTimeout close the session as stale if the write queue makes no progress for this many ms, or 0 for no limit
+     */
+    public void setTimeouts(long readTimeout, long writeTimeout) {
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+    }
+
+    // Status check by the cleanup timer: applies per-session timeouts on top of checkStatus()
+    public final int checkTimeouts(long currentTime, long keepAlive) {
+        long lastAccessTime = this.lastAccessTime;
+        if (writeTimeout > 0 && queueHead != null && lastAccessTime < currentTime - writeTimeout) {
+            return STALE;
+        }
+
+        long idleTimeout = readTimeout > 0 ? readTimeout : keepAlive;
+        return idleTimeout > 0 ? checkStatus(currentTime, idleTimeout) : ACTIVE;
+    }
+
+    // How often the cleanup timer should check this session, or 0 if the session never expires
+    public long checkInterval(long keepAlive) {
+        return minTimeout(readTimeout > 0 ? readTimeout : keepAlive, writeTimeout);
+    }
+
+    // The next session in the chain returned by TimingWheel.expire()
+    public final Session nextExpired() {
+        return timerNext;
+    }
+
+    protected static long minTimeout(long a, long b) {
+        return a <= 0 ? b : b <= 0 ? a : Math.min(a, b);
+    }
+
     @Override
     public synchronized void close() {
-        QueueItem.releaseChain(queueHead);
-        queueHead = null;
+        clearQueue();
+
+        TimingWheel timingWheel = this.timingWheel;
+        if (timingWheel != null) {
+            timingWheel.cancel(this);
+        }
 
         if (socket.isOpen()) {
             closing = true;
@@ -103,30 +250,29 @@ public class Session implements Closeable {
             close();
         } else {
             closing = true;
+            checkWatermarks();
         }
     }
 
+    // Length and bytes are read under the lock, so that they are consistent with each other
     public synchronized void getQueueStats(long[] stats) {
-        int length = 0;
-        long bytes = 0;
-        for (QueueItem item = queueHead; item != null; item = item.next) {
-            length++;
-            bytes += item.remaining();
-        }
-        stats[0] = length;
-        stats[1] = bytes;
+        stats[0] = queueLength;
+        stats[1] = queueBytes;
     }
 
     public void listen(int newEventsToListen) {
         if (newEventsToListen != eventsToListen) {
             eventsToListen = newEventsToListen;
-            selector.listen(this, newEventsToListen & EVENT_MASK);
+            if (!edgeTriggered) {
+                selector.listen(this, newEventsToListen & EVENT_MASK);
+            }
         }
     }
 
     public int read(byte[] data, int offset, int count) throws IOException {
         int bytesRead = socket.read(data, offset, count, 0);
         if (bytesRead >= 0) {
+            readMore = bytesRead > 0;
             listen(READABLE);
             return bytesRead;
         } else {
@@ -138,6 +284,7 @@ public class Session implements Closeable {
     public int readRaw(long address, int count) throws IOException {
         int bytesRead = socket.readRaw(address, count, 0);
         if (bytesRead >= 0) {
+            readMore = bytesRead > 0;
             listen(READABLE);
             return bytesRead;
         } else {
@@ -155,30 +302,257 @@ public class Session implements Closeable {
     }
 
     public final synchronized void write(QueueItem item) throws IOException {
+        if (closing) {
+            QueueItem.releaseChain(item);
+            throw new SocketException("Socket closed");
+        }
+
+        if (queueHead == null) {
+            enqueue(item);
+            try {
+                flushQueue();
+            } catch (IOException e) {
+                clearQueue();
+                throw e;
+            }
+            lastAccessTime = System.currentTimeMillis();
+        } else {
+            enqueue(item);
+        }
+    }
+
+    /**
+     * Runs the task on the selector thread that owns this session, so it never overlaps with process().
+     * Exceptions thrown by the task are passed to handleException().
+     * If the session is not registered with a selector, the task runs in the calling thread.
+     */
+    public void executeInSelector(Runnable task) {
+        Selector selector = this.selector;
+        if (selector == null) {
+            task.run();
+            return;
+        }
+
+        selector.execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                handleException(e);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #write(QueueItem)}, but the calling thread only publishes the item without locking the session.
+     * The owning selector thread later appends all items published since its previous round
+     * to the write queue at once and flushes them with a single gathered write.
+     * Write errors are reported to handleException() rather than to the caller.
+     */
+    public final void writeAsync(QueueItem item) throws IOException {
+        Selector selector = this.selector;
+        if (selector == null || closing) {
+            write(item);
+            return;
+        }
+
+        PendingWrite pending = new PendingWrite(item);
+        do {
+            pending.next = pendingWrites;
+        } while (!pendingWritesUpdater.compareAndSet(this, pending.next, pending));
+
+        // The producer that finds the stack empty is responsible for scheduling the flush
+        if (pending.next == null) {
+            selector.execute(this::flushPendingWrites);
+        }
+    }
+
+    private void flushPendingWrites() {
+        // Restore the submission order of the stack
+        PendingWrite pending = null;
+        for (PendingWrite p = pendingWritesUpdater.getAndSet(this, null), next; p != null; p = next) {
+            next = p.next;
+            p.next = pending;
+            pending = p;
+        }
+
         try {
-            if (closing) {
-                throw new SocketException("Socket closed");
+            synchronized (this) {
+                if (closing) {
+                    for (; pending != null; pending = pending.next) {
+                        QueueItem.releaseChain(pending.item);
+                    }
+                    return;
+                }
+
+                boolean idle = queueHead == null;
+                for (; pending != null; pending = pending.next) {
+                    enqueue(pending.item);
+                }
+
+                if (idle) {
+                    try {
+                        flushQueue();
+                    } catch (IOException e) {
+                        clearQueue();
+                        throw e;
+                    }
+                    lastAccessTime = System.currentTimeMillis();
+                }
+            }
+        } catch (Throwable e) {
+            handleException(e);
+        }
+    }
+
+    // Appends the chain to the tail of the write queue without walking the queue
+    private void enqueue(QueueItem item) {
+        if (item == null) {
+            return;
+        }
+
+        if (queueHead == null) {
+            queueHead = item;
+        } else {
+            queueTail.next = item;
+        }
+
+        QueueItem tail = item;
+        int length = 1;
+        long bytes = tail.remaining();
+        for (; tail.next != null; length++) {
+            tail = tail.next;
+            bytes += tail.remaining();
+        }
+        queueTail = tail;
+        queueLength += length;
+        queueBytes += bytes;
+        checkWatermarks();
+    }
+
+    private void clearQueue() {
+        QueueItem.releaseChain(queueHead);
+        queueHead = queueTail = null;
+        queueLength = 0;
+        queueBytes = 0;
+        checkWatermarks();
+    }
+
+    private void checkWatermarks() {
+        if (writeBlocked) {
+            if (queueBytes <= writeLowWatermark || writeHighWatermark == 0 || closing) {
+                writeBlocked = false;
+                if (writeWaiters > 0) notifyAll();
             }
-            if (queueHead == null) {
-                while (item != null) {
-                    int written = item.write(socket);
-                    if (item.remaining() > 0) {
-                        queueHead = item;
-                        listen(written >= 0 ? WRITEABLE : SSL | READABLE);
-                        break;
-                    } else {
-                        item.release();
+        } else if (writeHighWatermark > 0 && queueBytes > writeHighWatermark) {
+            writeBlocked = true;
+        }
+    }
+
+    // Writes queued items until the socket refuses to accept more data.
+    // Subsequent ArrayQueueItems are gathered and flushed with a single writev call.
+    // Returns true if the queue has been drained completely.
+    private boolean flushQueue() throws IOException {
+        QueueItem item = queueHead;
+        while (item != null) {
+            if (isGatherable(item) && isGatherable(item.next, ((ArrayQueueItem) item).flags)) {
+                QueueItem end = gather(item);
+                int written = socket.writev(iovData, iovOffsets, iovCounts, iovLength, iovFlags);
+                if (written >= 0) {
+                    queueBytes -= written;
+                    queueHead = item = skipWritten(item, end, written);
+                }
+                if (item != end) {
+                    if (edgeTriggered && written > 0) {
+                        // A short write does not mean the socket is full, and only a full socket gets a write edge
+                        continue;
                     }
-                    item = item.next;
+                    listen(written >= 0 ? WRITEABLE : SSL | READABLE);
+                    checkWatermarks();
+                    return false;
                 }
-                lastAccessTime = System.currentTimeMillis();
             } else {
-                queueHead.append(item);
+                int remaining = item.remaining();
+                int written = item.write(socket);
+                queueBytes -= remaining - item.remaining();
+                if (item.remaining() > 0) {
+                    if (edgeTriggered && written > 0) {
+                        continue;
+                    }
+                    listen(written >= 0 ? WRITEABLE : SSL | READABLE);
+                    checkWatermarks();
+                    return false;
+                }
+                item.release();
+                queueLength--;
+                queueHead = item = item.next;
             }
-        } catch (IOException e) {
-            QueueItem.releaseChain(item);
-            throw e;
         }
+        queueTail = null;
+        checkWatermarks();
+        return true;
+    }
+
+    private static boolean isGatherable(QueueItem item) {
+        // Subclasses may override write(), so only plain array items are eligible.
+        // Items that need to free resources after writing use a release hook instead of subclassing.
+        return item != null && item.getClass() == ArrayQueueItem.class;
+    }
+
+    // writev applies the same flags to the whole vector, so only items with equal flags are gathered together
+    private static boolean isGatherable(QueueItem item, int flags) {
+        return isGatherable(item) && ((ArrayQueueItem) item).flags == flags;
+    }
+
+    // Fills the I/O vector with the chain of ArrayQueueItems starting at the given item
+    // and sharing its flags. Returns the first item that has not been gathered.
+    private QueueItem gather(QueueItem item) {
+        if (iovData == null) {
+            iovData = new byte[16][];
+            iovOffsets = new int[16];
+            iovCounts = new int[16];
+        }
+
+        iovFlags = ((ArrayQueueItem) item).flags;
+
+        int n = 0;
+        do {
+            if (n == iovData.length) {
+                int newLength = Math.min(n * 2, Socket.IOV_MAX);
+                iovData = Arrays.copyOf(iovData, newLength);
+                iovOffsets = Arrays.copyOf(iovOffsets, newLength);
+                iovCounts = Arrays.copyOf(iovCounts, newLength);
+            }
+
+            ArrayQueueItem arrayItem = (ArrayQueueItem) item;
+            iovData[n] = arrayItem.data;
+            iovOffsets[n] = arrayItem.offset + arrayItem.written;
+            iovCounts[n] = arrayItem.count - arrayItem.written;
+            n++;
+            item = item.next;
+        } while (n < Socket.IOV_MAX && isGatherable(item, iovFlags));
+
+        iovLength = n;
+        return item;
+    }
+
+    // Advances the gathered items by the number of bytes written and releases completed ones.
+    // Returns the first item that still has data to write, or end if all gathered items are written.
+    private QueueItem skipWritten(QueueItem item, QueueItem end, int written) {
+        Arrays.fill(iovData, 0, iovLength, null);
+
+        for (; item != end; item = item.next) {
+            ArrayQueueItem arrayItem = (ArrayQueueItem) item;
+            int remaining = arrayItem.remaining();
+            if (written < remaining) {
+                arrayItem.written += written;
+                return item;
+            }
+            written -= remaining;
+            arrayItem.written = arrayItem.count;
+            item.release();
+            queueLength--;
+        }
+        return end;
     }
 
     protected void processRead(byte[] buffer) throws Exception {
@@ -190,13 +564,8 @@ public class Session implements Closeable {
             throw new IOException("Illegal subscription state: " + eventsToListen);
         }
 
-        for (QueueItem item = queueHead; item != null; queueHead = item = item.next) {
-            int written = item.write(socket);
-            if (item.remaining() > 0) {
-                listen(written >= 0 ? WRITEABLE : SSL | READABLE);
-                return;
-            }
-            item.release();
+        if (!flushQueue()) {
+            return;
         }
 
         if (closing) {
@@ -211,6 +580,8 @@ public class Session implements Closeable {
 
         if ((events & CLOSING) != 0) {
             close();
+        } else if (edgeTriggered) {
+            processEdgeTriggered(buffer);
         } else if (eventsToListen >= SSL) {
             // At any time during SSL connection a renegotiation may occur, that is,
             // a write operation may require a readable socket, and a read operation
@@ -226,6 +597,30 @@ public class Session implements Closeable {
         lastAccessTime = System.currentTimeMillis();
     }
 
+    // An edge is reported only once, so reads continue until the socket is drained,
+    // and a read edge that arrives while the session waits for the write queue is kept for later
+    private void processEdgeTriggered(byte[] buffer) throws Exception {
+        if (suspended) {
+            return;
+        }
+
+        if ((events & WRITEABLE) != 0 && (eventsToListen & WRITEABLE) != 0) {
+            processWrite();
+        }
+
+        if (((events | deferredEvents) & READABLE) != 0) {
+            deferredEvents = 0;
+            do {
+                if ((eventsToListen & READABLE) == 0) {
+                    deferredEvents = READABLE;
+                    return;
+                }
+                readMore = false;
+                processRead(buffer);
+            } while (readMore && !closing && !suspended);
+        }
+    }
+
     public void handleException(Throwable e) {
         if (e instanceof SocketException) {
             if (log.isDebugEnabled()) log.debug("Connection closed: {}", getRemoteHost());
@@ -237,6 +632,15 @@ public class Session implements Closeable {
         close();
     }
 
+    private static final class PendingWrite {
+        final QueueItem item;
+        PendingWrite next;
+
+        PendingWrite(QueueItem item) {
+            this.item = item;
+        }
+    }
+
     public static abstract class QueueItem {
         protected QueueItem next;
 
@@ -276,6 +680,7 @@ public class Session implements Closeable {
         protected int count;
         protected int written;
         protected int flags;
+        protected Runnable releaseHook;
         
         public ArrayQueueItem(byte[] data, int offset, int count, int flags) {
             this.data = data;
@@ -284,6 +689,13 @@ public class Session implements Closeable {
             this.flags = flags;
         }
 
+        // The hook runs once the data has been written, so the item may own a pooled buffer
+        // and still remain eligible for gathered writes
+        public ArrayQueueItem(byte[] data, int offset, int count, int flags, Runnable releaseHook) {
+            this(data, offset, count, flags);
+            this.releaseHook = releaseHook;
+        }
+
         @Override
         public int remaining() {
             return count - written;
@@ -297,5 +709,12 @@ public class Session implements Closeable {
             }
             return bytes;
         }
+
+        @Override
+        public void release() {
+            if (releaseHook != null) {
+                releaseHook.run();
+            }
+        }
     }
 }
@@ -62,6 +62,9 @@ public abstract class Socket implements ByteChannel {
     public static final int MSG_WAITALL   = 0x100;
     public static final int MSG_MORE      = 0x8000;
 
+    // Maximum number of buffers in a single writev call
+    public static final int IOV_MAX = 1024;
+
     // Options for setTos
     public static final int IPTOS_MINCOST     = 0x02;
     public static final int IPTOS_RELIABILITY = 0x04;
@@ -190,6 +193,33 @@ public abstract class Socket implements ByteChannel {
         return read(data, offset, count, 0);
     }
 
+    /**
+     * Gather write: sends the first {@code n} regions described by {@code data},
+     * {@code offsets} and {@code counts} arrays as a single contiguous stream.
+     * Like {@link #write(byte[], int, int, int)}, the write may be partial.
+     *
+     * @return the total number of bytes written, or a negative value if the write
+     *         could not proceed until the socket becomes readable (SSL renegotiation)
+     */
+    public int writev(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException {
+        return writevSequential(data, offsets, counts, n, flags);
+    }
+
+    protected final int writevSequential(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException {
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            int bytes = write(data[i], offsets[i], counts[i], flags);
+            if (bytes < 0) {
+                return total > 0 ? total : bytes;
+            }
+            total += bytes;
+            if (bytes < counts[i]) {
+                break;
+            }
+        }
+        return total;
+    }
+
     private static boolean isForceJavaSocket() {
         return "true".equalsIgnoreCase(System.getProperty(FORCE_JAVA_SOCKET_PROP, "false"));
     }
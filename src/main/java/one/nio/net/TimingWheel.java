@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.net;
+
+/**
+ * Hierarchical timing wheel of session deadlines.
+ * Each of the {@link #LEVELS} levels has 64 slots; a slot on level N spans 64^N ticks.
+ * Sessions are linked into slots through their own fields, so scheduling does not allocate.
+ * <p>
+ * A deadline is not moved on every session activity. When it fires, the session is handed to the caller,
+ * which checks the real status and either closes the session or schedules it again.
+ * Expiry therefore costs O(fired), not O(sessions).
+ */
+public final class TimingWheel {
+    public static final long DEFAULT_TICK = 100;
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Session[] slots = new Session[LEVELS * SLOTS];
+    private long currentTick;
+    private int size;
+
+    public TimingWheel() {
+        this(DEFAULT_TICK);
+    }
+
+    public TimingWheel(long tickMillis) {
+        this(tickMillis, System.currentTimeMillis());
+    }
+
+    TimingWheel(long tickMillis, long startTime) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startTime / tickMillis;
+    }
+
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Sets or moves the deadline of the session
+    public synchronized void schedule(Session session, long deadline) {
+        if (session.timingWheel == this) {
+            unlink(session);
+        } else {
+            if (session.timingWheel != null) {
+                session.timingWheel.cancel(session);
+            }
+            session.timingWheel = this;
+            size++;
+        }
+
+        session.timerTick = Math.max(deadline / tickMillis, currentTick + 1);
+        link(session);
+    }
+
+    public synchronized void cancel(Session session) {
+        if (session.timingWheel == this) {
+            unlink(session);
+            session.timingWheel = null;
+            size--;
+        }
+    }
+
+    /**
+     * Advances the wheel up to the given time and detaches all sessions whose deadline has passed.
+     *
+     * @return the chain of expired sessions linked through {@link Session#nextExpired()}, or null
+     */
+    public synchronized Session expire(long currentTime) {
+        Session expired = null;
+        for (long targetTick = currentTime / tickMillis; currentTick < targetTick; ) {
+            long tick = ++currentTick;
+
+            // Move sessions down from the upper levels whose slot turns over at this tick
+            for (int level = 1; level < LEVELS && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+                int slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                Session session = slots[slot];
+                slots[slot] = null;
+                while (session != null) {
+                    Session next = session.timerNext;
+                    link(session);
+                    session = next;
+                }
+            }
+
+            int slot = (int) (tick & SLOT_MASK);
+            Session session = slots[slot];
+            slots[slot] = null;
+            while (session != null) {
+                Session next = session.timerNext;
+                session.timingWheel = null;
+                session.timerPrev = null;
+                session.timerNext = expired;
+                expired = session;
+                size--;
+                session = next;
+            }
+        }
+        return expired;
+    }
+
+    private void link(Session session) {
+        long delta = Math.min(session.timerTick - currentTick, MAX_DELTA);
+        int level = 0;
+        while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+
+        // A deadline beyond the wheel range is parked in the top level and re-linked when cascaded
+        long tick = currentTick + delta;
+        int slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        Session head = slots[slot];
+        session.timerSlot = slot;
+        session.timerPrev = null;
+        session.timerNext = head;
+        if (head != null) {
+            head.timerPrev = session;
+        }
+        slots[slot] = session;
+    }
+
+    private void unlink(Session session) {
+        Session prev = session.timerPrev;
+        Session next = session.timerNext;
+        if (prev != null) {
+            prev.timerNext = next;
+        } else {
+            slots[session.timerSlot] = next;
+        }
+        if (next != null) {
+            next.timerPrev = prev;
+        }
+        session.timerPrev = session.timerNext = null;
+    }
+}
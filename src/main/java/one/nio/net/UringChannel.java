@@ -0,0 +1,273 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.net;
+
+import one.nio.mem.DirectMemory;
+
+import java.io.IOException;
+
+import static one.nio.util.JavaInternals.byteArrayOffset;
+import static one.nio.util.JavaInternals.unsafe;
+
+/**
+ * Completion-based I/O of a NativeSocket served by UringSelector.
+ * Incoming data is received into a private buffer by an io_uring recv request, and writes are copied
+ * into a send buffer and passed to an io_uring send request. Requests issued by the polling thread
+ * are submitted together with its next wait, so reading and writing cost no system calls of their own.
+ * <p>
+ * The state is guarded by the selector monitor. Operations that bypass the channel, like blocking I/O,
+ * detach it first and wait until no request is in flight. Data received by then is still served
+ * before anything read from the socket directly.
+ */
+final class UringChannel {
+    // Returned by I/O methods when the caller should perform the operation on the socket itself
+    static final int NATIVE_IO = -1;
+
+    static final int ATTACHED  = 0;
+    static final int DETACHING = 1;
+    static final int DETACHED  = 2;
+
+    // Thrown at the end of stream without creating a new exception, like the native socket does
+    private static final SocketClosedException SOCKET_CLOSED = new SocketClosedException();
+
+    final UringSelector selector;
+    final NativeSocket socket;
+    final int bufferSize;
+    final long recvBuffer;
+    long sendBuffer;
+
+    Session session;
+    int id = -1;
+    int state = DETACHED;
+    int error;
+
+    int recvPos;
+    int recvLimit;
+    boolean recvPending;
+    boolean eof;
+
+    int sendPos;
+    int sendLimit;
+    int sendFlags;
+    boolean sendPending;
+    boolean sendStaged;
+
+    UringChannel(UringSelector selector, NativeSocket socket, int bufferSize) {
+        this.selector = selector;
+        this.socket = socket;
+        this.bufferSize = bufferSize;
+        this.recvBuffer = DirectMemory.allocate(bufferSize, this);
+    }
+
+    boolean hasInput() {
+        return recvLimit > recvPos;
+    }
+
+    boolean isBusy() {
+        return recvPending || sendPending || sendStaged;
+    }
+
+    // Events the session would get from a level-triggered selector
+    int readyEvents() {
+        int events = 0;
+        if (hasInput() || eof || error != 0) {
+            events |= Session.READABLE;
+        }
+        if (!sendPending && sendLimit < bufferSize || error != 0) {
+            events |= Session.WRITEABLE;
+        }
+        return events;
+    }
+
+    int read(Object base, long offset, int count, int flags) throws IOException {
+        synchronized (selector) {
+            if (socket.fd < 0) {
+                return NATIVE_IO;
+            }
+
+            while (state == DETACHING) {
+                selector.awaitDetached(this);
+            }
+
+            if (recvPending) {
+                selector.reapForeign();
+            }
+
+            if (hasInput()) {
+                int bytes = Math.min(recvLimit - recvPos, count);
+                unsafe.copyMemory(null, recvBuffer + recvPos, base, offset, bytes);
+                if ((flags & Socket.MSG_PEEK) == 0) {
+                    consume(bytes);
+                }
+                return bytes;
+            } else if (state == DETACHED) {
+                release();
+                return NATIVE_IO;
+            } else if (error != 0) {
+                UringSelector.uringThrow(error);
+            } else if (eof) {
+                throw SOCKET_CLOSED;
+            }
+            return 0;
+        }
+    }
+
+    // Detaches the channel and hands over the data it has received
+    int readDetached(byte[] data, int offset, int count) {
+        synchronized (selector) {
+            detach();
+            int bytes = Math.min(recvLimit - recvPos, count);
+            if (bytes > 0) {
+                unsafe.copyMemory(null, recvBuffer + recvPos, data, byteArrayOffset + offset, bytes);
+                consume(bytes);
+            } else {
+                release();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Appends data to the send buffer.
+     *
+     * @param direct whether a large write may go to the socket directly, which saves copying.
+     *               It is allowed only when nothing is queued, so that the data cannot be reordered.
+     * @return the number of bytes accepted, or NATIVE_IO if the caller should write to the socket itself
+     */
+    int write(Object base, long offset, int count, int flags, boolean direct) throws IOException {
+        synchronized (selector) {
+            int capacity = sendCapacity(count, flags, direct);
+            if (capacity <= 0) {
+                return capacity;
+            }
+
+            unsafe.copyMemory(base, offset, null, sendBuffer + sendLimit, capacity);
+            commitSend(capacity, flags);
+            return capacity;
+        }
+    }
+
+    // Same as write() for the gathered arrays, starting after the first skip bytes
+    int writev(byte[][] data, int[] offsets, int[] counts, int n, int flags, int skip, boolean direct) throws IOException {
+        int total = -skip;
+        for (int i = 0; i < n; i++) {
+            total += counts[i];
+        }
+        if (total <= 0) {
+            return 0;
+        }
+
+        synchronized (selector) {
+            int capacity = sendCapacity(total, flags, direct);
+            if (capacity <= 0) {
+                return capacity;
+            }
+
+            int bytes = 0;
+            for (int i = 0; i < n && bytes < capacity; i++) {
+                int count = counts[i];
+                if (skip >= count) {
+                    skip -= count;
+                    continue;
+                }
+                int length = Math.min(count - skip, capacity - bytes);
+                unsafe.copyMemory(data[i], byteArrayOffset + offsets[i] + skip, null, sendBuffer + sendLimit + bytes, length);
+                bytes += length;
+                skip = 0;
+            }
+
+            commitSend(bytes, flags);
+            return bytes;
+        }
+    }
+
+    // Waits until the socket can be used directly
+    void detach() {
+        synchronized (selector) {
+            selector.detach(this);
+            while (state == DETACHING) {
+                selector.awaitDetached(this);
+            }
+            if (!hasInput()) {
+                release();
+            }
+        }
+    }
+
+    // Called before the socket is closed. Data accepted by write() must reach the socket first,
+    // while requests still in flight are aborted by closing it
+    void close() {
+        synchronized (selector) {
+            selector.detach(this);
+            selector.flush();
+            release();
+        }
+    }
+
+    private int sendCapacity(int count, int flags, boolean direct) throws IOException {
+        while (state == DETACHING && socket.fd >= 0) {
+            selector.awaitDetached(this);
+        }
+
+        if (state == DETACHED || socket.fd < 0) {
+            return direct ? NATIVE_IO : 0;
+        } else if (error != 0) {
+            UringSelector.uringThrow(error);
+        }
+
+        if (sendPending) {
+            selector.reapForeign();
+        }
+
+        if (sendPending || sendStaged && flags != sendFlags) {
+            return 0;
+        } else if (direct && !sendStaged && count >= bufferSize) {
+            return NATIVE_IO;
+        }
+
+        if (sendBuffer == 0) {
+            sendBuffer = DirectMemory.allocate(bufferSize, this);
+        }
+        return Math.min(count, bufferSize - sendLimit);
+    }
+
+    private void commitSend(int bytes, int flags) {
+        sendLimit += bytes;
+        if (!sendStaged) {
+            sendFlags = flags;
+            selector.stageSend(this);
+        }
+    }
+
+    private void consume(int bytes) {
+        if ((recvPos += bytes) == recvLimit) {
+            recvPos = recvLimit = 0;
+            if (state == ATTACHED) {
+                selector.submitRecv(this);
+            } else {
+                release();
+            }
+        }
+    }
+
+    // A detached channel without data is no longer needed; the socket is used directly from now on
+    private void release() {
+        if (state == DETACHED && socket.channel == this) {
+            socket.channel = null;
+        }
+    }
+}
@@ -0,0 +1,786 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.net;
+
+import one.nio.mem.DirectMemory;
+import one.nio.os.NativeLibrary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static one.nio.util.JavaInternals.byteArrayOffset;
+import static one.nio.util.JavaInternals.unsafe;
+
+/**
+ * Selector built on io_uring.
+ * <p>
+ * Plain non-blocking stream sockets are served by completion-based I/O, see {@link UringChannel}:
+ * the selector keeps a recv request in flight for every such session and reports it readable once
+ * the data has been received, while writes are handed over to send requests. Sessions are selected
+ * again as long as received data is left unread, which preserves level-triggered semantics.
+ * <p>
+ * Other sessions are watched by one-shot polls re-armed after each event. With the edge-triggered option,
+ * plain sessions not served by completions are watched by a multishot poll for both directions instead
+ * and are switched to the edge-triggered processing mode, so interest changes cost nothing.
+ * <p>
+ * Requests issued by the polling thread are submitted together with the next wait in a single system call.
+ */
+final class UringSelector extends Selector {
+    static final boolean IS_SUPPORTED = NativeLibrary.IS_SUPPORTED && uringProbe();
+
+    // Size of the per-socket receive and send buffers; 0 disables completion-based I/O
+    static final int BUFFER_SIZE = Integer.getInteger("one.nio.net.uring.bufferSize", 16384);
+
+    private static final int URING_HEADER_SIZE = 16;
+    private static final int URING_EVENT_SIZE = 16;
+    private static final int IORING_CQE_F_MORE = 2;
+    private static final long IGNORE_DATA = 0;
+    private static final long WAKEUP_DATA = -1;
+    // Poll requests carry the slot and its generation; channel requests are tagged by one of the high bits
+    private static final int GENERATION_MASK = 0x1fffffff;
+    private static final long RECV_DATA = 1L << 62;
+    private static final long SEND_DATA = 1L << 61;
+
+    private static final int EINTR = 4;
+    private static final int EBADF = 9;
+    private static final int EAGAIN = 11;
+    private static final int ENOBUFS = 105;
+    private static final int ECANCELED = 125;
+
+    private static native boolean uringProbe();
+    private static native long uringCreate(int entries, int cqEntries);
+    private static native void uringDestroy(long ring);
+    private static native void uringPollAdd(long ring, int fd, long data, int events, boolean multishot);
+    private static native void uringPollUpdate(long ring, long data, int events, long tag);
+    private static native void uringPollRemove(long ring, long data, long tag);
+    private static native boolean uringRecv(long ring, int fd, long buf, int count, long data);
+    private static native boolean uringSend(long ring, int fd, long buf, int count, int flags, long data);
+    private static native void uringCancel(long ring, long data, long tag);
+    private static native void uringSubmit(long ring);
+    private static native int uringWait(long ring, long buf, int count, long spinNanos, boolean block);
+    static native void uringThrow(int error) throws IOException;
+
+    private final long ring;
+    private final long eventStruct;
+    private final int maxEvents;
+    private final long busyPollNanos;
+    private final boolean edgeTriggered;
+    private final int bufferSize;
+    private final int wakeupFD;
+    private final SelectedSessions selectedSessions;
+    private final ArrayList<UringChannel> stagedSends;
+    private long[] rearm;
+    private int rearmCount;
+    private boolean rearmWakeup;
+    private Session[] sessions;
+    private UringChannel[] attached;
+    private int[] generations;
+    private boolean[] armed;
+    private int[] pendingEvents;
+    private boolean[] queued;
+    private int[] ready;
+    private int readyCount;
+    private UringChannel[] channels;
+    private int channelCount;
+    private int generation;
+    private int size;
+    private boolean polling;
+    private volatile Thread pollingThread;
+    private volatile int closeFlag;
+
+    UringSelector(int maxEvents, long busyPollNanos, boolean edgeTriggered) throws IOException {
+        this(maxEvents, busyPollNanos, edgeTriggered, BUFFER_SIZE);
+    }
+
+    UringSelector(int maxEvents, long busyPollNanos, boolean edgeTriggered, int bufferSize) throws IOException {
+        this.ring = uringCreate(Math.max(maxEvents, 256), maxEvents * 4);
+        if (ring == 0) {
+            throw new IOException("Cannot create io_uring");
+        }
+
+        this.eventStruct = DirectMemory.allocate(URING_HEADER_SIZE + (long) maxEvents * URING_EVENT_SIZE, this) + URING_HEADER_SIZE;
+        this.maxEvents = maxEvents;
+        this.busyPollNanos = busyPollNanos;
+        this.edgeTriggered = edgeTriggered;
+        this.bufferSize = bufferSize;
+        this.selectedSessions = new SelectedSessions(maxEvents);
+        this.stagedSends = new ArrayList<>();
+        this.rearm = new long[1024];
+        this.sessions = new Session[1024];  // must be power of 2, see add()
+        this.attached = new UringChannel[1024];
+        this.generations = new int[1024];
+        this.armed = new boolean[1024];
+        this.pendingEvents = new int[1024];
+        this.queued = new boolean[1024];
+        this.ready = new int[1024];
+        this.channels = new UringChannel[1024];  // must be power of 2, see addChannel()
+
+        this.wakeupFD = NativeSelector.eventfdCreate();
+        uringPollAdd(ring, wakeupFD, WAKEUP_DATA, Session.READABLE, true);
+        uringSubmit(ring);
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closeFlag == 0;
+    }
+
+    @Override
+    public final synchronized void close() {
+        if (closeFlag == 0) {
+            closeFlag = -1;
+            size = 0;
+            if (polling) {
+                // The polling thread releases the ring once it returns from the wait
+                NativeSelector.eventfdSignal(wakeupFD);
+            } else {
+                destroy();
+            }
+        }
+    }
+
+    private void destroy() {
+        uringDestroy(ring);
+        NativeSelector.eventfdClose(wakeupFD);
+
+        // Requests in flight are cancelled together with the ring; sockets are used directly from now on
+        for (UringChannel channel : channels) {
+            if (channel != null) {
+                channel.recvPending = channel.sendPending = channel.sendStaged = false;
+                channel.sendPos = channel.sendLimit = 0;
+                channel.state = UringChannel.DETACHED;
+                channel.id = -1;
+                if (!channel.hasInput() && channel.socket.channel == channel) {
+                    channel.socket.channel = null;
+                }
+            }
+        }
+        Arrays.fill(channels, null);
+        channelCount = 0;
+        notifyAll();
+    }
+
+    @Override
+    public final synchronized void register(Session session) {
+        if (closeFlag == 0) {
+            add(session);
+            enable(session);
+        }
+    }
+
+    @Override
+    public final synchronized void unregister(Session session) {
+        if (closeFlag == 0 && sessions[session.slot] == session) {
+            disable(session);
+            UringChannel channel = attached[session.slot];
+            if (channel != null) {
+                detach(channel);
+            }
+            remove(session);
+        }
+    }
+
+    @Override
+    public final synchronized void enable(Session session) {
+        int slot = session.slot;
+        if (closeFlag == 0 && sessions[slot] == session) {
+            session.suspended = false;
+            UringChannel channel = attach(session);
+            if (channel != null) {
+                enqueueIfReady(session, channel);
+            } else {
+                arm(session, slot, dataFor(slot));
+                submitIfForeign();
+            }
+        }
+    }
+
+    @Override
+    public final synchronized void disable(Session session) {
+        int slot = session.slot;
+        if (closeFlag == 0 && sessions[slot] == session) {
+            session.suspended = true;
+            if (armed[slot]) {
+                armed[slot] = false;
+                uringPollRemove(ring, dataFor(slot), IGNORE_DATA);
+                submitIfForeign();
+            }
+            // Completions already posted by the removed poll cannot be withdrawn, and a pending re-arm
+            // must not resurrect it, so make everything issued under the current generation stale.
+            // A channel keeps receiving into its buffer, which is bounded, until the session is enabled again
+            generations[slot] = nextGeneration();
+            pendingEvents[slot] = 0;
+        }
+    }
+
+    @Override
+    public final synchronized void listen(Session session, int events) {
+        int slot = session.slot;
+        if (closeFlag == 0 && sessions[slot] == session) {
+            UringChannel channel = attached[slot];
+            if (channel != null) {
+                enqueueIfReady(session, channel);
+            } else if (armed[slot] && !session.edgeTriggered) {
+                // A disarmed one-shot poll picks up the new interest when it is re-armed
+                uringPollUpdate(ring, dataFor(slot), events, IGNORE_DATA);
+                submitIfForeign();
+            }
+        }
+    }
+
+    @Override
+    public final Iterator<Session> iterator() {
+        return new Iterator<Session>() {
+            private Session next = findNext(0);
+
+            private Session findNext(int slot) {
+                for (Session[] sessions = UringSelector.this.sessions; slot < sessions.length; slot++) {
+                    Session session = sessions[slot];
+                    if (session != null) {
+                        return session;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public final boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public final Session next() {
+                Session session = next;
+                next = findNext(session.slot + 1);
+                return session;
+            }
+
+            @Override
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    // Returns the same cursor on every call; it is valid until the next select()
+    @Override
+    public final Iterator<Session> select() {
+        pollingThread = Thread.currentThread();
+        boolean block;
+
+        synchronized (this) {
+            if (closeFlag != 0) {
+                return selectedSessions.reset(0);
+            }
+            submitStagedSends();
+            requeueSelected();
+            rearmPolls();
+            block = readyCount == 0;
+            polling = true;
+        }
+
+        int count = uringWait(ring, eventStruct, maxEvents, block ? busyPollNanos : 0, block);
+
+        synchronized (this) {
+            polling = false;
+            if (closeFlag != 0) {
+                destroy();
+                return selectedSessions.reset(0);
+            }
+            reap(count);
+            return selectedSessions.reset(collectReady());
+        }
+    }
+
+    @Override
+    public long lastWakeupTime() {
+        return unsafe.getLong(eventStruct - URING_HEADER_SIZE);
+    }
+
+    @Override
+    public final synchronized void wakeup() {
+        if (closeFlag == 0) {
+            NativeSelector.eventfdSignal(wakeupFD);
+        }
+    }
+
+    // Applies completions to the state of sessions and channels; the selection is made by collectReady()
+    private void reap(int count) {
+        for (long addr = eventStruct, lastAddr = addr + (long) count * URING_EVENT_SIZE; addr < lastAddr; addr += URING_EVENT_SIZE) {
+            long data = unsafe.getLong(addr);
+            int res = unsafe.getInt(addr + 8);
+            boolean more = (unsafe.getInt(addr + 12) & IORING_CQE_F_MORE) != 0;
+
+            if (data == IGNORE_DATA) {
+                continue;
+            } else if (data == WAKEUP_DATA) {
+                NativeSelector.eventfdReset(wakeupFD);
+                rearmWakeup |= !more;
+                continue;
+            } else if ((data & (RECV_DATA | SEND_DATA)) != 0) {
+                UringChannel channel = channels[(int) data];
+                if (channel != null) {
+                    if ((data & RECV_DATA) != 0) {
+                        recvCompleted(channel, res);
+                    } else {
+                        sendCompleted(channel, res);
+                    }
+                }
+                continue;
+            }
+
+            int slot = (int) data;
+            Session session = sessions[slot];
+            if (session == null || generations[slot] != (int) (data >>> 32)) {
+                // Completion of a poll that belonged to a previous session in this slot
+                continue;
+            }
+
+            if (!more && armed[slot]) {
+                armed[slot] = false;
+                rearm[rearmCount++] = data;
+            }
+
+            if (res > 0) {
+                pendingEvents[slot] |= res;
+                enqueue(slot);
+            }
+        }
+    }
+
+    private void recvCompleted(UringChannel channel, int res) {
+        channel.recvPending = false;
+        if (res > 0) {
+            channel.recvPos = 0;
+            channel.recvLimit = res;
+        } else if (res == 0) {
+            channel.eof = true;
+        } else if (res != -ECANCELED && res != -EINTR && res != -EAGAIN && channel.error == 0) {
+            channel.error = -res;
+        }
+        channelUpdated(channel);
+    }
+
+    private void sendCompleted(UringChannel channel, int res) {
+        channel.sendPending = false;
+        if (res > 0 && (channel.sendPos += res) < channel.sendLimit && channel.error == 0) {
+            // The kernel stops short of the requested length only if the send was interrupted
+            submitSend(channel);
+            return;
+        }
+
+        channel.sendPos = channel.sendLimit = 0;
+        if (res < 0 && channel.error == 0) {
+            channel.error = -res;
+        }
+        channelUpdated(channel);
+    }
+
+    private void channelUpdated(UringChannel channel) {
+        if (channel.state == UringChannel.ATTACHED) {
+            // A recv cancelled by a detach is resumed if the channel has been attached again meanwhile
+            submitRecv(channel);
+            enqueueIfReady(channel.session, channel);
+        } else if (channel.state == UringChannel.DETACHING && !channel.isBusy()) {
+            channel.state = UringChannel.DETACHED;
+            removeChannel(channel);
+            if (!channel.hasInput() && channel.socket.channel == channel) {
+                channel.socket.channel = null;
+            }
+            notifyAll();
+        }
+    }
+
+    // Builds the selection from the queue of ready sessions; the rest of the queue is served by the next round
+    private int collectReady() {
+        Session[] selected = selectedSessions.sessions;
+        long[] selectedData = selectedSessions.data;
+        int selectedCount = 0;
+
+        int i = 0;
+        while (i < readyCount && selectedCount < maxEvents) {
+            int slot = ready[i++];
+            int events = pendingEvents[slot];
+            queued[slot] = false;
+            pendingEvents[slot] = 0;
+
+            Session session = sessions[slot];
+            if (session == null) {
+                continue;
+            }
+
+            UringChannel channel = attached[slot];
+            if (channel != null && !session.suspended) {
+                events |= channel.readyEvents() & session.eventsToListen & Session.EVENT_MASK;
+            }
+
+            if (events != 0) {
+                session.events = events;
+                selectedData[selectedCount] = dataFor(slot);
+                selected[selectedCount++] = session;
+            }
+        }
+
+        System.arraycopy(ready, i, ready, 0, readyCount - i);
+        readyCount -= i;
+        return selectedCount;
+    }
+
+    // Level-triggered semantics: a session that has left received data unread is selected again
+    private void requeueSelected() {
+        Session[] selected = selectedSessions.sessions;
+        long[] selectedData = selectedSessions.data;
+        for (int i = 0; i < selectedSessions.count; i++) {
+            int slot = (int) selectedData[i];
+            UringChannel channel = attached[slot];
+            if (channel != null && sessions[slot] == selected[i]) {
+                enqueueIfReady(selected[i], channel);
+            }
+        }
+    }
+
+    private void enqueueIfReady(Session session, UringChannel channel) {
+        if (!session.suspended && (channel.readyEvents() & session.eventsToListen & Session.EVENT_MASK) != 0) {
+            enqueue(session.slot);
+        }
+    }
+
+    private void enqueue(int slot) {
+        if (!queued[slot]) {
+            queued[slot] = true;
+            ready[readyCount++] = slot;
+            if (polling) {
+                // The polling thread is waiting for completions and would not see the queue otherwise
+                NativeSelector.eventfdSignal(wakeupFD);
+            }
+        }
+    }
+
+    // Queues new polls for sessions whose poll has completed during the previous round
+    private void rearmPolls() {
+        for (int i = 0; i < rearmCount; i++) {
+            long data = rearm[i];
+            int slot = (int) data;
+            Session session = sessions[slot];
+            if (session != null && generations[slot] == (int) (data >>> 32) && !armed[slot]) {
+                arm(session, slot, data);
+            }
+        }
+        rearmCount = 0;
+
+        if (rearmWakeup) {
+            rearmWakeup = false;
+            uringPollAdd(ring, wakeupFD, WAKEUP_DATA, Session.READABLE, true);
+        }
+    }
+
+    private void arm(Session session, int slot, long data) {
+        int fd = ((NativeSocket) session.socket).fd;
+        armed[slot] = true;
+        if (edgeTriggered && session.socket.getSslContext() == null) {
+            session.edgeTriggered = true;
+            uringPollAdd(ring, fd, data, Session.READABLE | Session.WRITEABLE, true);
+        } else {
+            uringPollAdd(ring, fd, data, session.eventsToListen & Session.EVENT_MASK, false);
+        }
+    }
+
+    // Serves the session by completion-based I/O if its socket supports it
+    private UringChannel attach(Session session) {
+        if (bufferSize == 0 || session.socket.getClass() != NativeSocket.class) {
+            return null;
+        }
+
+        NativeSocket socket = (NativeSocket) session.socket;
+        UringChannel channel = socket.channel;
+        if (channel == null) {
+            if (socket.isBlocking() || !isStream(socket)) {
+                return null;
+            }
+            channel = new UringChannel(this, socket, bufferSize);
+            socket.channel = channel;
+        } else if (channel.selector != this) {
+            return null;
+        } else if (channel.state != UringChannel.ATTACHED && socket.isBlocking()) {
+            // Still handed over to blocking I/O
+            return null;
+        }
+
+        if (channel.state == UringChannel.DETACHED) {
+            addChannel(channel);
+        }
+        channel.state = UringChannel.ATTACHED;
+        channel.session = session;
+        attached[session.slot] = channel;
+        submitRecv(channel);
+        return channel;
+    }
+
+    private static boolean isStream(NativeSocket socket) {
+        byte[] type = socket.getOption(Socket.SOL_SOCKET, Socket.SO_TYPE);
+        return type != null && type.length == 4 && unsafe.getInt(type, byteArrayOffset) == Socket.SOCK_STREAM;
+    }
+
+    // Stops issuing requests for the channel. Data already received stays in the channel
+    final void detach(UringChannel channel) {
+        if (channel.state != UringChannel.ATTACHED) {
+            return;
+        }
+
+        channel.state = UringChannel.DETACHING;
+        Session session = channel.session;
+        if (session != null && attached[session.slot] == channel) {
+            attached[session.slot] = null;
+        }
+        channel.session = null;
+
+        if (closeFlag == 0) {
+            if (channel.sendStaged) {
+                submitSend(channel);
+            }
+            if (channel.recvPending) {
+                uringCancel(ring, RECV_DATA | channel.id, IGNORE_DATA);
+                submitIfForeign();
+            }
+        }
+        channelUpdated(channel);
+    }
+
+    // Waits for the completions of a detaching channel. Called with the monitor held.
+    // The thread takes over the completion queue whenever the polling thread is not waiting on it.
+    // Once the selector is closed, the channel is released by destroy()
+    final void awaitDetached(UringChannel channel) {
+        boolean interrupted = false;
+        while (channel.state == UringChannel.DETACHING) {
+            if (!polling && closeFlag == 0) {
+                reap(uringWait(ring, eventStruct, maxEvents, 0, false));
+                if (channel.state != UringChannel.DETACHING) {
+                    break;
+                }
+            }
+
+            try {
+                wait(1);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Lets a thread other than the polling one see completions of its requests without waiting for the next round.
+    // Checking an empty completion queue costs no system call
+    final void reapForeign() {
+        if (!polling && closeFlag == 0 && Thread.currentThread() != pollingThread) {
+            reap(uringWait(ring, eventStruct, maxEvents, 0, false));
+        }
+    }
+
+    final void submitRecv(UringChannel channel) {
+        if (channel.recvPending || channel.hasInput() || channel.eof || channel.error != 0 || closeFlag != 0) {
+            return;
+        }
+
+        int fd = channel.socket.fd;
+        if (fd < 0) {
+            channel.error = EBADF;
+        } else if (uringRecv(ring, fd, channel.recvBuffer, channel.bufferSize, RECV_DATA | channel.id)) {
+            channel.recvPending = true;
+            submitIfForeign();
+        } else {
+            channel.error = ENOBUFS;
+        }
+    }
+
+    // Sends issued while processing sessions wait for the next select(), and more data may be appended meanwhile
+    final void stageSend(UringChannel channel) {
+        channel.sendStaged = true;
+        if (Thread.currentThread() == pollingThread) {
+            stagedSends.add(channel);
+        } else {
+            submitSend(channel);
+        }
+    }
+
+    private void submitStagedSends() {
+        for (int i = 0; i < stagedSends.size(); i++) {
+            UringChannel channel = stagedSends.get(i);
+            if (channel.sendStaged) {
+                submitSend(channel);
+            }
+        }
+        stagedSends.clear();
+    }
+
+    private void submitSend(UringChannel channel) {
+        channel.sendStaged = false;
+        if (closeFlag != 0) {
+            channel.sendPos = channel.sendLimit = 0;
+            return;
+        }
+
+        int fd = channel.socket.fd;
+        int count = channel.sendLimit - channel.sendPos;
+        if (fd >= 0 && uringSend(ring, fd, channel.sendBuffer + channel.sendPos, count, channel.sendFlags, SEND_DATA | channel.id)) {
+            channel.sendPending = true;
+            submitIfForeign();
+        } else {
+            channel.sendPos = channel.sendLimit = 0;
+            if (channel.error == 0) {
+                channel.error = fd < 0 ? EBADF : ENOBUFS;
+            }
+        }
+    }
+
+    // Passes all queued requests to the kernel, even those issued by the polling thread
+    final void flush() {
+        if (closeFlag == 0) {
+            uringSubmit(ring);
+        }
+    }
+
+    // Requests from the polling thread are batched with its next wait
+    private void submitIfForeign() {
+        if (Thread.currentThread() != pollingThread) {
+            uringSubmit(ring);
+        }
+    }
+
+    private long dataFor(int slot) {
+        return (long) generations[slot] << 32 | (slot & 0xffffffffL);
+    }
+
+    private void add(Session session) {
+        if (++size > sessions.length) {
+            int newLength = sessions.length * 2;
+            sessions = Arrays.copyOf(sessions, newLength);
+            attached = Arrays.copyOf(attached, newLength);
+            generations = Arrays.copyOf(generations, newLength);
+            armed = Arrays.copyOf(armed, newLength);
+            pendingEvents = Arrays.copyOf(pendingEvents, newLength);
+            queued = Arrays.copyOf(queued, newLength);
+            ready = Arrays.copyOf(ready, newLength);
+            rearm = Arrays.copyOf(rearm, newLength);
+        }
+
+        final int mask = sessions.length - 1;
+        for (int slot = session.hashCode() & mask; ; slot = (slot + 1) & mask) {
+            if (sessions[slot] == null) {
+                session.selector = this;
+                session.slot = slot;
+                sessions[slot] = session;
+                generations[slot] = nextGeneration();
+                armed[slot] = false;
+                pendingEvents[slot] = 0;
+                return;
+            }
+        }
+    }
+
+    private int nextGeneration() {
+        // Generation 0 is reserved for IGNORE_DATA, and the high bits are reserved for channel requests
+        generation = (generation + 1) & GENERATION_MASK;
+        if (generation == 0) generation = 1;
+        return generation;
+    }
+
+    private void remove(Session session) {
+        sessions[session.slot] = null;
+        attached[session.slot] = null;
+        generations[session.slot] = 0;
+        session.selector = null;
+        size--;
+    }
+
+    private void addChannel(UringChannel channel) {
+        if (++channelCount > channels.length) {
+            channels = Arrays.copyOf(channels, channels.length * 2);
+        }
+
+        final int mask = channels.length - 1;
+        for (int id = channel.hashCode() & mask; ; id = (id + 1) & mask) {
+            if (channels[id] == null) {
+                channel.id = id;
+                channels[id] = channel;
+                return;
+            }
+        }
+    }
+
+    private void removeChannel(UringChannel channel) {
+        if (channel.id >= 0) {
+            channels[channel.id] = null;
+            channel.id = -1;
+            channelCount--;
+        }
+    }
+
+    // Skips sessions disabled after their events were collected: a multishot poll may post
+    // several completions for the same data, and a session may be handed over to blocking I/O meanwhile
+    private final class SelectedSessions implements Iterator<Session> {
+        final Session[] sessions;
+        final long[] data;
+        private int count;
+        private int next;
+
+        SelectedSessions(int capacity) {
+            this.sessions = new Session[capacity];
+            this.data = new long[capacity];
+        }
+
+        SelectedSessions reset(int count) {
+            if (count < this.count) {
+                Arrays.fill(sessions, count, this.count, null);
+            }
+            this.count = count;
+            this.next = 0;
+            return this;
+        }
+
+        @Override
+        public final boolean hasNext() {
+            for (; next < count; next++) {
+                long data = this.data[next];
+                if (generations[(int) data] == (int) (data >>> 32)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public final Session next() {
+            return sessions[next++];
+        }
+
+        @Override
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 
 #include <sys/epoll.h>
+#include <sys/eventfd.h>
 #include <sys/socket.h>
 #include <unistd.h>
 #include <time.h>
@@ -39,8 +40,23 @@ Java_one_nio_net_NativeSelector_epollCreate(JNIEnv* env, jclass cls) {
 }
 
 JNIEXPORT jint JNICALL
-Java_one_nio_net_NativeSelector_epollWait(JNIEnv* env, jclass cls, jint epfd, jlong epollStruct, jint count) {
-    int result = epoll_wait(epfd, (struct epoll_event*)(intptr_t)epollStruct, count, -1);
+Java_one_nio_net_NativeSelector_epollWait(JNIEnv* env, jclass cls, jint epfd, jlong epollStruct, jint count, jlong spinNanos) {
+    struct epoll_event* events = (struct epoll_event*)(intptr_t)epollStruct;
+    int result;
+
+    if (spinNanos > 0) {
+        // Busy-poll without blocking for up to spinNanos before falling back to a blocking wait
+        jlong deadline = nanoTime() + spinNanos;
+        do {
+            result = epoll_wait(epfd, events, count, 0);
+            if (result != 0) {
+                *(jlong*)(intptr_t)(epollStruct - EPOLL_HEADER_SIZE) = nanoTime();
+                return result;
+            }
+        } while (nanoTime() < deadline);
+    }
+
+    result = epoll_wait(epfd, events, count, -1);
     *(jlong*)(intptr_t)(epollStruct - EPOLL_HEADER_SIZE) = nanoTime();
     return result;
 }
@@ -53,6 +69,28 @@ Java_one_nio_net_NativeSelector_epollCtl(JNIEnv* env, jclass cls, jint epfd, jin
     epoll_ctl(epfd, op, fd, &ev);
 }
 
+JNIEXPORT jint JNICALL
+Java_one_nio_net_NativeSelector_eventfdCreate(JNIEnv* env, jclass cls) {
+    return eventfd(0, EFD_NONBLOCK | EFD_CLOEXEC);
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_NativeSelector_eventfdSignal(JNIEnv* env, jclass cls, jint fd) {
+    uint64_t value = 1;
+    write(fd, &value, sizeof(value));
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_NativeSelector_eventfdReset(JNIEnv* env, jclass cls, jint fd) {
+    uint64_t value;
+    read(fd, &value, sizeof(value));
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_NativeSelector_eventfdClose(JNIEnv* env, jclass cls, jint fd) {
+    close(fd);
+}
+
 JNIEXPORT void JNICALL
 Java_one_nio_net_NativeSelector_epollClose(JNIEnv* env, jclass cls, jint epfd) {
     static int wakeup_socket = -1;
@@ -23,6 +23,7 @@
 #include <netinet/in.h>
 #include <netinet/tcp.h>
 #include <errno.h>
+#include <limits.h>
 #include <fcntl.h>
 #include <pthread.h>
 #include <signal.h>
@@ -56,6 +57,10 @@ static pthread_t* fd_table;
 #define TCP_FASTOPEN 23
 #endif
 
+#ifndef IOV_MAX
+#define IOV_MAX 1024
+#endif
+
 #ifndef TCP_NOTSENT_LOWAT
 #define TCP_NOTSENT_LOWAT 25
 #endif
@@ -265,7 +270,7 @@ Java_one_nio_net_NativeSocket_accept0(JNIEnv* env, jobject self, jboolean nonblo
 }
 
 JNIEXPORT void JNICALL
-Java_one_nio_net_NativeSocket_close(JNIEnv* env, jobject self) {
+Java_one_nio_net_NativeSocket_close0(JNIEnv* env, jobject self) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     if (fd != -1) {
         (*env)->SetIntField(env, self, f_fd, -1);
@@ -318,7 +323,7 @@ Java_one_nio_net_NativeSocket_listen(JNIEnv* env, jobject self, jint backlog) {
 }
 
 JNIEXPORT jint JNICALL
-Java_one_nio_net_NativeSocket_writeRaw(JNIEnv* env, jobject self, jlong buf, jint count, jint flags) {
+Java_one_nio_net_NativeSocket_writeRaw0(JNIEnv* env, jobject self, jlong buf, jint count, jint flags) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     if (fd == -1) {
         throw_socket_closed(env);
@@ -340,7 +345,7 @@ Java_one_nio_net_NativeSocket_writeRaw(JNIEnv* env, jobject self, jlong buf, jin
 }
 
 JNIEXPORT int JNICALL
-Java_one_nio_net_NativeSocket_write(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count, jint flags) {
+Java_one_nio_net_NativeSocket_write0(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count, jint flags) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     jbyte buf[MAX_STACK_BUF];
 
@@ -366,8 +371,57 @@ Java_one_nio_net_NativeSocket_write(JNIEnv* env, jobject self, jbyteArray data,
     return 0;
 }
 
+JNIEXPORT jint JNICALL
+Java_one_nio_net_NativeSocket_writev0(JNIEnv* env, jobject self, jobjectArray data, jintArray offsets,
+                                     jintArray counts, jint n, jint flags) {
+    int fd = (*env)->GetIntField(env, self, f_fd);
+    jbyte buf[MAX_STACK_BUF];
+    jint off[IOV_MAX];
+    jint cnt[IOV_MAX];
+
+    if (fd == -1) {
+        throw_socket_closed(env);
+    } else if (n > 0) {
+        if (n > IOV_MAX) n = IOV_MAX;
+        (*env)->GetIntArrayRegion(env, offsets, 0, n, off);
+        (*env)->GetIntArrayRegion(env, counts, 0, n, cnt);
+
+        // Gather all regions into one buffer, so that the whole chain is sent with a single syscall
+        int count = 0;
+        int i;
+        for (i = 0; i < n && count < MAX_STACK_BUF; i++) {
+            int len = cnt[i] <= MAX_STACK_BUF - count ? cnt[i] : MAX_STACK_BUF - count;
+            jbyteArray array = (jbyteArray)(*env)->GetObjectArrayElement(env, data, i);
+            (*env)->GetByteArrayRegion(env, array, off[i], len, buf + count);
+            (*env)->DeleteLocalRef(env, array);
+            if ((*env)->ExceptionCheck(env)) {
+                return 0;
+            }
+            count += len;
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        do {
+            int result = send(fd, buf, count, flags | MSG_NOSIGNAL);
+            if (result > 0) {
+                return result;
+            } else if (result == 0) {
+                throw_socket_closed_cached(env);
+                break;
+            } else if (is_io_exception(fd)) {
+                throw_io_exception(env);
+                break;
+            }
+        } while (errno == EINTR);
+    }
+    return 0;
+}
+
 JNIEXPORT void JNICALL
-Java_one_nio_net_NativeSocket_writeFully(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count) {
+Java_one_nio_net_NativeSocket_writeFully0(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     jbyte buf[MAX_STACK_BUF];
 
@@ -394,7 +448,7 @@ Java_one_nio_net_NativeSocket_writeFully(JNIEnv* env, jobject self, jbyteArray d
 }
 
 JNIEXPORT jint JNICALL
-Java_one_nio_net_NativeSocket_readRaw(JNIEnv* env, jobject self, jlong buf, jint count, jint flags) {
+Java_one_nio_net_NativeSocket_readRaw0(JNIEnv* env, jobject self, jlong buf, jint count, jint flags) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     if (fd == -1) {
         throw_socket_closed(env);
@@ -416,7 +470,7 @@ Java_one_nio_net_NativeSocket_readRaw(JNIEnv* env, jobject self, jlong buf, jint
 }
 
 JNIEXPORT int JNICALL
-Java_one_nio_net_NativeSocket_read(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count, jint flags) {
+Java_one_nio_net_NativeSocket_read0(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count, jint flags) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     jbyte buf[MAX_STACK_BUF];
 
@@ -441,7 +495,7 @@ Java_one_nio_net_NativeSocket_read(JNIEnv* env, jobject self, jbyteArray data, j
 }
 
 JNIEXPORT void JNICALL
-Java_one_nio_net_NativeSocket_readFully(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count) {
+Java_one_nio_net_NativeSocket_readFully0(JNIEnv* env, jobject self, jbyteArray data, jint offset, jint count) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     jbyte buf[MAX_STACK_BUF];
 
@@ -747,7 +801,7 @@ Java_one_nio_net_NativeSocket_getRemoteAddress(JNIEnv* env, jobject self) {
 }
 
 JNIEXPORT void JNICALL
-Java_one_nio_net_NativeSocket_setBlocking(JNIEnv* env, jobject self, jboolean blocking) {
+Java_one_nio_net_NativeSocket_setBlocking0(JNIEnv* env, jobject self, jboolean blocking) {
     int fd = (*env)->GetIntField(env, self, f_fd);
     fcntl(fd, F_SETFL, blocking ? 0 : O_NONBLOCK);
 }
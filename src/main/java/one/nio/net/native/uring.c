@@ -0,0 +1,392 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+#include <sys/mman.h>
+#include <sys/socket.h>
+#include <sys/syscall.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+#include <unistd.h>
+#include <jni.h>
+#include "jni_util.h"
+
+// See UringSelector.java
+#define URING_HEADER_SIZE 16
+#define URING_EVENT_SIZE  16
+
+#if __has_include(<linux/io_uring.h>)
+
+#include <linux/io_uring.h>
+
+struct uring {
+    int fd;
+    unsigned sq_entries;
+    unsigned* sq_head;
+    unsigned* sq_tail;
+    unsigned* sq_mask;
+    unsigned* sq_array;
+    unsigned* cq_head;
+    unsigned* cq_tail;
+    unsigned* cq_mask;
+    struct io_uring_sqe* sqes;
+    struct io_uring_cqe* cqes;
+    void* sq_ptr;
+    void* cq_ptr;
+    size_t sq_size;
+    size_t cq_size;
+    size_t sqes_size;
+};
+
+
+static inline jlong nanoTime() {
+    struct timespec tp;
+    clock_gettime(CLOCK_MONOTONIC, &tp);
+    return (jlong)tp.tv_sec * 1000000000 + tp.tv_nsec;
+}
+
+static inline int uring_enter(int fd, unsigned to_submit, unsigned min_complete, unsigned flags) {
+    return syscall(__NR_io_uring_enter, fd, to_submit, min_complete, flags, NULL, 0);
+}
+
+static void uring_free(struct uring* r) {
+    if (r->sqes != NULL && r->sqes != MAP_FAILED) munmap(r->sqes, r->sqes_size);
+    if (r->cq_ptr != NULL && r->cq_ptr != MAP_FAILED && r->cq_ptr != r->sq_ptr) munmap(r->cq_ptr, r->cq_size);
+    if (r->sq_ptr != NULL && r->sq_ptr != MAP_FAILED) munmap(r->sq_ptr, r->sq_size);
+    if (r->fd >= 0) close(r->fd);
+    free(r);
+}
+
+static struct uring* uring_create(unsigned entries, unsigned cq_entries) {
+    struct io_uring_params p;
+    memset(&p, 0, sizeof(p));
+    p.flags = IORING_SETUP_CQSIZE | IORING_SETUP_CLAMP;
+    p.cq_entries = cq_entries;
+
+    struct uring* r = (struct uring*)calloc(1, sizeof(struct uring));
+    if (r == NULL) {
+        return NULL;
+    }
+
+    r->fd = syscall(__NR_io_uring_setup, entries, &p);
+    if (r->fd < 0) {
+        free(r);
+        return NULL;
+    }
+
+    // Multishot poll and poll updates appeared in the same kernel release as resource tags
+    if (!(p.features & IORING_FEAT_NODROP) || !(p.features & IORING_FEAT_RSRC_TAGS)) {
+        uring_free(r);
+        return NULL;
+    }
+
+    r->sq_entries = p.sq_entries;
+    r->sq_size = p.sq_off.array + p.sq_entries * sizeof(unsigned);
+    r->cq_size = p.cq_off.cqes + p.cq_entries * sizeof(struct io_uring_cqe);
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        if (r->cq_size > r->sq_size) r->sq_size = r->cq_size;
+    }
+
+    r->sq_ptr = mmap(NULL, r->sq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, r->fd, IORING_OFF_SQ_RING);
+    if (r->sq_ptr == MAP_FAILED) {
+        uring_free(r);
+        return NULL;
+    }
+
+    if (p.features & IORING_FEAT_SINGLE_MMAP) {
+        r->cq_ptr = r->sq_ptr;
+    } else {
+        r->cq_ptr = mmap(NULL, r->cq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, r->fd, IORING_OFF_CQ_RING);
+        if (r->cq_ptr == MAP_FAILED) {
+            uring_free(r);
+            return NULL;
+        }
+    }
+
+    r->sqes_size = p.sq_entries * sizeof(struct io_uring_sqe);
+    r->sqes = (struct io_uring_sqe*)mmap(NULL, r->sqes_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, r->fd, IORING_OFF_SQES);
+    if (r->sqes == MAP_FAILED) {
+        uring_free(r);
+        return NULL;
+    }
+
+    r->sq_head = (unsigned*)((char*)r->sq_ptr + p.sq_off.head);
+    r->sq_tail = (unsigned*)((char*)r->sq_ptr + p.sq_off.tail);
+    r->sq_mask = (unsigned*)((char*)r->sq_ptr + p.sq_off.ring_mask);
+    r->sq_array = (unsigned*)((char*)r->sq_ptr + p.sq_off.array);
+    r->cq_head = (unsigned*)((char*)r->cq_ptr + p.cq_off.head);
+    r->cq_tail = (unsigned*)((char*)r->cq_ptr + p.cq_off.tail);
+    r->cq_mask = (unsigned*)((char*)r->cq_ptr + p.cq_off.ring_mask);
+    r->cqes = (struct io_uring_cqe*)((char*)r->cq_ptr + p.cq_off.cqes);
+    return r;
+}
+
+static inline int sq_pending(struct uring* r) {
+    return *r->sq_tail != __atomic_load_n(r->sq_head, __ATOMIC_ACQUIRE);
+}
+
+// Producers are serialized by the Java side; the kernel consumes only published entries
+static struct io_uring_sqe* get_sqe(struct uring* r) {
+    unsigned tail = *r->sq_tail;
+    if (tail - __atomic_load_n(r->sq_head, __ATOMIC_ACQUIRE) >= r->sq_entries) {
+        // Submission queue is full: hand the pending entries over to the kernel
+        uring_enter(r->fd, r->sq_entries, 0, 0);
+        if (tail - __atomic_load_n(r->sq_head, __ATOMIC_ACQUIRE) >= r->sq_entries) {
+            return NULL;
+        }
+    }
+
+    unsigned index = tail & *r->sq_mask;
+    struct io_uring_sqe* sqe = &r->sqes[index];
+    memset(sqe, 0, sizeof(struct io_uring_sqe));
+    r->sq_array[index] = index;
+    return sqe;
+}
+
+static inline void commit_sqe(struct uring* r) {
+    __atomic_store_n(r->sq_tail, *r->sq_tail + 1, __ATOMIC_RELEASE);
+}
+
+
+JNIEXPORT jlong JNICALL
+Java_one_nio_net_UringSelector_uringCreate(JNIEnv* env, jclass cls, jint entries, jint cqEntries) {
+    return (jlong)(intptr_t)uring_create(entries, cqEntries);
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringDestroy(JNIEnv* env, jclass cls, jlong ring) {
+    uring_free((struct uring*)(intptr_t)ring);
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringProbe(JNIEnv* env, jclass cls) {
+    struct uring* r = uring_create(4, 8);
+    if (r == NULL) {
+        return JNI_FALSE;
+    }
+    uring_free(r);
+    return JNI_TRUE;
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollAdd(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong data, jint events, jboolean multishot) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe != NULL) {
+        sqe->opcode = IORING_OP_POLL_ADD;
+        sqe->fd = fd;
+        sqe->poll32_events = events;
+        sqe->len = multishot ? IORING_POLL_ADD_MULTI : 0;
+        sqe->user_data = data;
+        commit_sqe(r);
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollUpdate(JNIEnv* env, jclass cls, jlong ring, jlong data, jint events, jlong tag) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe != NULL) {
+        sqe->opcode = IORING_OP_POLL_REMOVE;
+        sqe->fd = -1;
+        sqe->addr = data;
+        sqe->poll32_events = events;
+        sqe->len = IORING_POLL_UPDATE_EVENTS;
+        sqe->user_data = tag;
+        commit_sqe(r);
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollRemove(JNIEnv* env, jclass cls, jlong ring, jlong data, jlong tag) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe != NULL) {
+        sqe->opcode = IORING_OP_POLL_REMOVE;
+        sqe->fd = -1;
+        sqe->addr = data;
+        sqe->user_data = tag;
+        commit_sqe(r);
+    }
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringRecv(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong buf, jint count, jlong data) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe == NULL) {
+        return JNI_FALSE;
+    }
+    sqe->opcode = IORING_OP_RECV;
+    sqe->fd = fd;
+    sqe->addr = (__u64)buf;
+    sqe->len = count;
+    sqe->user_data = data;
+    commit_sqe(r);
+    return JNI_TRUE;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringSend(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong buf, jint count, jint flags, jlong data) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe == NULL) {
+        return JNI_FALSE;
+    }
+    sqe->opcode = IORING_OP_SEND;
+    sqe->fd = fd;
+    sqe->addr = (__u64)buf;
+    sqe->len = count;
+    // With MSG_WAITALL the kernel retries short sends on a stream socket by itself
+    sqe->msg_flags = flags | MSG_NOSIGNAL | MSG_WAITALL;
+    sqe->user_data = data;
+    commit_sqe(r);
+    return JNI_TRUE;
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringCancel(JNIEnv* env, jclass cls, jlong ring, jlong data, jlong tag) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    struct io_uring_sqe* sqe = get_sqe(r);
+    if (sqe != NULL) {
+        sqe->opcode = IORING_OP_ASYNC_CANCEL;
+        sqe->fd = -1;
+        sqe->addr = data;
+        sqe->user_data = tag;
+        commit_sqe(r);
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringThrow(JNIEnv* env, jclass cls, jint error) {
+    throw_io_exception_code(env, error);
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringSubmit(JNIEnv* env, jclass cls, jlong ring) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    if (sq_pending(r)) {
+        uring_enter(r->fd, r->sq_entries, 0, 0);
+    }
+}
+
+// Submits pending requests and, if blocking, waits for at least one completion in a single system call.
+// Completions are copied to the buffer as (user_data, res, flags) triples.
+JNIEXPORT jint JNICALL
+Java_one_nio_net_UringSelector_uringWait(JNIEnv* env, jclass cls, jlong ring, jlong buf, jint count, jlong spinNanos, jboolean block) {
+    struct uring* r = (struct uring*)(intptr_t)ring;
+    unsigned head = *r->cq_head;
+    unsigned tail = __atomic_load_n(r->cq_tail, __ATOMIC_ACQUIRE);
+
+    if (head == tail && block) {
+        if (spinNanos > 0) {
+            // Completions are visible in shared memory, so spinning needs no system calls
+            if (sq_pending(r)) uring_enter(r->fd, r->sq_entries, 0, 0);
+            jlong deadline = nanoTime() + spinNanos;
+            while ((tail = __atomic_load_n(r->cq_tail, __ATOMIC_ACQUIRE)) == head && nanoTime() < deadline);
+        }
+        if (tail == head) {
+            if (uring_enter(r->fd, r->sq_entries, 1, IORING_ENTER_GETEVENTS) < 0 && errno != EINTR) {
+                return -1;
+            }
+            tail = __atomic_load_n(r->cq_tail, __ATOMIC_ACQUIRE);
+        }
+    } else if (sq_pending(r)) {
+        uring_enter(r->fd, r->sq_entries, 0, 0);
+        tail = __atomic_load_n(r->cq_tail, __ATOMIC_ACQUIRE);
+    }
+
+    unsigned mask = *r->cq_mask;
+    unsigned n = tail - head;
+    if (n > (unsigned)count) n = count;
+
+    char* events = (char*)(intptr_t)buf;
+    unsigned i;
+    for (i = 0; i < n; i++) {
+        struct io_uring_cqe* cqe = &r->cqes[(head + i) & mask];
+        *(jlong*)(events + i * URING_EVENT_SIZE) = (jlong)cqe->user_data;
+        *(jint*)(events + i * URING_EVENT_SIZE + 8) = cqe->res;
+        *(jint*)(events + i * URING_EVENT_SIZE + 12) = cqe->flags;
+    }
+    __atomic_store_n(r->cq_head, head + n, __ATOMIC_RELEASE);
+
+    *(jlong*)(events - URING_HEADER_SIZE) = nanoTime();
+    return n;
+}
+
+#else
+
+// Kernel headers without io_uring: the backend reports itself as unsupported
+
+JNIEXPORT jlong JNICALL
+Java_one_nio_net_UringSelector_uringCreate(JNIEnv* env, jclass cls, jint entries, jint cqEntries) {
+    return 0;
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringDestroy(JNIEnv* env, jclass cls, jlong ring) {
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringProbe(JNIEnv* env, jclass cls) {
+    return JNI_FALSE;
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollAdd(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong data, jint events, jboolean multishot) {
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollUpdate(JNIEnv* env, jclass cls, jlong ring, jlong data, jint events, jlong tag) {
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringPollRemove(JNIEnv* env, jclass cls, jlong ring, jlong data, jlong tag) {
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringRecv(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong buf, jint count, jlong data) {
+    return JNI_FALSE;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_one_nio_net_UringSelector_uringSend(JNIEnv* env, jclass cls, jlong ring, jint fd, jlong buf, jint count, jint flags, jlong data) {
+    return JNI_FALSE;
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringCancel(JNIEnv* env, jclass cls, jlong ring, jlong data, jlong tag) {
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringThrow(JNIEnv* env, jclass cls, jint error) {
+    throw_io_exception_code(env, error);
+}
+
+JNIEXPORT void JNICALL
+Java_one_nio_net_UringSelector_uringSubmit(JNIEnv* env, jclass cls, jlong ring) {
+}
+
+JNIEXPORT jint JNICALL
+Java_one_nio_net_UringSelector_uringWait(JNIEnv* env, jclass cls, jlong ring, jlong buf, jint count, jlong spinNanos, jboolean block) {
+    return -1;
+}
+
+#endif
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.pool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free counterpart of {@link Pool} with the same borrow/return contract.
+ * <p>
+ * Idle objects live in a concurrent deque; each thread also remembers the object it returned last
+ * and tries to take it back first, so that a thread usually gets the same connection without
+ * touching shared state. Threads are parked only when the pool is exhausted.
+ * <p>
+ * Both pools implement {@link ObjectPool}, so callers may work with either of them.
+ */
+public abstract class ConcurrentPool<T> implements ObjectPool<T> {
+    private static final int FREE = 0;
+    private static final int BUSY = 1;
+    private static final int REMOVED = 2;
+
+    protected volatile boolean closed;
+    protected volatile boolean keepEmpty;
+    protected volatile boolean fifo;
+    protected int initialCount;
+    protected volatile int maxCount;
+    protected volatile int timeout;
+
+    private final ConcurrentLinkedDeque<Entry<T>> idle = new ConcurrentLinkedDeque<>();
+    private final ConcurrentHashMap<T, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private volatile ThreadLocal<Entry<T>> lastReturned = new ThreadLocal<>();
+    private final AtomicInteger createdCount = new AtomicInteger();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    protected ConcurrentPool(int initialCount, int maxCount, int timeout) {
+        this.initialCount = initialCount;
+        this.maxCount = maxCount;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void close() {
+        closed = keepEmpty = true;
+        // Threads may still hold the last returned entries; drop the whole ThreadLocal with them
+        lastReturned = new ThreadLocal<>();
+        invalidateAll();
+    }
+
+    @Override
+    public String name() {
+        return "Pool";
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public abstract T createObject() throws PoolException;
+
+    public void destroyObject(T object) {
+        // Nothing to do by default
+    }
+
+    @Override
+    public final T borrowObject() throws PoolException, InterruptedException {
+        T object = pollIdle();
+        if (object != null) {
+            return object;
+        }
+
+        for (long timeLimit = 0; ; ) {
+            if (closed) {
+                throw new PoolException(name() + " is closed");
+            }
+
+            // If capacity permits, create a new object
+            int count = createdCount.get();
+            if (count < maxCount) {
+                if (createdCount.compareAndSet(count, count + 1)) {
+                    return create();
+                }
+                continue;
+            }
+
+            // Wait up to timeout ms until there is an object to borrow or an empty place in the pool
+            long currentTime = System.currentTimeMillis();
+            if (timeLimit == 0) {
+                timeLimit = currentTime + timeout;
+            } else if (currentTime >= timeLimit) {
+                timeouts.incrementAndGet();
+                // The signal might have been addressed to us; pass it on
+                if (idleCount.get() > 0) signalWaiter();
+                throw new PoolException(name() + " borrowObject timed out");
+            }
+
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            waitingThreads.incrementAndGet();
+            try {
+                // Re-check after publishing ourselves to avoid a lost wakeup
+                if ((object = pollIdle()) != null || createdCount.get() < maxCount || closed) {
+                    if (object != null) return object;
+                    continue;
+                }
+                if (timeLimit > currentTime) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeLimit - currentTime));
+                } else {
+                    // Zero timeout: wait until signalled, like Object.wait(0)
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } finally {
+                waitingThreads.decrementAndGet();
+                waiters.remove(current);
+            }
+
+            if ((object = pollIdle()) != null) {
+                return object;
+            }
+        }
+    }
+
+    @Override
+    public final void returnObject(T object) {
+        Entry<T> entry = entries.get(object);
+        if (entry == null || keepEmpty) {
+            invalidateObject(object);
+            return;
+        }
+
+        idleCount.incrementAndGet();
+        entry.state.set(FREE);
+        if (!fifo) {
+            lastReturned.set(entry);
+        }
+        if (entry.queued.compareAndSet(false, true)) {
+            if (fifo) idle.addLast(entry); else idle.addFirst(entry);
+        }
+
+        if (keepEmpty) {
+            // The pool has been closed concurrently
+            invalidateIdle();
+        } else if (waitingThreads.get() > 0) {
+            signalWaiter();
+        }
+    }
+
+    @Override
+    public final void invalidateObject(T object) {
+        Entry<T> entry = entries.remove(object);
+        if (entry != null) {
+            entry.state.set(REMOVED);
+            if (lastReturned.get() == entry) {
+                lastReturned.remove();
+            }
+        }
+        decreaseCount();
+        destroyObject(object);
+    }
+
+    // Close all active connections
+    @Override
+    public final void invalidateAll() {
+        invalidateIdle();
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    public int getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    public int getTimeouts() {
+        return timeouts.get();
+    }
+
+    // Initialize the pool with the given number of prepared objects
+    protected final void initialize() {
+        try {
+            for (int i = 0; i < initialCount; i++) {
+                T object = createObject();
+                createdCount.incrementAndGet();
+                Entry<T> entry = register(object);
+                idleCount.incrementAndGet();
+                entry.state.set(FREE);
+                entry.queued.set(true);
+                idle.addLast(entry);
+            }
+        } catch (PoolException e) {
+            // Leave the pool uninitialized
+        }
+    }
+
+    private T create() throws PoolException {
+        try {
+            T object = createObject();
+            register(object);
+            return object;
+        } catch (Throwable e) {
+            decreaseCount();
+            throw e;
+        }
+    }
+
+    private Entry<T> register(T object) {
+        Entry<T> entry = new Entry<>(object);
+        entries.put(object, entry);
+        return entry;
+    }
+
+    private T pollIdle() {
+        ThreadLocal<Entry<T>> lastReturned = this.lastReturned;
+        Entry<T> entry = lastReturned.get();
+        if (entry != null) {
+            // The hint is consumed either way, so the thread does not keep a reference to a pooled object
+            lastReturned.remove();
+            if (entry.state.compareAndSet(FREE, BUSY)) {
+                idleCount.decrementAndGet();
+                return entry.object;
+            }
+        }
+
+        while ((entry = idle.pollFirst()) != null) {
+            // Clear the flag before taking the entry, so that a concurrent return re-queues it
+            entry.queued.set(false);
+            if (entry.state.compareAndSet(FREE, BUSY)) {
+                idleCount.decrementAndGet();
+                return entry.object;
+            }
+        }
+        return null;
+    }
+
+    private void invalidateIdle() {
+        for (Entry<T> entry; (entry = idle.pollFirst()) != null; ) {
+            entry.queued.set(false);
+            if (entry.state.compareAndSet(FREE, REMOVED)) {
+                idleCount.decrementAndGet();
+                entries.remove(entry.object);
+                createdCount.decrementAndGet();
+                destroyObject(entry.object);
+            }
+        }
+    }
+
+    private void decreaseCount() {
+        createdCount.decrementAndGet();
+        if (waitingThreads.get() > 0) signalWaiter();
+    }
+
+    private void signalWaiter() {
+        Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private static final class Entry<T> {
+        final T object;
+        final AtomicInteger state = new AtomicInteger(BUSY);
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        Entry(T object) {
+            this.object = object;
+        }
+    }
+}
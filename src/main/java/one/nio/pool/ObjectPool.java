@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.pool;
+
+import java.io.Closeable;
+
+/**
+ * Borrow/return contract shared by {@link Pool} and {@link ConcurrentPool}
+ */
+public interface ObjectPool<T> extends Closeable {
+    String name();
+
+    boolean isClosed();
+
+    T borrowObject() throws PoolException, InterruptedException;
+
+    void returnObject(T object);
+
+    void invalidateObject(T object);
+
+    void invalidateAll();
+
+    @Override
+    void close();
+}
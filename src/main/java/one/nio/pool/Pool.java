@@ -16,10 +16,9 @@
 
 package one.nio.pool;
 
-import java.io.Closeable;
 import java.util.LinkedList;
 
-public abstract class Pool<T> extends LinkedList<T> implements Closeable {
+public abstract class Pool<T> extends LinkedList<T> implements ObjectPool<T> {
     protected boolean closed;
     protected boolean keepEmpty;
     protected boolean fifo;
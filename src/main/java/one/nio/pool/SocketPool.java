@@ -23,7 +23,7 @@ import one.nio.net.Proxy;
 import one.nio.net.Socket;
 import one.nio.net.SslContext;
 
-public class SocketPool extends Pool<Socket> implements SocketPoolMXBean {
+public class SocketPool extends ConcurrentPool<Socket> implements SocketPoolMXBean {
     protected String host;
     protected int port;
     protected int readTimeout;
@@ -65,24 +65,9 @@ public class SocketPool extends Pool<Socket> implements SocketPoolMXBean {
         return "SocketPool[" + host + ':' + port + ']';
     }
 
-    @Override
-    public int getTimeouts() {
-        return timeouts;
-    }
-
-    @Override
-    public int getWaitingThreads() {
-        return waitingThreads;
-    }
-
     @Override
     public int getBusyCount() {
-        return createdCount - size();
-    }
-
-    @Override
-    public int getIdleCount() {
-        return size();
+        return getCreatedCount() - getIdleCount();
     }
 
     @Override
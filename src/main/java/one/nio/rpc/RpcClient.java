@@ -20,11 +20,8 @@ import one.nio.net.ConnectionString;
 import one.nio.net.Socket;
 import one.nio.pool.SocketPool;
 import one.nio.rpc.stream.RpcStreamImpl;
-import one.nio.serial.CalcSizeStream;
-import one.nio.serial.DataStream;
 import one.nio.serial.DeserializeStream;
 import one.nio.serial.Repository;
-import one.nio.serial.SerializeStream;
 import one.nio.serial.Serializer;
 import one.nio.serial.SerializerNotFoundException;
 
@@ -32,15 +29,21 @@ import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 public class RpcClient extends SocketPool implements InvocationHandler {
     protected static final byte[][] uidLocks = new byte[64][0];
 
     private final StackTraceElement remoteMarkerElement;
+    private final int multiplexConnections;
+    private volatile RpcMultiplexer multiplexer;
 
     public RpcClient(ConnectionString conn) {
         super(conn);
 
+        this.multiplexConnections = conn.getIntParam("multiplexConnections", 2);
+
         this.remoteMarkerElement = new StackTraceElement(
                 "<<remote>>", // pseudo class name
                 "remoteCall",
@@ -64,12 +67,7 @@ public class RpcClient extends SocketPool implements InvocationHandler {
             try {
                 response = new DeserializeStream((byte[]) rawResponse).readObject();
             } catch (SerializerNotFoundException e) {
-                long uid = e.getUid();
-                synchronized (uidLockFor(uid)) {
-                    if (!Repository.hasSerializer(uid)) {
-                        Repository.provideSerializer(requestSerializer(uid));
-                    }
-                }
+                loadSerializer(e.getUid());
                 continue;
             }
 
@@ -87,6 +85,113 @@ public class RpcClient extends SocketPool implements InvocationHandler {
         }
     }
 
+    /**
+     * Sends the request over one of the multiplexed connections without blocking.
+     * Many calls may be in flight on the same connection at once; the server is free to complete them
+     * out of order. The returned future is completed in the selector thread of the client,
+     * so heavy or blocking continuations should use the *Async methods of CompletableFuture.
+     * RPC streams are not supported in this mode.
+     */
+    public CompletableFuture<Object> invokeAsync(Object request) {
+        return invokeAsync(request, readTimeout);
+    }
+
+    public CompletableFuture<Object> invokeAsync(Object request, int timeout) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            RpcMultiplexer multiplexer = multiplexer();
+            int requestId = multiplexer.nextRequestId();
+            RpcOutputStream out = RpcOutputStream.acquire();
+            try {
+                out.writePacket(request, requestId);
+            } catch (Exception e) {
+                out.release();
+                throw e;
+            }
+            multiplexer.send(requestId, out.toQueueItem(), timeout).whenComplete((rawResponse, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    completeAsync(result, request, timeout, rawResponse);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void completeAsync(CompletableFuture<Object> result, Object request, int timeout, byte[] rawResponse) {
+        Object response;
+        try {
+            response = new DeserializeStream(rawResponse).readObject();
+        } catch (SerializerNotFoundException e) {
+            // Serializer exchange is a blocking call; it must not run in the selector thread
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    loadSerializer(e.getUid());
+                    completeAsync(result, request, timeout, rawResponse);
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+            return;
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        if (!(response instanceof Exception)) {
+            result.complete(response);
+        } else if (response instanceof SerializerNotFoundException) {
+            long uid = ((SerializerNotFoundException) response).getUid();
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    provideSerializer(Repository.requestSerializer(uid));
+                    invokeAsync(request, timeout).whenComplete((r, ex) -> {
+                        if (ex != null) {
+                            result.completeExceptionally(ex);
+                        } else {
+                            result.complete(r);
+                        }
+                    });
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } else {
+            result.completeExceptionally((Exception) response);
+        }
+    }
+
+    private RpcMultiplexer multiplexer() throws IOException {
+        RpcMultiplexer multiplexer = this.multiplexer;
+        if (multiplexer == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("RpcClient closed");
+                }
+                if ((multiplexer = this.multiplexer) == null) {
+                    this.multiplexer = multiplexer = new RpcMultiplexer(this, multiplexConnections);
+                }
+            }
+        }
+        return multiplexer;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+
+        RpcMultiplexer multiplexer;
+        synchronized (this) {
+            multiplexer = this.multiplexer;
+        }
+        if (multiplexer != null) {
+            multiplexer.close();
+        }
+    }
+
     private void addLocalStack(Throwable e, Object remoteRequest) {
         StackTraceElement[] remoteStackTrace = e.getStackTrace();
         StackTraceElement[] localStackTrace = new Exception().getStackTrace();
@@ -125,6 +230,14 @@ public class RpcClient extends SocketPool implements InvocationHandler {
         invokeServiceRequest(new RemoteCall(Repository.provide, serializer));
     }
 
+    protected void loadSerializer(long uid) throws Exception {
+        synchronized (uidLockFor(uid)) {
+            if (!Repository.hasSerializer(uid)) {
+                Repository.provideSerializer(requestSerializer(uid));
+            }
+        }
+    }
+
     protected Serializer requestSerializer(long uid) throws Exception {
         return (Serializer) invokeServiceRequest(new RemoteCall(Repository.request, uid));
     }
@@ -139,19 +252,27 @@ public class RpcClient extends SocketPool implements InvocationHandler {
     }
 
     private Object invokeRaw(Object request, int timeout) throws Exception {
-        byte[] buffer = serialize(request);
+        RpcOutputStream out = RpcOutputStream.acquire();
+        try {
+            out.writePacket(request, RpcPacket.NO_REQUEST_ID);
+            return invokeRaw(out.array(), out.count(), timeout);
+        } finally {
+            out.release();
+        }
+    }
 
+    private Object invokeRaw(byte[] buffer, int length, int timeout) throws Exception {
         Socket socket = borrowObject();
         try {
             try {
-                sendRequest(socket, buffer, timeout);
+                sendRequest(socket, buffer, length, timeout);
             } catch (SocketTimeoutException e) {
                 throw e;
             } catch (IOException e) {
                 // Stale connection? Retry on a fresh socket
                 destroyObject(socket);
                 socket = createObject();
-                sendRequest(socket, buffer, timeout);
+                sendRequest(socket, buffer, length, timeout);
             }
 
             int responseSize = RpcPacket.getSize(buffer);
@@ -176,33 +297,20 @@ public class RpcClient extends SocketPool implements InvocationHandler {
             }
 
             RpcPacket.checkReadSize(responseSize, socket);
-            if (responseSize > 4) buffer = new byte[responseSize];
-            socket.readFully(buffer, 0, responseSize);
+            byte[] response = new byte[responseSize];
+            socket.readFully(response, 0, responseSize);
 
             returnObject(socket);
-            return buffer;
+            return response;
         } catch (Throwable e) {
             invalidateObject(socket);
             throw e;
         }
     }
 
-    private byte[] serialize(Object request) throws IOException {
-        CalcSizeStream css = new CalcSizeStream();
-        css.writeObject(request);
-        int requestSize = css.count();
-        RpcPacket.checkWriteSize(requestSize);
-
-        byte[] buffer = new byte[requestSize + 4];
-        DataStream ds = css.hasCycles() ? new SerializeStream(buffer, css.capacity()) : new DataStream(buffer);
-        ds.writeInt(requestSize);
-        ds.writeObject(request);
-        return buffer;
-    }
-
-    private void sendRequest(Socket socket, byte[] buffer, int timeout) throws IOException {
+    private void sendRequest(Socket socket, byte[] buffer, int length, int timeout) throws IOException {
         if (timeout != 0) socket.setTimeout(timeout);
-        socket.writeFully(buffer, 0, buffer.length);
+        socket.writeFully(buffer, 0, length);
         socket.readFully(buffer, 0, 4);
     }
 }
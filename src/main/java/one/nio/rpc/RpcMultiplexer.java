@@ -0,0 +1,227 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.rpc;
+
+import one.nio.net.Session;
+import one.nio.net.Socket;
+import one.nio.pool.PoolException;
+import one.nio.server.SelectorThread;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sends multiplexed RPC requests over a few shared connections to the same server.
+ * Every request is tagged with an id, so responses may arrive in any order.
+ * All connections are served by a single selector thread, which completes the pending calls.
+ */
+final class RpcMultiplexer {
+    // One daemon thread checks timeouts for all multiplexed clients
+    private static final Timer timeoutTimer = new Timer("RpcMultiplexer timeouts", true);
+
+    private final RpcClient client;
+    private final AtomicReferenceArray<Connection> connections;
+    private final SelectorThread selectorThread;
+    private final TimeoutTask timeoutTask;
+    private final Map<Integer, PendingCall> pendingCalls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private volatile boolean closed;
+
+    RpcMultiplexer(RpcClient client, int connectionCount) throws IOException {
+        this.client = client;
+        this.connections = new AtomicReferenceArray<>(connectionCount);
+
+        this.selectorThread = new SelectorThread(0, -1, null, client.name() + " multiplexer");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        // Timeouts are checked with 10% accuracy of the default read timeout
+        long period = Math.max(10, client.getReadTimeout() / 10);
+        this.timeoutTask = new TimeoutTask();
+        timeoutTimer.schedule(timeoutTask, period, period);
+    }
+
+    int nextRequestId() {
+        return nextRequestId.getAndIncrement() & Integer.MAX_VALUE;
+    }
+
+    CompletableFuture<byte[]> send(int requestId, Session.QueueItem packet, int timeout) {
+        PendingCall call = null;
+        try {
+            Connection connection = connection();
+            call = new PendingCall(connection, timeout == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeout);
+            pendingCalls.put(requestId, call);
+            connection.write(packet);
+            return call;
+        } catch (Exception e) {
+            if (call == null) {
+                // The packet has not reached the session queue
+                packet.release();
+                call = new PendingCall(null, 0);
+            } else {
+                pendingCalls.remove(requestId);
+            }
+            call.completeExceptionally(e);
+            return call;
+        }
+    }
+
+    void close() {
+        closed = true;
+        timeoutTask.cancel();
+        selectorThread.shutdown();
+
+        synchronized (this) {
+            for (int i = 0; i < connections.length(); i++) {
+                Connection connection = connections.get(i);
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+
+        failPendingCalls(null, new SocketException("RpcClient closed"));
+    }
+
+    private Connection connection() throws IOException, PoolException {
+        int index = (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+        // Connections are published through the atomic array, so the fast path sees them fully constructed
+        Connection connection = connections.get(index);
+        if (connection != null && connection.socket().isOpen()) {
+            return connection;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                throw new SocketException("RpcClient closed");
+            }
+
+            connection = connections.get(index);
+            if (connection == null || !connection.socket().isOpen()) {
+                Socket socket = client.createObject();
+                socket.setBlocking(false);
+                // Reads are driven by the selector; a read timeout would make JavaSocket poll on empty reads
+                socket.setTimeout(0);
+                connection = new Connection(socket);
+                selectorThread.selector.register(connection);
+                connections.set(index, connection);
+            }
+            return connection;
+        }
+    }
+
+    private void complete(int requestId, byte[] response) {
+        PendingCall call = pendingCalls.remove(requestId);
+        if (call != null) {
+            call.complete(response);
+        }
+    }
+
+    private void failPendingCalls(Connection connection, Exception e) {
+        for (Iterator<PendingCall> iterator = pendingCalls.values().iterator(); iterator.hasNext(); ) {
+            PendingCall call = iterator.next();
+            if (connection == null || call.connection == connection) {
+                iterator.remove();
+                call.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class PendingCall extends CompletableFuture<byte[]> {
+        final Connection connection;
+        final long deadline;
+
+        PendingCall(Connection connection, long deadline) {
+            this.connection = connection;
+            this.deadline = deadline;
+        }
+    }
+
+    private class Connection extends Session {
+        private final byte[] header = new byte[8];
+        private byte[] buffer = header;
+        private int bytesRead;
+        private int responseSize;
+        private int requestId;
+
+        Connection(Socket socket) {
+            super(socket);
+        }
+
+        @Override
+        protected void processRead(byte[] unusedBuffer) throws Exception {
+            while (true) {
+                if (responseSize == 0) {
+                    if ((bytesRead += super.read(header, bytesRead, 8 - bytesRead)) < 8) {
+                        return;
+                    }
+
+                    int size = RpcPacket.getSize(header);
+                    if ((size & RpcPacket.MULTIPLEXED) == 0) {
+                        throw new IOException("Unexpected RPC packet from " + getRemoteHost());
+                    }
+                    responseSize = size & ~RpcPacket.MULTIPLEXED;
+                    RpcPacket.checkReadSize(responseSize, socket);
+
+                    requestId = RpcPacket.getInt(header, 4);
+                    buffer = new byte[responseSize];
+                    bytesRead = 0;
+                }
+
+                if ((bytesRead += super.read(buffer, bytesRead, responseSize - bytesRead)) < responseSize) {
+                    return;
+                }
+
+                complete(requestId, buffer);
+                buffer = header;
+                bytesRead = 0;
+                responseSize = 0;
+            }
+        }
+
+        // Not synchronized: pending calls must be completed without holding the session lock
+        @Override
+        public void close() {
+            super.close();
+            failPendingCalls(this, new SocketException("Connection closed: " + getRemoteHost()));
+        }
+    }
+
+    private class TimeoutTask extends TimerTask {
+        @Override
+        public void run() {
+            long currentTime = System.currentTimeMillis();
+            for (Iterator<PendingCall> iterator = pendingCalls.values().iterator(); iterator.hasNext(); ) {
+                PendingCall call = iterator.next();
+                if (call.deadline <= currentTime) {
+                    iterator.remove();
+                    call.completeExceptionally(new SocketTimeoutException("RPC call timed out"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.rpc;
+
+import one.nio.net.Session;
+import one.nio.serial.CalcSizeStream;
+import one.nio.serial.DataStream;
+import one.nio.serial.SerializationContext;
+import one.nio.serial.SerializeStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static one.nio.util.JavaInternals.byteArrayOffset;
+
+/**
+ * Growable pooled buffer for outgoing RPC packets.
+ * By default, a packet is serialized in a single pass, and the size header is filled in afterwards.
+ * With -Done.nio.rpc.twoPassSerialization=true the size is calculated first as before,
+ * which allows serializing graphs without shared references without tracking object identity.
+ */
+final class RpcOutputStream extends SerializeStream {
+    static final boolean TWO_PASS_SERIALIZATION = Boolean.getBoolean("one.nio.rpc.twoPassSerialization");
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+    private static final AtomicReferenceArray<RpcOutputStream> pool = new AtomicReferenceArray<>(64);
+
+    private RpcOutputStream() {
+        super(new byte[INITIAL_CAPACITY]);
+    }
+
+    static RpcOutputStream acquire() {
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < 4; i++) {
+            int slot = (start + i) & (pool.length() - 1);
+            RpcOutputStream stream = pool.getAndSet(slot, null);
+            if (stream != null) {
+                return stream;
+            }
+        }
+        return new RpcOutputStream();
+    }
+
+    void release() {
+        if (array.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+
+        offset = address;
+        context = null;
+
+        int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < 4; i++) {
+            int slot = (start + i) & (pool.length() - 1);
+            if (pool.get(slot) == null && pool.compareAndSet(slot, null, this)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Serializes the object as an RPC packet: 4-byte size, then 4-byte request id if the request is multiplexed.
+     * @return the size of the serialized object without the header
+     */
+    int writePacket(Object obj, int requestId) throws IOException {
+        int headerSize = requestId == RpcPacket.NO_REQUEST_ID ? 4 : 8;
+        offset = address + headerSize;
+
+        if (TWO_PASS_SERIALIZATION) {
+            CalcSizeStream css = new CalcSizeStream();
+            css.writeObject(obj);
+            RpcPacket.checkWriteSize(css.count());
+            ensureCapacity(headerSize + css.count());
+
+            DataStream ds = css.hasCycles() ? new SerializeStream(array, css.capacity()) : new DataStream(array);
+            ds.skipBytes(headerSize);
+            ds.writeObject(obj);
+            offset = address + ds.count();
+        } else {
+            context = new SerializationContext();
+            writeObject(obj);
+            context = null;
+        }
+
+        int size = count() - headerSize;
+        if (requestId == RpcPacket.NO_REQUEST_ID) {
+            putInt(0, size);
+        } else {
+            putInt(0, size | RpcPacket.MULTIPLEXED);
+            putInt(4, requestId);
+        }
+        return size;
+    }
+
+    // Returns the queue item that gives the buffer back to the pool once the packet is written to the socket
+    Session.QueueItem toQueueItem() {
+        return new Session.ArrayQueueItem(array, 0, count(), 0, this::release);
+    }
+
+    private void putInt(int position, int value) {
+        array[position] = (byte) (value >>> 24);
+        array[position + 1] = (byte) (value >>> 16);
+        array[position + 2] = (byte) (value >>> 8);
+        array[position + 3] = (byte) value;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > array.length) {
+            long position = offset - address;
+            array = Arrays.copyOf(array, Math.max(capacity, array.length * 2));
+            address = byteArrayOffset;
+            limit = address + array.length;
+            offset = address + position;
+        }
+    }
+
+    @Override
+    protected long alloc(int size) throws IOException {
+        long currentOffset = offset;
+        if ((offset = currentOffset + size) > limit) {
+            RpcPacket.checkWriteSize((int) (offset - address));
+            ensureCapacity((int) (offset - address));
+        }
+        return currentOffset;
+    }
+}
@@ -36,6 +36,10 @@ class RpcPacket {
             (byte) STREAM_HEADER
     };
 
+    // Multiplexed packets have the high bit of the size set and a 4-byte request id after the size
+    static final int MULTIPLEXED = 0x80000000;
+    static final int NO_REQUEST_ID = -1;
+
     static final int HTTP_GET = 'G' << 24 | 'E' << 16 | 'T' << 8 | ' ';
     static final int HTTP_POST = 'P' << 24 | 'O' << 16 | 'S' << 8 | 'T';
     static final int HTTP_HEAD = 'H' << 24 | 'E' << 16 | 'A' << 8 | 'D';
@@ -45,7 +49,11 @@ class RpcPacket {
     }
 
     static int getSize(byte[] buffer) {
-        return buffer[0] << 24 | (buffer[1] & 0xff) << 16 | (buffer[2] & 0xff) << 8 | (buffer[3] & 0xff);
+        return getInt(buffer, 0);
+    }
+
+    static int getInt(byte[] buffer, int offset) {
+        return buffer[offset] << 24 | (buffer[offset + 1] & 0xff) << 16 | (buffer[offset + 2] & 0xff) << 8 | (buffer[offset + 3] & 0xff);
     }
 
     static void checkWriteSize(int size) throws IOException {
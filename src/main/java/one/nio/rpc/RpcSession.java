@@ -30,11 +30,8 @@ import one.nio.net.Session;
 import one.nio.net.Socket;
 import one.nio.rpc.stream.RpcStreamImpl;
 import one.nio.rpc.stream.StreamProxy;
-import one.nio.serial.CalcSizeStream;
-import one.nio.serial.DataStream;
 import one.nio.serial.DeserializeStream;
 import one.nio.serial.Repository;
-import one.nio.serial.SerializeStream;
 import one.nio.serial.SerializerNotFoundException;
 import one.nio.util.Utf8;
 
@@ -42,6 +39,10 @@ public class RpcSession<S, M> extends Session {
     protected static final Logger logSerialize = LoggerFactory.getLogger("one-serializer-logger");
     protected static final int BUFFER_SIZE = 8000;
     protected static final byte HTTP_REQUEST_UID = (byte) Repository.get(Request.class).uid();
+    protected static final int NO_REQUEST_ID = RpcPacket.NO_REQUEST_ID;
+
+    // Id of the multiplexed request being processed by the current thread, or NO_REQUEST_ID
+    private static final ThreadLocal<int[]> currentRequestId = ThreadLocal.withInitial(() -> new int[]{NO_REQUEST_ID});
 
     protected final RpcServer<S> server;
     protected InetSocketAddress peer;
@@ -49,6 +50,7 @@ public class RpcSession<S, M> extends Session {
     protected byte[] buffer;
     protected int bytesRead;
     protected int requestSize;
+    protected int requestId;
     protected long requestStartTime;
 
     public RpcSession(Socket socket, RpcServer<S> server) {
@@ -74,13 +76,23 @@ public class RpcSession<S, M> extends Session {
             }
 
             requestSize = RpcPacket.getSize(buffer);
-            if (requestSize >= RpcPacket.HTTP_GET && RpcPacket.isHttpHeader(requestSize)) {
+            if (requestSize < 0) {
+                // Multiplexed request: the response may be sent out of order, tagged with the request id
+                if (bytesRead < 8 && (bytesRead += super.read(buffer, bytesRead, 8 - bytesRead)) < 8) {
+                    return;
+                }
+                requestSize &= ~RpcPacket.MULTIPLEXED;
+                this.requestId = RpcPacket.getInt(buffer, 4);
+                bytesRead = 0;
+            } else if (requestSize >= RpcPacket.HTTP_GET && RpcPacket.isHttpHeader(requestSize)) {
                 // Looks like HTTP request - try to parse as HTTP
                 if ((requestSize = readHttpHeader()) < 0) {
                     // HTTP headers not yet complete
                     return;
                 }
+                this.requestId = NO_REQUEST_ID;
             } else {
+                this.requestId = NO_REQUEST_ID;
                 bytesRead = 0;
             }
 
@@ -103,6 +115,16 @@ public class RpcSession<S, M> extends Session {
         this.bytesRead = 0;
         this.requestSize = 0;
 
+        int[] currentRequestId = RpcSession.currentRequestId.get();
+        currentRequestId[0] = requestId;
+        try {
+            processRequest(buffer, requestSize, meta);
+        } finally {
+            currentRequestId[0] = NO_REQUEST_ID;
+        }
+    }
+
+    private void processRequest(byte[] buffer, int requestSize, M meta) throws Exception {
         final Object request;
         try {
             request = new DeserializeStream(buffer, requestSize).readObject();
@@ -122,7 +144,7 @@ public class RpcSession<S, M> extends Session {
         // Perform the invocation
         if (isAsyncRequest(request)) {
             try {
-                server.asyncExecute(new AsyncRequest(request, meta));
+                server.asyncExecute(new AsyncRequest(request, meta, requestId));
                 server.incRequestsProcessed();
             } catch (RejectedExecutionException e) {
                 handleRejectedExecution(e, request);
@@ -197,28 +219,32 @@ public class RpcSession<S, M> extends Session {
     }
 
     protected int writeResponse(Object response) throws IOException {
-        CalcSizeStream css = new CalcSizeStream();
-        css.writeObject(response);
-        int responseSize = css.count();
-        RpcPacket.checkWriteSize(responseSize);
-        byte[] buffer = new byte[responseSize + 4];
-
+        RpcOutputStream out = RpcOutputStream.acquire();
+        int responseSize;
         try {
-            DataStream ds = css.hasCycles() ? new SerializeStream(buffer, css.capacity()) : new DataStream(buffer);
-            ds.writeInt(responseSize);
-            ds.writeObject(response);
+            responseSize = out.writePacket(response, currentRequestId.get()[0]);
         } catch (IOException | RuntimeException e) {
+            out.release();
             logSerialize.warn("Exception while serializing: {}", response, e);
             return writeResponse(new NotSerializableException(e.getMessage()));
         }
-        super.write(buffer, 0, buffer.length);
+        super.write(out.toQueueItem());
         return responseSize;
     }
 
     @SuppressWarnings("unchecked")
     protected void streamCommunicate(StreamProxy streamProxy) throws IOException {
-        if (selector != null) {
-            selector.disable(this);
+        if (currentRequestId.get()[0] != NO_REQUEST_ID) {
+            // The socket is shared by other requests and cannot be switched to the blocking stream mode
+            writeResponse(new IOException("Streams are not supported over a multiplexed connection"));
+            return;
+        }
+
+        // Wait until the selector thread leaves process(), which may keep reading in edge-triggered mode
+        synchronized (this) {
+            if (selector != null) {
+                selector.disable(this);
+            }
         }
 
         socket.setBlocking(true);
@@ -268,18 +294,24 @@ public class RpcSession<S, M> extends Session {
     private class AsyncRequest implements Runnable {
         private final Object request;
         private final M meta;
+        private final int requestId;
 
-        AsyncRequest(Object request, M meta) {
+        AsyncRequest(Object request, M meta, int requestId) {
             this.request = request;
             this.meta = meta;
+            this.requestId = requestId;
         }
 
         @Override
         public void run() {
+            int[] currentRequestId = RpcSession.currentRequestId.get();
+            currentRequestId[0] = requestId;
             try {
                 invoke(request, meta);
             } catch (Throwable e) {
                 handleException(e);
+            } finally {
+                currentRequestId[0] = NO_REQUEST_ID;
             }
         }
     }
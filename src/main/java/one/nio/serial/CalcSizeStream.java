@@ -89,6 +89,14 @@ public class CalcSizeStream extends SerializationContext implements ObjectOutput
         count += 8;
     }
 
+    public void writeVarInt(int v) {
+        count += DataStream.varLongSize(v);
+    }
+
+    public void writeVarLong(long v) {
+        count += DataStream.varLongSize(v);
+    }
+
     @Override
     public void writeFloat(float v) {
         count += 4;
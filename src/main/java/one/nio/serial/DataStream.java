@@ -116,6 +116,26 @@ public class DataStream implements ObjectInput, ObjectOutput {
         unsafe.putLong(array, offset, Long.reverseBytes(v));
     }
 
+    // Zigzag LEB128: values close to zero take fewer bytes, from 1 up to 10.
+    // int and long share the same encoding
+    public void writeVarInt(int v) throws IOException {
+        writeVarLong(v);
+    }
+
+    public void writeVarLong(long v) throws IOException {
+        long n = (v << 1) ^ (v >> 63);
+        long offset = alloc(varLongSize(v));
+        for (; (n & ~0x7fL) != 0; n >>>= 7) {
+            unsafe.putByte(array, offset++, (byte) (n | 0x80));
+        }
+        unsafe.putByte(array, offset, (byte) n);
+    }
+
+    public static int varLongSize(long v) {
+        long n = (v << 1) ^ (v >> 63);
+        return (63 - Long.numberOfLeadingZeros(n | 1)) / 7 + 1;
+    }
+
     public void writeFloat(float v) throws IOException {
         writeInt(Float.floatToRawIntBits(v));
     }
@@ -258,6 +278,22 @@ public class DataStream implements ObjectInput, ObjectOutput {
         return Long.reverseBytes(unsafe.getLong(array, offset));
     }
 
+    public int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    public long readVarLong() throws IOException {
+        long n = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            n |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return (n >>> 1) ^ -(n & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
     public float readFloat() throws IOException {
         return Float.intBitsToFloat(readInt());
     }
@@ -351,6 +387,11 @@ public class DataStream implements ObjectInput, ObjectOutput {
         // Nothing to do
     }
 
+    // Registers an object decoded without readObject(), such as a projection, in a new reference slot
+    void registerNext(Object obj) {
+        register(obj);
+    }
+
     public Closeable newScope() {
         return null;
     }
@@ -96,6 +96,14 @@ public class DeserializeStream extends DataStream {
         }
     }
 
+    @Override
+    void registerNext(Object obj) {
+        if (++contextSize >= context.length) {
+            context = Arrays.copyOf(context, context.length * 2);
+        }
+        register(obj);
+    }
+
     @Override
     public Closeable newScope() {
         return new Closeable() {
@@ -38,9 +38,14 @@ public class FieldDescriptor {
 
     // TODO: revert publicity
     public FieldDescriptor(Field ownField, Field parentField, int index) {
+        this(ownField, parentField, index, false);
+    }
+
+    // varint applies to int and long fields only, see Repository.VARINT_ENCODING
+    public FieldDescriptor(Field ownField, Field parentField, int index, boolean varint) {
         Renamed renamed = ownField.getAnnotation(Renamed.class);
         this.nameDescriptor = renamed == null ? ownField.getName() : ownField.getName() + '|' + renamed.from();
-        this.typeDescriptor = new TypeDescriptor(ownField.getType());
+        this.typeDescriptor = new TypeDescriptor(ownField.getType(), varint);
         assignField(ownField, parentField, index);
     }
 
@@ -80,8 +85,12 @@ public class FieldDescriptor {
     }
 
     public static FieldDescriptor read(ObjectInput in) throws IOException {
+        return read(in, false);
+    }
+
+    static FieldDescriptor read(ObjectInput in, boolean varint) throws IOException {
         String nameDescriptor = in.readUTF();
-        TypeDescriptor typeDescriptor = TypeDescriptor.read(in);
+        TypeDescriptor typeDescriptor = TypeDescriptor.read(in, varint);
         return new FieldDescriptor(nameDescriptor, typeDescriptor);
     }
 
@@ -16,6 +16,7 @@
 
 package one.nio.serial;
 
+import one.nio.gen.BytecodeGenerator;
 import one.nio.serial.gen.Delegate;
 import one.nio.serial.gen.DelegateGenerator;
 import one.nio.serial.gen.StubGenerator;
@@ -25,11 +26,13 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GeneratedSerializer extends Serializer {
@@ -42,19 +45,42 @@ public class GeneratedSerializer extends Serializer {
     private FieldDescriptor[] fds;
     private FieldDescriptor[] defaultFields;
     private Delegate delegate;
+    private volatile ConcurrentHashMap<Class<?>, ProjectionClass> projections;  // created lazily
 
     GeneratedSerializer(Class cls) {
         super(cls);
+        initOwnFields();
+        this.delegate = DelegateGenerator.instantiate(cls, fds, code());
+    }
 
+    // Uses the delegate code generated ahead of time by SerializerPrecompiler.
+    // The code is rejected if the class has changed since, i.e. its serializer got another uid
+    GeneratedSerializer(Class<?> cls, long uid, byte[] code) {
+        super(cls);
+        initOwnFields();
+        generateUid();
+        if (this.uid != uid) {
+            throw new IllegalArgumentException("Precompiled serializer for " + descriptor + " is stale: expected UID "
+                    + Long.toHexString(uid) + ", actual " + Long.toHexString(this.uid));
+        }
+        this.delegate = DelegateGenerator.instantiate(cls, fds, code);
+    }
+
+    private void initOwnFields() {
         Field[] ownFields = getSerializableFields();
+        boolean varint = isVarint();
         this.fds = new FieldDescriptor[ownFields.length / 2];
         for (int i = 0; i < ownFields.length; i += 2) {
-            fds[i / 2] = new FieldDescriptor(ownFields[i], ownFields[i + 1], i / 2);
+            fds[i / 2] = new FieldDescriptor(ownFields[i], ownFields[i + 1], i / 2, varint);
         }
         this.defaultFields = new FieldDescriptor[0];
 
         checkFieldTypes();
-        this.delegate = DelegateGenerator.instantiate(cls, fds, code());
+    }
+
+    // Whether int and long fields are written as zigzag varints, see VarintGeneratedSerializer
+    boolean isVarint() {
+        return false;
     }
 
     @Override
@@ -71,7 +97,7 @@ public class GeneratedSerializer extends Serializer {
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         this.fds = new FieldDescriptor[in.readUnsignedShort()];
         for (int i = 0; i < fds.length; i++) {
-            fds[i] = FieldDescriptor.read(in);
+            fds[i] = FieldDescriptor.read(in, isVarint());
         }
 
         try {
@@ -111,6 +137,13 @@ public class GeneratedSerializer extends Serializer {
         return new DelegateGenerator().generate(cls, fds, defaultFields);
     }
 
+    // Same code as code(), but the class name depends only on uid
+    // and therefore never clashes with delegates generated at run time
+    byte[] precompiledCode() {
+        String className = "sun/reflect/Delegate$" + Long.toHexString(uid) + '_' + cls.getSimpleName();
+        return new DelegateGenerator().generate(cls, fds, defaultFields, className);
+    }
+
     @Override
     public void calcSize(Object obj, CalcSizeStream css) throws IOException {
         delegate.calcSize(obj, css);
@@ -136,6 +169,58 @@ public class GeneratedSerializer extends Serializer {
         delegate.toJson(obj, builder);
     }
 
+    /**
+     * Returns a lazy view of the object serialized in the stream at its current position,
+     * which is right after the serializer uid written by {@code writeObject()}.
+     * The view is a public interface whose no-arg methods {@code foo()}, {@code getFoo()} or {@code isFoo()}
+     * return the serialized field {@code foo}. Only the fields actually requested,
+     * and object fields preceding them, are decoded; see {@link Projection}.
+     */
+    @SuppressWarnings("unchecked")
+    public <P> P project(Class<P> view, DataStream in) {
+        ConcurrentHashMap<Class<?>, ProjectionClass> projections = this.projections;
+        ProjectionClass projection = projections == null ? null : projections.get(view);
+        if (projection == null) {
+            projection = generateProjection(view);
+        }
+
+        try {
+            return (P) projection.constructor.newInstance(in, projection.layout);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate projection", e);
+        }
+    }
+
+    private synchronized ProjectionClass generateProjection(Class<?> view) {
+        if (projections == null) {
+            projections = new ConcurrentHashMap<>();
+        }
+
+        ProjectionClass projection = projections.get(view);
+        if (projection == null) {
+            byte[] code = new DelegateGenerator().generateProjection(view, fds);
+            try {
+                Constructor<?> constructor = BytecodeGenerator.INSTANCE.defineClass(code)
+                        .getDeclaredConstructor(DataStream.class, int[].class);
+                projection = new ProjectionClass(constructor, DelegateGenerator.projectionLayout(fds));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+            projections.put(view, projection);
+        }
+        return projection;
+    }
+
+    private static class ProjectionClass {
+        final Constructor<?> constructor;
+        final int[] layout;
+
+        ProjectionClass(Constructor<?> constructor, int[] layout) {
+            this.constructor = constructor;
+            this.layout = layout;
+        }
+    }
+
     @Override
     public Object fromJson(JsonReader in) throws IOException, ClassNotFoundException {
         return delegate.fromJson(in);
@@ -161,6 +246,9 @@ public class GeneratedSerializer extends Serializer {
         for (FieldDescriptor fd : fds) {
             builder.append(" - Name: ").append(fd.name()).append('\n');
             builder.append("   Type: ").append(fd.type()).append('\n');
+            if (fd.type().isVarint()) {
+                builder.append("   Encoding: varint\n");
+            }
             if (fd.parentField() != null) {
                 builder.append("   Parent: ").append(fd.parentField().getName()).append('\n');
             }
@@ -107,6 +107,14 @@ public class ObjectInputChannel extends DataStream {
         context[contextSize] = obj;
     }
 
+    @Override
+    void registerNext(Object obj) {
+        if (++contextSize >= context.length) {
+            context = context.length == 0 ? new Object[INITIAL_CAPACITY] : Arrays.copyOf(context, context.length * 2);
+        }
+        register(obj);
+    }
+
     @Override
     protected long alloc(int size) throws IOException {
         int available = (int) (limit - offset);
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+import java.io.IOException;
+
+import static one.nio.util.JavaInternals.unsafe;
+
+/**
+ * Base class of generated projections, see {@link GeneratedSerializer#project(Class, DataStream)}.
+ * <p>
+ * A projection reads fields of a serialized object directly from a {@link DataStream} on demand.
+ * Primitive fields are read in place; the stream is advanced only as far as needed to locate
+ * the requested field, using the same rules as {@code skip()}. Offsets of the passed fields are cached,
+ * as well as object fields, which have to be deserialized to be skipped, and decoded varint fields.
+ * <p>
+ * The underlying memory must stay valid and unchanged while the projection is used.
+ * A projection is not thread-safe.
+ */
+public abstract class Projection {
+    public static final int VARINT = -1;
+
+    private final DataStream in;
+    private final int[] sizes;  // data size of every field, 0 for object fields, VARINT for varint fields
+    private final long[] offsets;
+    private final Object[] objects;
+    private long[] varints;
+    private int next;
+
+    protected Projection(DataStream in, int[] sizes) {
+        this.in = in;
+        this.sizes = sizes;
+        this.offsets = new long[sizes.length];
+        this.objects = new Object[sizes.length];
+
+        // Takes the reference slot of the projected object, so that back references to it resolve to the projection
+        in.registerNext(this);
+    }
+
+    private long position(int field) {
+        try {
+            for (; next <= field; next++) {
+                offsets[next] = in.offset;
+                int size = sizes[next];
+                if (size > 0) {
+                    in.alloc(size);
+                } else if (size == VARINT) {
+                    if (varints == null) varints = new long[sizes.length];
+                    varints[next] = in.readVarLong();
+                } else {
+                    objects[next] = in.readObject();
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        return offsets[field];
+    }
+
+    protected final Object getObject(int field) {
+        position(field);
+        return objects[field];
+    }
+
+    protected final boolean getBoolean(int field) {
+        return unsafe.getBoolean(in.array, position(field));
+    }
+
+    protected final byte getByte(int field) {
+        return unsafe.getByte(in.array, position(field));
+    }
+
+    protected final short getShort(int field) {
+        return Short.reverseBytes(unsafe.getShort(in.array, position(field)));
+    }
+
+    protected final char getChar(int field) {
+        return Character.reverseBytes(unsafe.getChar(in.array, position(field)));
+    }
+
+    protected final int getInt(int field) {
+        return Integer.reverseBytes(unsafe.getInt(in.array, position(field)));
+    }
+
+    protected final long getLong(int field) {
+        return Long.reverseBytes(unsafe.getLong(in.array, position(field)));
+    }
+
+    protected final int getVarInt(int field) {
+        return (int) getVarLong(field);
+    }
+
+    protected final long getVarLong(int field) {
+        position(field);
+        return varints[field];
+    }
+
+    protected final float getFloat(int field) {
+        return Float.intBitsToFloat(getInt(field));
+    }
+
+    protected final double getDouble(int field) {
+        return Double.longBitsToDouble(getLong(field));
+    }
+}
@@ -18,14 +18,17 @@ package one.nio.serial;
 
 import one.nio.gen.BytecodeGenerator;
 import one.nio.mgt.Management;
+import one.nio.serial.gen.DelegateGenerator;
 import one.nio.util.Base64;
 import one.nio.util.JavaInternals;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
@@ -64,6 +67,7 @@ public class Repository {
     public static final int FIELD_SERIALIZATION = 8;
     public static final int SYNTHETIC_FIELDS = 16;
     public static final int PROVIDE_GET_FIELD = 32;
+    public static final int VARINT_ENCODING = 64;  // int and long fields are written as zigzag varints
 
     public static final int ARRAY_STUBS      = 1;
     public static final int COLLECTION_STUBS = 2;
@@ -136,6 +140,12 @@ public class Repository {
         addBootstrap(new SerializerSerializer(SerializerSerializer.class));
         addBootstrap(new SerializerSerializer(JavaTimeSerializer.class));
 
+        // Not a bootstrap serializer on purpose: peers unaware of varint encoding
+        // get SerializerNotFoundException instead of misreading the schema
+        SerializerSerializer varintSerializer = new SerializerSerializer(VarintGeneratedSerializer.class);
+        varintSerializer.generateUid();
+        provideSerializer(varintSerializer);
+
         classMap.put(int.class, classMap.get(Integer.class));
         classMap.put(long.class, classMap.get(Long.class));
         classMap.put(boolean.class, classMap.get(Boolean.class));
@@ -162,6 +172,16 @@ public class Repository {
         setOptions("java.net.InetSocketAddress$InetSocketAddressHolder", INLINE);
 
         Management.registerMXBean(new SerializationMXBeanImpl(), "one.nio.serial:type=Serialization");
+
+        if (Boolean.getBoolean("one.nio.serial.precompiled")) {
+            // A broken precompiled jar must not break Repository initialization:
+            // serializers not loaded here will be generated at run time
+            try {
+                loadPrecompiled(Repository.class.getClassLoader());
+            } catch (Throwable e) {
+                log.error("Cannot load precompiled serializers", e);
+            }
+        }
     }
 
     private static void addBootstrap(Serializer serializer) {
@@ -335,6 +355,108 @@ public class Repository {
         return loadSnapshot(snapshot);
     }
 
+    // Registers serializers generated by SerializerPrecompiler found in all jars visible to the loader
+    public static int loadPrecompiled(ClassLoader loader) {
+        int count = 0;
+        try {
+            Enumeration<URL> resources = loader.getResources(SerializerPrecompiler.RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                try (InputStream in = url.openStream()) {
+                    ByteArrayOutputStream data = new ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    for (int bytes; (bytes = in.read(buf)) > 0; ) {
+                        data.write(buf, 0, bytes);
+                    }
+                    count += loadPrecompiled(data.toByteArray(), loader);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot load precompiled serializers", e);
+        }
+
+        log.info("Loaded {} precompiled serializers", count);
+        return count;
+    }
+
+    public static int loadPrecompiled(byte[] data, ClassLoader loader) throws IOException {
+        DeserializeStream in = new DeserializeStream(data);
+        if (in.readLong() != SerializerPrecompiler.MAGIC) {
+            throw new IOException("Invalid precompiled serializers format");
+        }
+
+        String mode = in.readUTF();
+        if (!mode.equals(DelegateGenerator.generationMode())) {
+            log.warn("Precompiled serializers are ignored: generated in {} mode, current mode is {}",
+                    mode, DelegateGenerator.generationMode());
+            return 0;
+        }
+
+        int count = 0;
+        for (int i = in.readInt(); i > 0; i--) {
+            String className = in.readUTF();
+            int options = in.readInt();
+            String descriptor = in.readUTF();
+            long uid = in.readLong();
+            FieldDescriptor[] fds = new FieldDescriptor[in.readUnsignedShort()];
+            for (int j = 0; j < fds.length; j++) {
+                fds[j] = FieldDescriptor.read(in);
+            }
+            byte[] code = new byte[in.readInt()];
+            in.readFully(code);
+
+            try {
+                if (loadPrecompiled(Class.forName(className, false, loader), uid, options, code)) {
+                    count++;
+                }
+            } catch (ClassNotFoundException e) {
+                log.warn("Precompiled serializer for {} is ignored: class not found", descriptor);
+            } catch (IllegalArgumentException e) {
+                log.warn("{}; precompiled fields: {}", e.getMessage(), Arrays.toString(fds));
+            }
+        }
+        return count;
+    }
+
+    private static boolean loadPrecompiled(Class<?> cls, long uid, int options, byte[] code) {
+        synchronized (classLockFor(cls)) {
+            if (classMap.containsKey(cls)) {
+                return false;
+            }
+
+            applyAnnotations(cls);
+
+            Integer localOptions = serializationOptions.get(cls);
+            if ((localOptions == null ? 0 : localOptions) != options) {
+                log.warn("Precompiled serializer for {} is ignored: serialization options have changed", cls.getName());
+                return false;
+            }
+
+            try {
+                provideSerializer(hasOptions(cls, VARINT_ENCODING)
+                        ? new VarintGeneratedSerializer(cls, uid, code)
+                        : new GeneratedSerializer(cls, uid, code));
+                return true;
+            } catch (LinkageError e) {
+                // The delegate class has been defined by a previous load; generate a new one at run time
+                log.warn("Precompiled serializer for {} is ignored: {}", cls.getName(), e.toString());
+                return false;
+            }
+        }
+    }
+
+    private static void applyAnnotations(Class<?> cls) {
+        SerialOptions options = cls.getAnnotation(SerialOptions.class);
+        if (options != null) {
+            serializationOptions.put(cls, options.value());
+        }
+
+        Renamed renamed = cls.getAnnotation(Renamed.class);
+        if (renamed != null) {
+            renamedClasses.put(renamed.from(), cls);
+        }
+    }
+
     private static Serializer generateFor(Class<?> cls) {
         if ((cls.getModifiers() & ENUM) != 0 && cls.getSuperclass() != Enum.class) {
             // This is a customized enum constant.
@@ -355,15 +477,7 @@ public class Repository {
                 anonymousClasses.incrementAndGet();
             }
 
-            SerialOptions options = cls.getAnnotation(SerialOptions.class);
-            if (options != null) {
-                serializationOptions.put(cls, options.value());
-            }
-
-            Renamed renamed = cls.getAnnotation(Renamed.class);
-            if (renamed != null) {
-                renamedClasses.put(renamed.from(), cls);
-            }
+            applyAnnotations(cls);
 
             try {
                 if (cls.isArray()) {
@@ -387,6 +501,8 @@ public class Repository {
                 } else if (Serializable.class.isAssignableFrom(cls)) {
                     if (cls.getName().startsWith("java.time.") && JavaInternals.findMethod(cls, "writeReplace") != null) {
                         serializer = new JavaTimeSerializer(cls);
+                    } else if (hasOptions(cls, VARINT_ENCODING)) {
+                        serializer = new VarintGeneratedSerializer(cls);
                     } else {
                         serializer = new GeneratedSerializer(cls);
                     }
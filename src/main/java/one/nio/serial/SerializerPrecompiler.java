@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+import one.nio.serial.gen.DelegateGenerator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Generates serializers ahead of time, so that an application does not spend its startup
+ * on bytecode generation. For every given class the tool stores the serializer metadata
+ * (class descriptor, uid, field descriptors) along with the delegate bytecode
+ * in a jar resource {@value #RESOURCE}. Put the jar on the classpath and call
+ * {@link Repository#loadPrecompiled(ClassLoader)}, or start with {@code -Done.nio.serial.precompiled=true}.
+ * <p>
+ * The delegate code is produced by the same generator as at run time. It is used only if the
+ * local class still has the same serializer uid, the same serialization options
+ * and the same generation mode; otherwise the serializer is generated at run time as usual.
+ * <p>
+ * Usage: {@code java -cp <classpath> one.nio.serial.SerializerPrecompiler <output.jar> <class>...}
+ */
+public class SerializerPrecompiler {
+    public static final String RESOURCE = "META-INF/one-nio/serializers.bin";
+
+    static final long MAGIC = 0x5345524941314F4EL;
+
+    public static byte[] generate(Class<?>... classes) throws IOException {
+        List<GeneratedSerializer> serializers = new ArrayList<>();
+        for (Class<?> cls : classes) {
+            Serializer<?> serializer = Repository.get(cls);
+            if (serializer instanceof GeneratedSerializer && serializer.origin == Origin.LOCAL) {
+                serializers.add((GeneratedSerializer) serializer);
+            } else {
+                Repository.log.info("Skipping {}: it does not use a generated serializer", cls.getName());
+            }
+        }
+
+        PersistStream out = new PersistStream();
+        out.writeLong(MAGIC);
+        out.writeUTF(DelegateGenerator.generationMode());
+        out.writeInt(serializers.size());
+
+        for (GeneratedSerializer serializer : serializers) {
+            Integer options = Repository.serializationOptions.get(serializer.cls);
+            byte[] code = serializer.precompiledCode();
+
+            out.writeUTF(serializer.cls.getName());
+            out.writeInt(options == null ? 0 : options);
+            serializer.writeExternal(out);
+            out.writeInt(code.length);
+            out.write(code);
+        }
+
+        return out.toByteArray();
+    }
+
+    public static void writeJar(OutputStream out, Class<?>... classes) throws IOException {
+        byte[] data = generate(classes);
+        try (JarOutputStream jar = new JarOutputStream(out)) {
+            jar.putNextEntry(new ZipEntry(RESOURCE));
+            jar.write(data);
+            jar.closeEntry();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java " + SerializerPrecompiler.class.getName() + " <output.jar> <class>...");
+            System.exit(1);
+        }
+
+        Class<?>[] classes = new Class<?>[args.length - 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = Class.forName(args[i + 1]);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(args[0])) {
+            writeJar(out, classes);
+        }
+    }
+}
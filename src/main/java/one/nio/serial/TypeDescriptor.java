@@ -40,12 +40,18 @@ public class TypeDescriptor {
 
     private Class cls;
     private String descriptor;
+    private boolean varint;
 
     TypeDescriptor(Class cls) {
         this.cls = cls;
         this.descriptor = classDescriptor(cls);
     }
 
+    TypeDescriptor(Class<?> cls, boolean varint) {
+        this(cls);
+        this.varint = varint && (cls == int.class || cls == long.class);
+    }
+
     TypeDescriptor(String descriptor) {
         this.descriptor = descriptor;
     }
@@ -55,10 +61,19 @@ public class TypeDescriptor {
         return descriptor;
     }
 
+    public boolean isVarint() {
+        return varint;
+    }
+
     public static TypeDescriptor read(ObjectInput in) throws IOException {
+        return read(in, false);
+    }
+
+    // Varint encoding is not a part of the type descriptor: it is implied by the serializer class
+    static TypeDescriptor read(ObjectInput in, boolean varint) throws IOException {
         int primitiveIndex = in.readByte();
         if (primitiveIndex >= 0) {
-            return new TypeDescriptor(PRIMITIVE_CLASSES[primitiveIndex]);
+            return new TypeDescriptor(PRIMITIVE_CLASSES[primitiveIndex], varint);
         } else {
             return new TypeDescriptor(in.readUTF());
         }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+/**
+ * GeneratedSerializer for classes with {@link Repository#VARINT_ENCODING} option:
+ * int and long fields are written as zigzag varints.
+ * The encoding is implied by the serializer class rather than by the field types,
+ * so that peers unaware of it fail to resolve the serializer instead of misreading the schema.
+ */
+class VarintGeneratedSerializer extends GeneratedSerializer {
+    private static final long serialVersionUID = 1L;
+
+    VarintGeneratedSerializer(Class<?> cls) {
+        super(cls);
+    }
+
+    VarintGeneratedSerializer(Class<?> cls, long uid, byte[] code) {
+        super(cls, uid, code);
+    }
+
+    @Override
+    boolean isVarint() {
+        return true;
+    }
+}
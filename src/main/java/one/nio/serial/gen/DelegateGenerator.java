@@ -85,9 +85,17 @@ public class DelegateGenerator  {
         return instantiate(cls, fds, new DelegateGenerator().generate(cls, fds, defaultFields));
     }
 
+    // Generated code depends on the mode, so code generated ahead of time is valid only in the same mode
+    public static String generationMode() {
+        return factory.mode();
+    }
+
     public byte[] generate(Class cls, FieldDescriptor[] fds, FieldDescriptor[] defaultFields) {
         String className = "sun/reflect/Delegate" + index.getAndIncrement() + '_' + cls.getSimpleName();
+        return generate(cls, fds, defaultFields, className);
+    }
 
+    public byte[] generate(Class<?> cls, FieldDescriptor[] fds, FieldDescriptor[] defaultFields, String className) {
         ClassWriter cv = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
         cv.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, strategy.getBaseClassName(),
                 new String[]{"one/nio/serial/gen/Delegate"});
@@ -106,6 +114,118 @@ public class DelegateGenerator  {
         return cv.toByteArray();
     }
 
+    // Generates a class implementing the view interface on top of one.nio.serial.Projection.
+    // Every abstract no-arg method of the view, like foo(), getFoo() or isFoo(), reads the stream field foo
+    public byte[] generateProjection(Class<?> view, FieldDescriptor[] fds) {
+        if (!view.isInterface()) {
+            throw new IllegalArgumentException(view.getName() + " is not an interface");
+        }
+
+        String className = "one/nio/serial/gen/Projection" + index.getAndIncrement() + '_' + view.getSimpleName();
+
+        ClassWriter cv = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cv.visit(V1_6, ACC_PUBLIC | ACC_FINAL, className, null, "one/nio/serial/Projection",
+                new String[]{Type.getInternalName(view)});
+
+        MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "<init>", "(Lone/nio/serial/DataStream;[I)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, "one/nio/serial/Projection", "<init>", "(Lone/nio/serial/DataStream;[I)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (Method m : view.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers()) || !Modifier.isAbstract(m.getModifiers())) {
+                continue;
+            }
+
+            int field = findProjectedField(m, fds);
+            Class<?> sourceClass = fds[field].type().resolve();
+            FieldType srcType = FieldType.valueOf(sourceClass);
+            Class<?> returnType = m.getReturnType();
+
+            // Object fields may be returned as any supertype of the field type, so that the CHECKCAST below never fails
+            if (srcType == FieldType.Object ? !returnType.isAssignableFrom(sourceClass) : returnType != sourceClass) {
+                throw new IllegalArgumentException("Type of " + m + " does not match field type " + sourceClass.getName());
+            }
+
+            mv = cv.visitMethod(ACC_PUBLIC | ACC_FINAL, m.getName(), Type.getMethodDescriptor(m), null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            emitInt(mv, field);
+            String getter = fds[field].type().isVarint() ? "getVar" + srcType.name() : "get" + srcType.name();
+            mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/Projection", getter, "(I)" + srcType.sig, false);
+            if (srcType == FieldType.Object && returnType != Object.class) {
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(returnType));
+            }
+            mv.visitInsn(Type.getType(returnType).getOpcode(IRETURN));
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        cv.visitEnd();
+        return cv.toByteArray();
+    }
+
+    // Data sizes of the stream fields in the form expected by Projection
+    public static int[] projectionLayout(FieldDescriptor[] fds) {
+        int[] sizes = new int[fds.length];
+        for (int i = 0; i < fds.length; i++) {
+            sizes[i] = fds[i].type().isVarint() ? Projection.VARINT : FieldType.valueOf(fds[i].type().resolve()).dataSize;
+        }
+        return sizes;
+    }
+
+    private static String readMethod(FieldDescriptor fd, FieldType srcType) {
+        return fd.type().isVarint() ? "readVar" + srcType.name() : srcType.readMethod();
+    }
+
+    private static String writeMethod(FieldDescriptor fd, FieldType srcType) {
+        return fd.type().isVarint() ? "writeVar" + srcType.name() : srcType.writeMethod();
+    }
+
+    private static int findProjectedField(Method m, FieldDescriptor[] fds) {
+        String name = m.getName();
+        if (m.getParameterTypes().length == 0) {
+            String property = null;
+            if (name.startsWith("get") && name.length() > 3) {
+                property = name.substring(3);
+            } else if (name.startsWith("is") && name.length() > 2 && m.getReturnType() == boolean.class) {
+                property = name.substring(2);
+            }
+
+            for (int i = 0; i < fds.length; i++) {
+                if (fieldNameMatches(fds[i], name)) {
+                    return i;
+                }
+            }
+
+            if (property != null) {
+                property = Character.toLowerCase(property.charAt(0)) + property.substring(1);
+                for (int i = 0; i < fds.length; i++) {
+                    if (fieldNameMatches(fds[i], property)) {
+                        return i;
+                    }
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("No serialized field for " + m);
+    }
+
+    // Stream name may be in the form "name|oldName"; the local field may be renamed
+    private static boolean fieldNameMatches(FieldDescriptor fd, String name) {
+        for (String streamName : fd.name().split("\\|")) {
+            if (streamName.equals(name)) {
+                return true;
+            }
+        }
+        return fd.ownField() != null && fd.ownField().getName().equals(name);
+    }
+
     private void generateConstructor(ClassVisitor cv, FieldDescriptor[] fds, String className) {
         MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "<init>", "(Ljava/util/Map;)V", null, null);
         cv.visitField(ACC_PRIVATE | ACC_FINAL, "fields", "Ljava/util/Map;", null, null).visitEnd();
@@ -142,17 +262,17 @@ public class DelegateGenerator  {
             Class sourceClass = fd.type().resolve();
             FieldType srcType = FieldType.valueOf(sourceClass);
 
-            if (srcType != FieldType.Object) {
+            if (srcType != FieldType.Object && !fd.type().isVarint()) {
                 primitiveFieldsSize += srcType.dataSize;
             } else if (isNotSerial(ownField)) {
-                primitiveFieldsSize++;  // 1 byte to encode null reference
+                primitiveFieldsSize++;  // 1 byte to encode null reference or zero varint
             } else {
                 mv.visitVarInsn(ALOAD, 2);
                 mv.visitVarInsn(ALOAD, 1);
                 if (fd.parentField() != null) emitGetSerialField(cls,mv, className, fd.parentField());
                 emitGetSerialField(cls,mv, className, ownField);
                 emitTypeCast(mv, ownField.getType(), sourceClass);
-                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/CalcSizeStream", "writeObject", "(Ljava/lang/Object;)V", false);
+                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/CalcSizeStream", writeMethod(fd, srcType), srcType.writeSignature(), false);
             }
         }
 
@@ -195,7 +315,7 @@ public class DelegateGenerator  {
                 emitTypeCast(mv, ownField.getType(), sourceClass);
             }
 
-            mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", srcType.writeMethod(), srcType.writeSignature(), false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", writeMethod(fd, srcType), srcType.writeSignature(), false);
         }
 
         mv.visitInsn(RETURN);
@@ -251,7 +371,7 @@ public class DelegateGenerator  {
 
             if (isNotSerial(ownField)) {
                 mv.visitVarInsn(ALOAD, 1);
-                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", srcType.readMethod(), srcType.readSignature(), false);
+                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", readMethod(fd, srcType), srcType.readSignature(), false);
                 mv.visitInsn(srcType.convertTo(FieldType.Void));
                 if (isRecord) {
                     generateDefault(mv, ownField);
@@ -261,7 +381,7 @@ public class DelegateGenerator  {
                 if (!isRecord) mv.visitInsn(DUP);
                 if (parentField != null) emitGetSerialField(cls, mv, className, parentField);
                 mv.visitVarInsn(ALOAD, 1);
-                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", srcType.readMethod(), srcType.readSignature(), false);
+                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", readMethod(fd, srcType), srcType.readSignature(), false);
 
                 if (srcType == FieldType.Object) emitTypeCast(mv, Object.class, sourceClass);
                 emitTypeCast(mv, sourceClass, ownField.getType());
@@ -315,7 +435,7 @@ public class DelegateGenerator  {
             Class sourceClass = fd.type().resolve();
             FieldType srcType = FieldType.valueOf(sourceClass);
 
-            if (srcType != FieldType.Object) {
+            if (srcType != FieldType.Object && !fd.type().isVarint()) {
                 skipSize += srcType.dataSize;
             } else {
                 if (skipSize > 0) {
@@ -326,8 +446,13 @@ public class DelegateGenerator  {
                     skipSize = 0;
                 }
                 mv.visitVarInsn(ALOAD, 1);
-                mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", "readObject", "()Ljava/lang/Object;", false);
-                mv.visitInsn(POP);
+                if (srcType == FieldType.Object) {
+                    mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", "readObject", "()Ljava/lang/Object;", false);
+                    mv.visitInsn(POP);
+                } else {
+                    mv.visitMethodInsn(INVOKEVIRTUAL, "one/nio/serial/DataStream", "readVarLong", "()J", false);
+                    mv.visitInsn(POP2);
+                }
             }
         }
 
@@ -33,6 +33,11 @@ abstract class GenerationStrategyFactory {
         GenerationStrategy createStrategy() {
             return instance;
         }
+
+        @Override
+        String mode() {
+            return OLD_MODE;
+        }
     }
 
     static class HandlesFactory extends GenerationStrategyFactory {
@@ -40,10 +45,17 @@ abstract class GenerationStrategyFactory {
         GenerationStrategy createStrategy() {
             return new HandlesStrategy();
         }
+
+        @Override
+        String mode() {
+            return NEW_MODE;
+        }
     }
 
     abstract GenerationStrategy createStrategy();
 
+    abstract String mode();
+
     public static GenerationStrategyFactory createStrategyFactory() {
         String option = System.getProperty(STRATEGY_OPTION);
 
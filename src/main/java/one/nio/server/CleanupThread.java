@@ -17,16 +17,26 @@
 package one.nio.server;
 
 import one.nio.net.Session;
+import one.nio.net.TimingWheel;
 import one.nio.os.BatchThread;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Closes idle and stale sessions.
+ * Every session is scheduled in the {@link TimingWheel} of its selector to be checked once its timeout elapses,
+ * so the thread touches only the sessions whose deadline has come, instead of scanning all of them.
+ */
 public class CleanupThread extends BatchThread {
     private static final Logger log = LoggerFactory.getLogger(CleanupThread.class);
 
     private volatile SelectorThread[] selectors;
     private volatile long keepAlive;
+    private boolean rescheduleAll;
+    private int idleCount;
+    private int staleCount;
+    private long lastReportTime;
 
     public CleanupThread(SelectorThread[] selectors, long keepAlive) {
         super("NIO Cleanup");
@@ -56,15 +66,29 @@ public class CleanupThread extends BatchThread {
     }
 
     public synchronized void update(SelectorThread[] selectors, long keepAlive) {
+        long prevKeepAlive = this.keepAlive;
         this.selectors = selectors;
         setKeepAlive(keepAlive);
+        if (this.keepAlive != prevKeepAlive) {
+            // Existing deadlines were computed for the old keepAlive
+            rescheduleAll = true;
+        }
         notify();
     }
 
-    private synchronized long waitKeepAlive() throws InterruptedException {
-        long keepAlive = this.keepAlive;
-        wait(keepAlive);
-        return keepAlive;
+    // Schedules the first check of a newly registered session
+    public void schedule(SelectorThread selector, Session session) {
+        long interval = session.checkInterval(keepAlive);
+        if (interval > 0) {
+            selector.timers.schedule(session, System.currentTimeMillis() + interval);
+        }
+    }
+
+    private synchronized boolean waitTick() throws InterruptedException {
+        wait(TimingWheel.DEFAULT_TICK);
+        boolean rescheduleAll = this.rescheduleAll;
+        this.rescheduleAll = false;
+        return rescheduleAll;
     }
 
     @Override
@@ -73,33 +97,28 @@ public class CleanupThread extends BatchThread {
 
         while (!isInterrupted()) {
             try {
-                long keepAlive = waitKeepAlive();
-                if (keepAlive == 0) {
-                    continue;
-                }
-
+                boolean rescheduleAll = waitTick();
+                long keepAlive = this.keepAlive;
                 long cleanTime = System.currentTimeMillis();
-                int idleCount = 0;
-                int staleCount = 0;
 
                 for (SelectorThread selector : selectors) {
-                    for (Session session : selector.selector) {
-                        int status = session.checkStatus(cleanTime, keepAlive);
-                        if (status != Session.ACTIVE) {
-                            if (status == Session.IDLE) {
-                                idleCount++;
-                            } else {
-                                staleCount++;
-                            }
-                            session.close();
+                    if (rescheduleAll) {
+                        for (Session session : selector.selector) {
+                            reschedule(selector.timers, session, cleanTime, keepAlive);
                         }
                     }
+
+                    for (Session session = selector.timers.expire(cleanTime); session != null; ) {
+                        Session next = session.nextExpired();
+                        checkSession(selector.timers, session, cleanTime, keepAlive);
+                        session = next;
+                    }
                 }
 
-                if (idleCount + staleCount > 0) {
-                    log.info("{} idle + {} stale sessions closed in {} ms",
-                        idleCount, staleCount, System.currentTimeMillis() - cleanTime
-                    );
+                if (idleCount + staleCount > 0 && cleanTime - lastReportTime >= 1000) {
+                    log.info("{} idle + {} stale sessions closed", idleCount, staleCount);
+                    idleCount = staleCount = 0;
+                    lastReportTime = cleanTime;
                 }
             } catch (InterruptedException e) {
                 break;
@@ -108,4 +127,36 @@ public class CleanupThread extends BatchThread {
             }
         }
     }
+
+    private void checkSession(TimingWheel timers, Session session, long currentTime, long keepAlive) {
+        if (!session.socket().isOpen()) {
+            return;
+        }
+
+        int status = session.checkTimeouts(currentTime, keepAlive);
+        if (status == Session.ACTIVE) {
+            reschedule(timers, session, currentTime, keepAlive);
+            return;
+        }
+
+        if (status == Session.IDLE) {
+            idleCount++;
+        } else {
+            staleCount++;
+        }
+        session.close();
+    }
+
+    private void reschedule(TimingWheel timers, Session session, long currentTime, long keepAlive) {
+        long interval = session.checkInterval(keepAlive);
+        if (interval <= 0) {
+            timers.cancel(session);
+            return;
+        }
+
+        // The next check is due one interval after the last activity
+        long lastAccessTime = session.lastAccessTime();
+        long deadline = lastAccessTime < currentTime ? lastAccessTime + interval : currentTime + interval;
+        timers.schedule(session, deadline);
+    }
 }
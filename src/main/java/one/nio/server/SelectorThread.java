@@ -18,6 +18,7 @@ package one.nio.server;
 
 import one.nio.net.Selector;
 import one.nio.net.Session;
+import one.nio.net.TimingWheel;
 import one.nio.os.Proc;
 import one.nio.os.SchedulingPolicy;
 
@@ -29,14 +30,23 @@ public final class SelectorThread extends PayloadThread {
 
     public final Selector selector;
     public final int dedicatedCpu;
+    public final TimingWheel timers;
+    final int num;
 
     long operations;
     long sessions;
     int maxReady;
 
     public SelectorThread(int num, int dedicatedCpu, SchedulingPolicy schedulingPolicy, String name) throws IOException {
+        this(num, dedicatedCpu, schedulingPolicy, name, Selector.DEFAULT_MAX_EVENTS, 0, false);
+    }
+
+    public SelectorThread(int num, int dedicatedCpu, SchedulingPolicy schedulingPolicy, String name,
+                          int maxEvents, long busyPollNanos, boolean edgeTriggered) throws IOException {
         super(name);
-        this.selector = Selector.create();
+        this.selector = Selector.create(maxEvents, busyPollNanos, edgeTriggered);
+        this.timers = new TimingWheel();
+        this.num = num;
         this.dedicatedCpu = dedicatedCpu;
         setSchedulingPolicy(schedulingPolicy);
     }
@@ -72,6 +82,7 @@ public final class SelectorThread extends PayloadThread {
                     session.handleException(e);
                 }
             }
+            selector.runTasks();
 
             operations++;
             sessions += ready;
@@ -25,7 +25,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import one.nio.mgt.Management;
-import one.nio.net.Selector;
 import one.nio.net.Session;
 import one.nio.net.Socket;
 import one.nio.server.acceptor.Acceptor;
@@ -47,9 +46,12 @@ public class Server implements ServerMXBean {
     protected volatile SelectorThread[] selectors;
     protected boolean useWorkers;
     protected final WorkerPool workers;
+    protected final StealingWorkerPool stealingWorkers;
     protected final CleanupThread cleanup;
     protected boolean closeSessions;
     protected boolean pinAcceptors;
+    protected volatile long writeLowWatermark;
+    protected volatile long writeHighWatermark;
 
     public Server(ServerConfig config) throws IOException {
         this.acceptor = AcceptorFactory.get(config).create(this, config.acceptors);
@@ -58,8 +60,7 @@ public class Server implements ServerMXBean {
         int processors = Runtime.getRuntime().availableProcessors();
         SelectorThread[] selectors = new SelectorThread[config.selectors != 0 ? config.selectors : processors];
         for (int i = 0; i < selectors.length; i++) {
-            String threadName = config.formatSelectorThreadName(i);
-            selectors[i] = new SelectorThread(i, config.affinity ? i % processors : -1, config.schedulingPolicy, threadName);
+            selectors[i] = createSelectorThread(config, i, processors);
             selectors[i].setPriority(config.threadPriority);
         }
         this.selectors = selectors;
@@ -67,16 +68,28 @@ public class Server implements ServerMXBean {
         this.useWorkers = config.maxWorkers > 0;
         this.workers = new WorkerPool(config.minWorkers, useWorkers ? config.maxWorkers : 2, config.queueTime,
                 config.threadPriority, config.schedulingPolicy);
+        this.stealingWorkers = useWorkers && config.workStealing
+                ? new StealingWorkerPool(selectors.length, config.workerQueueCapacity, config.maxWorkers,
+                        config.threadPriority, config.schedulingPolicy)
+                : null;
 
         this.cleanup = new CleanupThread(selectors, config.keepAlive);
 
         this.closeSessions = config.closeSessions;
         this.pinAcceptors = config.pinAcceptors;
+        this.writeLowWatermark = config.writeLowWatermark;
+        this.writeHighWatermark = config.writeHighWatermark;
 
         this.selectorStats = new SelectorStats();
         this.queueStats = new QueueStats();
     }
 
+    private static SelectorThread createSelectorThread(ServerConfig config, int num, int processors) throws IOException {
+        return new SelectorThread(num, config.affinity ? num % processors : -1, config.schedulingPolicy,
+                config.formatSelectorThreadName(num), config.selectorMaxEvents, config.selectorBusyPollMicros * 1000L,
+                config.edgeTriggered);
+    }
+
     public synchronized void reconfigure(ServerConfig config) throws IOException {
         useWorkers = config.maxWorkers > 0;
         if (config.minWorkers > workers.getMaximumPoolSize()) {
@@ -95,8 +108,7 @@ public class Server implements ServerMXBean {
         if (config.selectors > selectors.length) {
             SelectorThread[] newSelectors = Arrays.copyOf(selectors, config.selectors);
             for (int i = selectors.length; i < config.selectors; i++) {
-                String threadName = config.formatSelectorThreadName(i);
-                newSelectors[i] = new SelectorThread(i, config.affinity ? i % processors : -1, config.schedulingPolicy, threadName);
+                newSelectors[i] = createSelectorThread(config, i, processors);
                 newSelectors[i].setPriority(config.threadPriority);
                 newSelectors[i].start();
             }
@@ -106,9 +118,15 @@ public class Server implements ServerMXBean {
         cleanup.update(this.selectors, config.keepAlive);
         closeSessions = config.closeSessions;
         pinAcceptors = config.pinAcceptors;
+        writeLowWatermark = config.writeLowWatermark;
+        writeHighWatermark = config.writeHighWatermark;
     }
 
     public synchronized void start() {
+        if (stealingWorkers != null) {
+            stealingWorkers.start();
+        }
+
         for (SelectorThread selector : selectors) {
             selector.start();
         }
@@ -143,6 +161,9 @@ public class Server implements ServerMXBean {
         }
 
         workers.gracefulShutdown();
+        if (stealingWorkers != null) {
+            stealingWorkers.gracefulShutdown();
+        }
     }
 
     public void registerShutdownHook() {
@@ -162,14 +183,28 @@ public class Server implements ServerMXBean {
 
     public void register(Session session, int acceptorIndex, int acceptorGroupSize) {
         if (pinAcceptors) {
-            getSmallestPinnedSelector(acceptorIndex, acceptorGroupSize).register(session);
+            setWriteWatermarks(session);
+            register(session, getSmallestPinnedSelector(acceptorIndex, acceptorGroupSize));
             return;
         }
         register(session);
     }
 
     public void register(Session session) {
-        getSmallestSelector().register(session);
+        setWriteWatermarks(session);
+        register(session, getSmallestSelector());
+    }
+
+    private void register(Session session, SelectorThread selector) {
+        selector.selector.register(session);
+        cleanup.schedule(selector, session);
+    }
+
+    private void setWriteWatermarks(Session session) {
+        long writeHighWatermark = this.writeHighWatermark;
+        if (writeHighWatermark > 0) {
+            session.setWriteWatermarks(writeLowWatermark, writeHighWatermark);
+        }
     }
 
     /*
@@ -192,35 +227,35 @@ public class Server implements ServerMXBean {
      * Base configuration 1: acceptors = 1, selectors = N. The single acceptor balances sessions across all N selectors randomly.
      * Base configuration 2: acceptors = N, selectors = N. Each acceptor has a single designated selector to serve the sessions.
      */
-    private Selector getSmallestPinnedSelector(int idx, int total) {
-        Selector chosen;
+    private SelectorThread getSmallestPinnedSelector(int idx, int total) {
+        SelectorThread chosen;
         SelectorThread[] selectors = this.selectors;
         if (total >= selectors.length) {
-            chosen = selectors[idx % selectors.length].selector;
+            chosen = selectors[idx % selectors.length];
         } else {
             int q = selectors.length / total;
             if (q * total + idx < selectors.length) {
                 q++;
             }
             if (q == 1) {
-                chosen = selectors[idx].selector;
+                chosen = selectors[idx];
             } else {
                 ThreadLocalRandom r = ThreadLocalRandom.current();
-                Selector a = selectors[r.nextInt(q) * total + idx].selector;
-                Selector b = selectors[r.nextInt(q) * total + idx].selector;
-                chosen = a.size() < b.size() ? a : b;
+                SelectorThread a = selectors[r.nextInt(q) * total + idx];
+                SelectorThread b = selectors[r.nextInt(q) * total + idx];
+                chosen = a.selector.size() < b.selector.size() ? a : b;
             }
         }
         return chosen;
     }
 
-    private Selector getSmallestSelector() {
+    private SelectorThread getSmallestSelector() {
         SelectorThread[] selectors = this.selectors;
 
         ThreadLocalRandom r = ThreadLocalRandom.current();
-        Selector a = selectors[r.nextInt(selectors.length)].selector;
-        Selector b = selectors[r.nextInt(selectors.length)].selector;
-        return a.size() < b.size() ? a : b;
+        SelectorThread a = selectors[r.nextInt(selectors.length)];
+        SelectorThread b = selectors[r.nextInt(selectors.length)];
+        return a.selector.size() < b.selector.size() ? a : b;
     }
 
     public final void incRequestsProcessed() {
@@ -252,12 +287,27 @@ public class Server implements ServerMXBean {
 
     @Override
     public int getWorkers() {
-        return workers.getPoolSize();
+        return stealingWorkers != null ? stealingWorkers.getPoolSize() : workers.getPoolSize();
     }
 
     @Override
     public int getWorkersActive() {
-        return workers.getActiveCount();
+        return stealingWorkers != null ? stealingWorkers.getActiveCount() : workers.getActiveCount();
+    }
+
+    @Override
+    public long getWorkerSteals() {
+        return stealingWorkers != null ? stealingWorkers.getSteals() : 0;
+    }
+
+    @Override
+    public int getWorkerQueueDepth() {
+        return stealingWorkers != null ? stealingWorkers.getQueueDepth() : 0;
+    }
+
+    @Override
+    public int getWorkerMaxQueueDepth() {
+        return stealingWorkers != null ? stealingWorkers.getMaxQueueDepth() : 0;
     }
 
     @Override
@@ -343,7 +393,11 @@ public class Server implements ServerMXBean {
     }
 
     public final void asyncExecute(Runnable command) {
-        workers.execute(command);
+        if (stealingWorkers != null) {
+            stealingWorkers.execute(command);
+        } else {
+            workers.execute(command);
+        }
     }
 
     private static final class SelectorStats {
@@ -21,6 +21,7 @@ import java.util.Locale;
 import one.nio.config.Config;
 import one.nio.config.Converter;
 import one.nio.net.ConnectionString;
+import one.nio.net.Selector;
 import one.nio.net.SslConfig;
 import one.nio.os.SchedulingPolicy;
 
@@ -33,16 +34,29 @@ public class ServerConfig {
     public boolean multiAcceptor;
     public int selectors;
     public boolean affinity;
+    // Maximum number of sessions processed per selector wakeup
+    public int selectorMaxEvents = Selector.DEFAULT_MAX_EVENTS;
+    // Spin on a non-blocking poll for up to this many microseconds before the selector blocks
+    public int selectorBusyPollMicros;
+    // Register client sessions in edge-triggered mode (native selector only, SSL sessions excluded)
+    public boolean edgeTriggered;
     public int minWorkers;
     public int maxWorkers;
     @Converter(method = "time")
     public int queueTime;
+    // Per-selector worker queues with work stealing instead of a rendezvous hand-off; maxWorkers threads are started
+    public boolean workStealing;
+    public int workerQueueCapacity = 1024;
     @Converter(method = "time")
     public int keepAlive;
     public int threadPriority = Thread.NORM_PRIORITY;
     public SchedulingPolicy schedulingPolicy;
     public boolean closeSessions;
     public boolean pinAcceptors;
+    @Converter(method = "longSize")
+    public long writeLowWatermark;
+    @Converter(method = "longSize")
+    public long writeHighWatermark;
 
     @Converter(value = ServerConfig.class, method = "threadNameFormat")
     public String selectorThreadNameFormat = DEFAULT_SELECTOR_THREAD_NAME_FORMAT;
@@ -67,6 +81,9 @@ public class ServerConfig {
         this.minWorkers = conn.getIntParam("minWorkers", 0);
         this.maxWorkers = conn.getIntParam("maxWorkers", 0);
         this.queueTime = conn.getIntParam("queueTime", 0) / 1000;
+        this.edgeTriggered = conn.getBooleanParam("edgeTriggered", false);
+        this.workStealing = conn.getBooleanParam("workStealing", false);
+        this.workerQueueCapacity = conn.getIntParam("workerQueueCapacity", 1024);
         this.threadPriority = conn.getIntParam("threadPriority", Thread.NORM_PRIORITY);
         this.schedulingPolicy = SchedulingPolicy.valueOf(conn.getStringParam("schedulingPolicy", "OTHER"));
         this.closeSessions = conn.getBooleanParam("closeSessions", false);
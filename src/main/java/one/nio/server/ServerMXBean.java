@@ -21,6 +21,9 @@ public interface ServerMXBean {
     boolean getWorkersUsed();
     int getWorkers();
     int getWorkersActive();
+    long getWorkerSteals();
+    int getWorkerQueueDepth();
+    int getWorkerMaxQueueDepth();
     long getKeepAlive();
     long getAcceptedSessions();
     long getRejectedSessions();
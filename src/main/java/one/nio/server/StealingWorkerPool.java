@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.server;
+
+import one.nio.os.SchedulingPolicy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Worker pool with a bounded task queue per selector.
+ * A task submitted from a selector thread goes to the queue of that selector.
+ * Each worker serves its home queue first and steals from the other queues when its own is empty.
+ * Unlike {@link WorkerPool}, submission never waits for a worker: a task is rejected only when its queue is full.
+ */
+final class StealingWorkerPool implements Executor, Thread.UncaughtExceptionHandler {
+    private static final Logger log = LoggerFactory.getLogger(StealingWorkerPool.class);
+
+    private final TaskQueue[] queues;
+    private final Worker[] workers;
+    private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder steals = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean terminated;
+
+    StealingWorkerPool(int queueCount, int queueCapacity, int threads, int threadPriority, SchedulingPolicy schedulingPolicy) {
+        this.queues = new TaskQueue[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queues[i] = new TaskQueue(queueCapacity);
+        }
+
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i % queueCount, "NIO Worker #" + (i + 1));
+            worker.setUncaughtExceptionHandler(this);
+            worker.setPriority(threadPriority);
+            worker.setSchedulingPolicy(schedulingPolicy);
+            workers[i] = worker;
+        }
+    }
+
+    void start() {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!running) {
+            throw new RejectedExecutionException("Worker pool is shut down");
+        }
+
+        TaskQueue queue = queues[queueIndex()];
+        if (!queue.offer(command)) {
+            throw new RejectedExecutionException("Worker queue is full");
+        }
+
+        wakeIdleWorker();
+    }
+
+    void gracefulShutdown() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+
+        if (!awaitTermination(20000)) {
+            terminated = true;
+            for (Worker worker : workers) {
+                worker.interrupt();
+            }
+            awaitTermination(10000);
+        }
+    }
+
+    int getPoolSize() {
+        return workers.length;
+    }
+
+    int getActiveCount() {
+        return activeCount.get();
+    }
+
+    long getSteals() {
+        return steals.sum();
+    }
+
+    int getQueueDepth() {
+        int depth = 0;
+        for (TaskQueue queue : queues) {
+            depth += queue.size.get();
+        }
+        return depth;
+    }
+
+    int getMaxQueueDepth() {
+        int maxDepth = 0;
+        for (TaskQueue queue : queues) {
+            maxDepth = Math.max(maxDepth, queue.size.get());
+        }
+        return maxDepth;
+    }
+
+    @Override
+    public void uncaughtException(Thread t, Throwable e) {
+        log.error("Uncaught exception in {}", t, e);
+    }
+
+    private int queueIndex() {
+        Thread current = Thread.currentThread();
+        if (current instanceof SelectorThread) {
+            return ((SelectorThread) current).num % queues.length;
+        }
+        return queues.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(queues.length);
+    }
+
+    private void wakeIdleWorker() {
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            LockSupport.unpark(idle);
+        }
+    }
+
+    private Runnable poll(int home) {
+        Runnable task = queues[home].poll();
+        if (task != null) {
+            return task;
+        }
+
+        for (int i = 1; i < queues.length; i++) {
+            if ((task = queues[(home + i) % queues.length].poll()) != null) {
+                steals.increment();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean isEmpty() {
+        for (TaskQueue queue : queues) {
+            if (queue.size.get() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean awaitTermination(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            for (Worker worker : workers) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                worker.join(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        for (Worker worker : workers) {
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class TaskQueue {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final int capacity;
+
+        TaskQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean offer(Runnable task) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            tasks.offer(task);
+            return true;
+        }
+
+        Runnable poll() {
+            if (size.get() == 0) {
+                return null;
+            }
+            Runnable task = tasks.poll();
+            if (task != null) {
+                size.decrementAndGet();
+            }
+            return task;
+        }
+    }
+
+    private final class Worker extends PayloadThread {
+        private final int home;
+
+        Worker(int home, String name) {
+            super(name);
+            this.home = home;
+        }
+
+        @Override
+        public void run() {
+            if (schedulingPolicy != null) {
+                schedulingPolicy.apply();
+            }
+
+            while (!terminated && (running || !isEmpty())) {
+                Runnable task = poll(home);
+                if (task == null) {
+                    // Publish ourselves as idle, then re-check the queues to avoid a lost wakeup
+                    idleWorkers.add(this);
+                    if ((task = poll(home)) == null) {
+                        if (running) {
+                            LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                        }
+                        idleWorkers.remove(this);
+                        continue;
+                    }
+                    if (!idleWorkers.remove(this)) {
+                        // A wakeup was addressed to us, but we have found a task ourselves; pass it on
+                        wakeIdleWorker();
+                    }
+                }
+
+                activeCount.incrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    uncaughtException(this, e);
+                } finally {
+                    activeCount.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -29,6 +29,8 @@ public class ConfigParserTest {
             "maxWorkers: 1000\n" +
             "queueTime: 50MS\n" +
             "selectorThreadNameFormat: push sel-r #%d\n" +
+            "writeLowWatermark: 256K\n" +
+            "writeHighWatermark: 4M\n" +
             "acceptors:\n" +
             " - port: 443\n" +
             "   backlog: 10000\n" +
@@ -72,6 +74,8 @@ public class ConfigParserTest {
         assertEquals("push sel-r #42", config.formatSelectorThreadName(42));
         assertEquals(false, config.affinity);
         assertEquals(Thread.NORM_PRIORITY, config.threadPriority);
+        assertEquals(256 * 1024L, config.writeLowWatermark);
+        assertEquals(4 * 1024 * 1024L, config.writeHighWatermark);
 
         assertEquals(4, config.acceptors.length);
 
@@ -22,11 +22,14 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -37,6 +40,7 @@ import static org.junit.Assert.*;
  */
 public class ChunkedTransferEncodingTest {
     private static final String ENDPOINT = "/echoChunked";
+    private static final String STREAMING_ENDPOINT = "/streamingLength";
 
     private static HttpServer server;
     private static HttpClient client;
@@ -89,6 +93,82 @@ public class ChunkedTransferEncodingTest {
         check("abc".getBytes(), 2);
     }
 
+    @Test
+    public void chunkedRequest() throws Exception {
+        checkChunkedRequest("", 1);
+        checkChunkedRequest("a", 1);
+        checkChunkedRequest("Hello, chunked world!", 4);
+        checkChunkedRequest("Hello, chunked world!", 100);
+    }
+
+    @Test
+    public void chunkedRequestWithExtensionsAndTrailers() throws Exception {
+        final Request request = new Request(Request.METHOD_PUT, size(3), true);
+        request.addHeader("Host: 127.0.0.1");
+        request.addHeader("Transfer-Encoding: chunked");
+        request.setBody("5;name=value\r\nHello\r\n0\r\nX-Trailer: yes\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        final Response response = client.invoke(request);
+        assertEquals(200, response.getStatus());
+        assertEquals("Hello", new String(response.getBody(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void invalidChunkSize() throws Exception {
+        final Request request = new Request(Request.METHOD_PUT, size(1), true);
+        request.addHeader("Host: 127.0.0.1");
+        request.addHeader("Transfer-Encoding: chunked");
+        request.setBody("xyz\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        final Response response = client.invoke(request);
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void streamingRequestBody() throws Exception {
+        final byte[] body = new byte[1024 * 1024];
+        new Random(42).nextBytes(body);
+
+        final Response response = client.put(STREAMING_ENDPOINT, body);
+        assertEquals(200, response.getStatus());
+        assertEquals(body.length + " " + Arrays.hashCode(body), response.getBodyUtf8());
+
+        final Request request = new Request(Request.METHOD_PUT, STREAMING_ENDPOINT, true);
+        request.addHeader("Host: 127.0.0.1");
+        request.addHeader("Transfer-Encoding: chunked");
+        request.setBody(encodeChunked(body, 100000));
+
+        final Response chunkedResponse = client.invoke(request);
+        assertEquals(200, chunkedResponse.getStatus());
+        assertEquals(body.length + " " + Arrays.hashCode(body), chunkedResponse.getBodyUtf8());
+    }
+
+    private void checkChunkedRequest(final String body, final int chunkSize) throws Exception {
+        final byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        final Request request = new Request(Request.METHOD_PUT, size(chunkSize), true);
+        request.addHeader("Host: 127.0.0.1");
+        request.addHeader("Transfer-Encoding: chunked");
+        request.setBody(encodeChunked(bytes, chunkSize));
+
+        final Response response = client.invoke(request);
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(bytes, response.getBody());
+    }
+
+    private static byte[] encodeChunked(final byte[] body, final int chunkSize) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int start = 0; start < body.length; start += chunkSize) {
+            final int chunkLength = Math.min(body.length - start, chunkSize);
+            final byte[] encodedLength = (Integer.toHexString(chunkLength) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            out.write(encodedLength, 0, encodedLength.length);
+            out.write(body, start, chunkLength);
+            out.write('\r');
+            out.write('\n');
+        }
+        out.write(TestServer.EOF, 0, TestServer.EOF.length);
+        return out.toByteArray();
+    }
+
     private void check(final byte[] body, final int chunkSize) throws Exception {
         final Response response = client.put(size(chunkSize), body);
         assertEquals(200, response.getStatus());
@@ -107,6 +187,39 @@ public class ChunkedTransferEncodingTest {
             super(config);
         }
 
+        @Override
+        public RequestBodyConsumer createBodyConsumer(final Request request, final HttpSession session) {
+            if (!STREAMING_ENDPOINT.equals(request.getPath())) {
+                return null;
+            }
+
+            return new RequestBodyConsumer() {
+                private int length;
+                private int hashCode = 1;
+
+                @Override
+                public void onData(final byte[] data, final int offset, final int length) {
+                    for (int i = offset; i < offset + length; i++) {
+                        hashCode = 31 * hashCode + data[i];
+                    }
+                    this.length += length;
+                }
+
+                @Override
+                public void onComplete() {
+                    request.addHeader("X-Streamed: " + length + " " + hashCode);
+                }
+            };
+        }
+
+        @Path(STREAMING_ENDPOINT)
+        public Response streamingLength(final Request request) {
+            if (request.getBody() != null) {
+                return new Response(Response.INTERNAL_ERROR, Response.EMPTY);
+            }
+            return Response.ok(request.getHeader("X-Streamed:"));
+        }
+
         @Path(ENDPOINT)
         public Response echoBody(
                 final Request request,
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.http;
+
+import one.nio.net.ConnectionString;
+import one.nio.net.Socket;
+import one.nio.net.SocketUtil;
+import one.nio.util.Utf8;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EdgeTriggeredTest {
+    private static final int LARGE_RESPONSE_LENGTH = 16 * 1024 * 1024;
+
+    private static int port;
+    private static HttpServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void beforeAll() throws IOException {
+        port = SocketUtil.getFreePort();
+        HttpServerConfig config = HttpServerConfigFactory.create(port);
+        config.edgeTriggered = true;
+        server = new TestServer(config);
+        server.start();
+        client = new HttpClient(new ConnectionString("http://127.0.0.1:" + port));
+    }
+
+    @AfterClass
+    public static void afterAll() {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void largeRequest() throws Exception {
+        // Exceeds the selector buffer, so the request has to be drained in several reads
+        byte[] body = new byte[60000];
+        ThreadLocalRandom.current().nextBytes(body);
+
+        for (int i = 0; i < 10; i++) {
+            Response response = client.post("/echo", body);
+            assertEquals(200, response.getStatus());
+            assertArrayEquals(body, response.getBody());
+        }
+    }
+
+    @Test
+    public void largeResponse() throws Exception {
+        // Does not fit into the socket buffer, so the rest is written on a write edge
+        Response response = client.get("/large");
+        assertEquals(200, response.getStatus());
+        assertEquals(LARGE_RESPONSE_LENGTH, response.getBody().length);
+    }
+
+    @Test
+    public void pipelinedRequests() throws Exception {
+        int count = 1000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("GET /echo HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        }
+        byte[] requests = Utf8.toBytes(sb.toString());
+
+        Socket socket = Socket.createClientSocket();
+        try {
+            socket.setTimeout(10000);
+            socket.connect(InetAddress.getLoopbackAddress(), port);
+            socket.writeFully(requests, 0, requests.length);
+
+            byte[] expected = Utf8.toBytes("HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: Keep-Alive\r\n\r\n");
+            byte[] actual = new byte[expected.length];
+            for (int i = 0; i < count; i++) {
+                socket.readFully(actual, 0, actual.length);
+                assertArrayEquals(expected, actual);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    public static class TestServer extends HttpServer {
+
+        TestServer(HttpServerConfig config) throws IOException {
+            super(config);
+        }
+
+        @Path("/echo")
+        public Response echo(Request request) {
+            byte[] body = request.getBody();
+            return Response.ok(body == null ? Response.EMPTY : body);
+        }
+
+        @Path("/large")
+        public Response large() {
+            return Response.ok(new byte[LARGE_RESPONSE_LENGTH]);
+        }
+    }
+}
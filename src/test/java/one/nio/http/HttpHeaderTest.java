@@ -16,6 +16,8 @@
 
 package one.nio.http;
 
+import one.nio.util.ByteArrayBuilder;
+import one.nio.util.Utf8;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -78,4 +80,40 @@ public class HttpHeaderTest {
         assertNull(request.getHeaderValue("X-Custom-Header "));
         assertNull(request.getHeaderValue("X-Custom-Header:"));
     }
+
+    @Test
+    public void testRawHeaders() {
+        final String[] lines = {
+                "Host: example.com:8080",
+                "content-length:  42 ",
+                "X-Custom-Header: \u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435",
+                "Connection: close"
+        };
+
+        final ByteArrayBuilder builder = new ByteArrayBuilder();
+        final Request request = new Request(Request.METHOD_GET, "/", true);
+        for (final String line : lines) {
+            final byte[] bytes = Utf8.toBytes(line);
+            builder.append(bytes);
+            request.addRawHeader(builder.buffer(), builder.length() - bytes.length, bytes.length);
+        }
+        request.setRawHeaders(builder.toBytes());
+        request.addHeader("X-Added: yes");
+
+        assertEquals(5, request.getHeaderCount());
+        assertEquals("example.com", request.getHost());
+        assertEquals("42", request.getHeader("Content-Length:"));
+        assertEquals("42", request.getHeader(Request.HEADER_CONTENT_LENGTH));
+        assertEquals("close", request.getHeader("CONNECTION:"));
+        assertEquals("\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435", request.getHeaderValue("x-custom-header"));
+        assertEquals("yes", request.getHeader("X-Added:"));
+        assertNull(request.getHeader(Request.HEADER_TRANSFER_ENCODING));
+        assertNull(request.getHeaderValue("X-Custom"));
+
+        final String[] headers = request.getHeaders();
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], headers[i]);
+        }
+        assertEquals("X-Added: yes", headers[4]);
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.http;
+
+import one.nio.net.ConnectionString;
+import one.nio.net.SocketUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PathTemplateTest {
+    private static HttpServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void beforeAll() throws IOException {
+        int availablePort = SocketUtil.getFreePort();
+        server = new TestServer(HttpServerConfigFactory.create(availablePort));
+        server.start();
+        client = new HttpClient(new ConnectionString("http://127.0.0.1:" + availablePort));
+    }
+
+    @AfterClass
+    public static void afterAll() {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void pathVariables() throws Exception {
+        assertEquals("user 42", client.get("/users/42").getBodyUtf8());
+        assertEquals("items of 42 limit 10", client.get("/users/42/items?limit=10").getBodyUtf8());
+        assertEquals("item 7 of a b", client.get("/users/a%20b/items/7").getBodyUtf8());
+        assertEquals("fallback /users//items", client.get("/users//items").getBodyUtf8());
+    }
+
+    @Test
+    public void literalWinsOverVariable() throws Exception {
+        assertEquals("me", client.get("/users/me").getBodyUtf8());
+        assertEquals("me", client.get("/users/me/items").getBodyUtf8());
+    }
+
+    @Test
+    public void methods() throws Exception {
+        assertEquals("deleted 42", client.delete("/users/42").getBodyUtf8());
+        assertEquals("user 42", client.put("/users/42").getBodyUtf8());
+    }
+
+    @Test
+    public void prefix() throws Exception {
+        assertEquals("/static/css/main.css", client.get("/static/css/main.css").getBodyUtf8());
+        assertEquals("/static/", client.get("/static/").getBodyUtf8());
+        assertEquals(404, client.get("/static").getStatus());
+        assertEquals("fallback /users/42/unknown", client.get("/users/42/unknown").getBodyUtf8());
+    }
+
+    @Test
+    public void mapper() {
+        PathMapper mapper = new PathMapper();
+        RequestHandler exact = (request, session) -> {};
+        RequestHandler template = (request, session) -> {};
+        mapper.add("/a/b", null, exact);
+        mapper.add("/a/{x}", new int[]{Request.METHOD_POST}, template);
+
+        assertEquals(exact, mapper.find("/a/b", Request.METHOD_POST));
+        assertEquals(template, mapper.find("/a/c", Request.METHOD_POST));
+        assertNull(mapper.find("/a/c", Request.METHOD_GET));
+        assertNull(mapper.find("/a/c/d", Request.METHOD_POST));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateVariable() {
+        new PathMapper().add("/a/{id}/b/{id}", null, (request, session) -> {});
+    }
+
+    @Test
+    public void pathSegments() {
+        Request request = new Request(Request.METHOD_GET, "/x/y%2Fz/?q=/a/b", true);
+        assertEquals("x", request.getPathSegment(0));
+        assertEquals("y/z", request.getPathSegment(1));
+        assertEquals("", request.getPathSegment(2));
+        assertNull(request.getPathSegment(3));
+    }
+
+    public static class TestServer extends HttpServer {
+        TestServer(HttpServerConfig config) throws IOException {
+            super(config);
+        }
+
+        @Path("/users/{id}")
+        public Response user(@PathVariable("id") String id) {
+            return Response.ok("user " + id);
+        }
+
+        @Path("/users/{id}")
+        @RequestMethod(Request.METHOD_DELETE)
+        public Response deleteUser(@PathVariable("id") long id) {
+            return Response.ok("deleted " + id);
+        }
+
+        @Path({"/users/me", "/users/me/items"})
+        public Response me() {
+            return Response.ok("me");
+        }
+
+        @Path("/users/{id}/items")
+        public Response items(@PathVariable("id") int id, @Param("limit") int limit) {
+            return Response.ok("items of " + id + " limit " + limit);
+        }
+
+        @Path("/users/{user}/items/{item}")
+        public Response item(@PathVariable("user") String user, @PathVariable("item") int item) {
+            return Response.ok("item " + item + " of " + user);
+        }
+
+        @Path("/static/*")
+        public Response file(Request request) {
+            return Response.ok(request.getPath());
+        }
+
+        @Path("/users/*")
+        public Response fallback(Request request) {
+            return Response.ok("fallback " + request.getPath());
+        }
+    }
+}
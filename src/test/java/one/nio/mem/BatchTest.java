@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BatchTest {
+    private static final int KEYS = 500;
+
+    @Test
+    public void testSharedMemoryMap() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(1000, null, 16 * 1024 * 1024);
+        try {
+            Long[] keys = new Long[KEYS];
+            byte[][] values = new byte[KEYS][];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = i * 65537L;
+                values[i] = value(i);
+            }
+
+            assertEquals(KEYS, map.putAll(keys, values));
+            assertEquals(KEYS, map.getCount());
+
+            // Updates do not create new entries
+            assertEquals(0, map.putAll(new Long[]{0L, 65537L}, new byte[][]{value(-1), value(-2)}));
+            assertArrayEquals(value(-2), map.get(65537L));
+
+            Long[] lookup = new Long[KEYS + 2];
+            for (int i = 0; i < KEYS; i++) {
+                lookup[i] = keys[KEYS - 1 - i];
+            }
+            lookup[KEYS] = -1L;
+            lookup[KEYS + 1] = keys[10];
+
+            byte[][] result = new byte[lookup.length][];
+            assertEquals(KEYS + 1, map.getAll(lookup, result));
+            for (int i = 2; i < KEYS - 2; i++) {
+                assertArrayEquals(value(KEYS - 1 - i), result[i]);
+            }
+            assertArrayEquals(value(-1), result[KEYS - 1]);
+            assertNull(result[KEYS]);
+            assertArrayEquals(value(10), result[KEYS + 1]);
+
+            assertEquals(2, map.removeAll(new Long[]{keys[1], -1L, keys[2], keys[1]}));
+            assertEquals(KEYS - 2, map.getCount());
+            assertNull(map.get(keys[1]));
+            assertArrayEquals(value(3), map.get(keys[3]));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testOffheapMap() {
+        OffheapBlobMap map = new OffheapBlobMap(1000);
+        try {
+            byte[][] keys = new byte[KEYS][];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = value(i);
+            }
+
+            // The last of duplicate keys wins, as with sequential puts
+            assertEquals(2, map.putAll(new byte[][]{keys[0], keys[1], keys[0]}, new byte[][]{value(1), value(2), value(3)}));
+            assertArrayEquals(value(3), map.get(keys[0]));
+
+            assertEquals(KEYS - 2, map.putAll(keys, keys));
+            byte[][] result = new byte[KEYS][];
+            assertEquals(KEYS, map.getAll(keys, result));
+            for (int i = 0; i < KEYS; i++) {
+                assertArrayEquals(keys[i], result[i]);
+            }
+
+            assertEquals(KEYS, map.removeAll(keys));
+            assertEquals(0, map.getCount());
+            assertEquals(0, map.getAll(keys, result));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testLargeBatch() {
+        // Larger than the batch buffer cached per thread
+        int count = 10000;
+        OffheapBlobMap map = new OffheapBlobMap(count);
+        try {
+            byte[][] keys = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                keys[i] = value(i);
+            }
+
+            assertEquals(count, map.putAll(keys, keys));
+            byte[][] result = new byte[count][];
+            assertEquals(count, map.getAll(keys, result));
+            assertArrayEquals(keys, result);
+            assertEquals(count, map.removeAll(keys));
+            assertEquals(0, map.getCount());
+        } finally {
+            map.close();
+        }
+    }
+
+    private static byte[] value(int n) {
+        return new byte[]{(byte) n, (byte) (n >>> 8), (byte) (n >>> 16), (byte) (n >>> 24)};
+    }
+}
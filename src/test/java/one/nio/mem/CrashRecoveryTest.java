@@ -0,0 +1,157 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static one.nio.util.JavaInternals.unsafe;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CrashRecoveryTest {
+    private static final int CAPACITY = 65536;
+    private static final int ENTRIES = 20000;
+    private static final long FILE_SIZE = 32 * 1024 * 1024;
+
+    @Test
+    public void testRecovery() throws Exception {
+        testRecovery(false);
+    }
+
+    @Test
+    public void testRecoveryAfterResize() throws Exception {
+        testRecovery(true);
+    }
+
+    private void testRecovery(boolean resize) throws Exception {
+        String fileName = File.createTempFile("CrashRecoveryTest", ".shm").getPath();
+        System.setProperty(SharedMemoryMap.CRASH_RECOVERY_PROP, "true");
+        try {
+            SharedMemoryBlobMap crashed = crash(fileName, resize);
+
+            // One bucket chain is damaged, some memory is leaked, and free lists are garbage
+            int lost = 0;
+            for (int i = 0; lost == 0; i++) {
+                long bucket = crashed.mapBase + i * 8L;
+                for (long entry = unsafe.getAddress(bucket); entry != 0; entry = unsafe.getAddress(entry + OffheapMap.NEXT_OFFSET)) {
+                    lost++;
+                }
+                if (lost > 0) {
+                    unsafe.putAddress(bucket, unsafe.getAddress(bucket) + 4);
+                }
+            }
+            crashed.allocator.segment(0).malloc(1000);
+            for (int i = 0; i < crashed.allocator.segments(); i++) {
+                Malloc segment = crashed.allocator.segment(i);
+                unsafe.putLong(segment.base + Malloc.BIN_SPACE - 64, 0x123456789L);
+            }
+
+            SharedMemoryBlobMap map = new SharedMemoryBlobMap(CAPACITY, fileName, FILE_SIZE);
+            try {
+                assertEquals(resize ? CAPACITY * 2 : CAPACITY, map.getCapacity());
+                assertEquals(ENTRIES / 2 - lost, map.getCount());
+                map.allocator.verify();
+
+                int found = 0;
+                for (long i = 0; i < ENTRIES; i++) {
+                    byte[] value = map.get(i);
+                    if (value != null) {
+                        assertArrayEquals(value(i), value);
+                        found++;
+                    }
+                }
+                assertEquals(ENTRIES / 2 - lost, found);
+
+                // The repaired heap is fully usable, and no memory has leaked
+                for (long i = 0; i < ENTRIES; i++) {
+                    map.put(i, value(i));
+                }
+                assertEquals(ENTRIES, map.getCount());
+                for (long i = 0; i < ENTRIES; i++) {
+                    map.remove(i);
+                }
+                map.allocator.verify();
+                assertEquals(initialUsedMemory(resize), map.getUsedMemory());
+            } finally {
+                map.close();
+                crashed.mmap.close();
+            }
+        } finally {
+            System.clearProperty(SharedMemoryMap.CRASH_RECOVERY_PROP);
+            new File(fileName).delete();
+        }
+    }
+
+    @Test
+    public void testCleanupWithoutRecovery() throws Exception {
+        String fileName = File.createTempFile("CrashRecoveryTest", ".shm").getPath();
+        try {
+            SharedMemoryBlobMap crashed = crash(fileName, false);
+
+            SharedMemoryBlobMap map = new SharedMemoryBlobMap(CAPACITY, fileName, FILE_SIZE);
+            try {
+                assertEquals(0, map.getCount());
+                assertNull(map.get(0L));
+            } finally {
+                map.close();
+                crashed.mmap.close();
+            }
+        } finally {
+            new File(fileName).delete();
+        }
+    }
+
+    // Returns a map on the given file that is left open, as if the process was killed
+    private static SharedMemoryBlobMap crash(String fileName, boolean resize) throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(CAPACITY, fileName, FILE_SIZE);
+        for (long i = 0; i < ENTRIES; i++) {
+            map.put(i, value(i));
+        }
+        if (resize) {
+            assertTrue(map.resize(CAPACITY * 2));
+            map.completeResize();
+        }
+        for (long i = 1; i < ENTRIES; i += 2) {
+            map.remove(i);
+        }
+        return map;
+    }
+
+    private static long initialUsedMemory(boolean resize) throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(CAPACITY, null, FILE_SIZE);
+        try {
+            if (resize) {
+                assertTrue(map.resize(CAPACITY * 2));
+                map.completeResize();
+            }
+            return map.getUsedMemory();
+        } finally {
+            map.close();
+        }
+    }
+
+    private static byte[] value(long n) {
+        byte[] value = new byte[(int) (n % 100) + 1];
+        value[0] = (byte) n;
+        return value;
+    }
+}
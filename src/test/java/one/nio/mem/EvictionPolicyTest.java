@@ -0,0 +1,160 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EvictionPolicyTest {
+    private static final int KEYS = 100;
+
+    @Test
+    public void testClock() {
+        OffheapBlobMap map = new OffheapBlobMap(1000);
+        try {
+            map.setEvictionPolicy(new ClockEvictionPolicy());
+            for (int i = 0; i < KEYS; i++) {
+                assertTrue(map.put(key(i), key(i)));
+            }
+
+            // The first sweep only clears reference bits set on insertion
+            assertEquals(1, map.evict(1));
+
+            int referenced = 0;
+            for (int i = 0; i < KEYS / 2; i++) {
+                if (map.get(key(i)) != null) {
+                    referenced++;
+                }
+            }
+
+            assertEquals(KEYS / 2 - 1, map.evict(KEYS / 2 - 1));
+            assertEquals(KEYS / 2, map.getCount());
+            for (int i = 0; i < KEYS / 2; i++) {
+                if (map.get(key(i)) != null) {
+                    referenced--;
+                }
+            }
+            assertEquals(0, referenced);
+
+            assertEquals(KEYS / 2, map.getEvictions());
+            assertEquals(0, map.getRejections());
+            assertEquals(2 * (KEYS / 2), map.getHits() + map.getMisses());
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testTinyLfu() {
+        final List<byte[]> rejected = new ArrayList<>();
+        OffheapBlobMap map = new OffheapBlobMap(1000) {
+            @Override
+            protected void entryRejected(byte[] key, byte[] value) {
+                rejected.add(key);
+            }
+        };
+        try {
+            TinyLfuEvictionPolicy policy = new TinyLfuEvictionPolicy(1000);
+            map.setEvictionPolicy(policy);
+            for (int i = 0; i < KEYS; i++) {
+                assertNull(map.get(key(i)));
+                assertTrue(map.put(key(i), key(i)));
+            }
+
+            // Make the first 10 keys popular
+            for (int n = 0; n < 5; n++) {
+                for (int i = 0; i < 10; i++) {
+                    assertNotNull(map.get(key(i)));
+                }
+            }
+
+            assertEquals(KEYS - 10, map.evict(KEYS - 10));
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(key(i), map.get(key(i)));
+            }
+            assertTrue(policy.getVictimFrequency() > 0);
+
+            // A key never requested before loses to the typical victim
+            assertFalse(map.put(key(-1), key(-1)));
+            assertNull(map.get(key(-1)));
+            assertEquals(1, map.getRejections());
+            assertEquals(1, rejected.size());
+            assertArrayEquals(key(-1), rejected.get(0));
+
+            // Updates are not reported as rejections
+            assertFalse(map.put(key(0), key(0)));
+            assertEquals(1, rejected.size());
+
+            // Once requested often enough, the same key is admitted
+            for (int n = 0; n < 5; n++) {
+                assertNull(map.get(key(-1)));
+            }
+            assertTrue(map.put(key(-1), key(-1)));
+            assertArrayEquals(key(-1), map.get(key(-1)));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testMetadataInSharedMemory() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(1000, null, 16 * 1024 * 1024);
+        try {
+            map.setEvictionPolicy(new ClockEvictionPolicy());
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, key((int) i));
+                assertArrayEquals(key((int) i), map.get(i));
+            }
+            assertEquals(0, map.evict(0));
+
+            // Policy metadata does not leak into timestamps
+            assertEquals(0, map.removeExpired(60000));
+            Thread.sleep(5);
+            assertEquals(KEYS, map.removeExpired(1));
+            assertEquals(0, map.getCount());
+
+            // Expired entries are evicted regardless of their reference bits
+            for (long i = 0; i < KEYS; i++) {
+                map.put(i, key((int) i));
+                assertArrayEquals(key((int) i), map.get(i));
+            }
+            map.setTimeToLive(1);
+            Thread.sleep(5);
+            long expirations = map.getExpirations();
+            assertEquals(KEYS, map.evict(KEYS));
+            assertEquals(0, map.getCount());
+            assertEquals(expirations + KEYS, map.getExpirations());
+            assertEquals(0, map.getEvictions());
+        } finally {
+            map.close();
+        }
+    }
+
+    private static byte[] key(int n) {
+        return new byte[]{(byte) n, (byte) (n >>> 8), (byte) (n >>> 16), (byte) (n >>> 24)};
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OptimisticReadTest {
+    private static final int KEYS = 1000;
+    private static final int HOT_KEYS = 16;
+    private static final long DURATION = 1000;
+
+    @Test
+    public void testSharedMemoryMap() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(KEYS, null, 64 * 1024 * 1024);
+        try {
+            map.setOptimisticReads(true);
+            testBasic(map);
+            stress(map);
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testOffheapMap() throws Exception {
+        LongKeyBlobMap map = new LongKeyBlobMap(KEYS);
+        try {
+            map.setOptimisticReads(true);
+            testBasic(map);
+            stress(map);
+        } finally {
+            map.close();
+        }
+    }
+
+    private static void testBasic(OffheapMap<Long, byte[]> map) {
+        assertTrue(map.isOptimisticReads());
+        assertNull(map.get(1L));
+
+        map.put(1L, value(1, 10));
+        assertArrayEquals(value(1, 10), map.get(1L));
+
+        // Replace with a larger value to force reallocation
+        map.put(1L, value(1, 1000));
+        assertArrayEquals(value(1, 1000), map.get(1L));
+
+        map.remove(1L);
+        assertNull(map.get(1L));
+    }
+
+    // Writers keep replacing and removing values while readers check that every value they get is consistent
+    private static void stress(final OffheapMap<Long, byte[]> map) throws Exception {
+        final long deadline = System.currentTimeMillis() + DURATION;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            final boolean writer = i < 4;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        while (System.currentTimeMillis() < deadline && error.get() == null) {
+                            long key = random.nextInt(HOT_KEYS);
+                            if (!writer) {
+                                byte[] value = map.get(key);
+                                if (value != null) {
+                                    checkValue(key, value);
+                                }
+                            } else if (random.nextInt(4) == 0) {
+                                map.remove(key);
+                            } else {
+                                map.put(key, value(key, random.nextInt(30000)));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+    }
+
+    private static byte[] value(long key, int length) {
+        byte[] value = new byte[length + 1];
+        Arrays.fill(value, (byte) key);
+        value[0] = (byte) (length >>> 4);
+        return value;
+    }
+
+    private static void checkValue(long key, byte[] value) {
+        int length = value.length - 1;
+        assertEquals((byte) (length >>> 4), value[0]);
+        for (int i = 1; i < value.length; i++) {
+            assertEquals((byte) key, value[i]);
+        }
+    }
+
+    static class LongKeyBlobMap extends OffheapMap<Long, byte[]> {
+        LongKeyBlobMap(int capacity) {
+            super(capacity, 0);
+        }
+
+        @Override
+        protected long hashCode(Long key) {
+            return key;
+        }
+
+        @Override
+        protected boolean equalsAt(long entry, Long key) {
+            return true;
+        }
+
+        @Override
+        protected byte[] valueAt(long entry) {
+            byte[] value = new byte[sizeOf(entry)];
+            unsafe.copyMemory(null, entry + HEADER_SIZE + 4, value, byteArrayOffset, value.length);
+            return value;
+        }
+
+        @Override
+        protected void setValueAt(long entry, byte[] value) {
+            unsafe.putInt(entry + HEADER_SIZE, value.length);
+            unsafe.copyMemory(value, byteArrayOffset, null, entry + HEADER_SIZE + 4, value.length);
+        }
+
+        @Override
+        protected long allocateEntry(Long key, long hashCode, int size) {
+            return unsafe.allocateMemory(HEADER_SIZE + 4 + size);
+        }
+
+        @Override
+        protected void destroyEntry(long entry) {
+            // Poison freed memory so that unsafe reads would be detected
+            unsafe.setMemory(entry, HEADER_SIZE + 4 + sizeOf(entry), (byte) 0xff);
+            unsafe.freeMemory(entry);
+        }
+
+        @Override
+        protected int entrySize(long entry) {
+            return HEADER_SIZE + 4 + sizeOf(entry);
+        }
+
+        @Override
+        protected int sizeOf(long entry) {
+            return unsafe.getInt(entry + HEADER_SIZE);
+        }
+
+        @Override
+        protected int sizeOf(byte[] value) {
+            return value.length;
+        }
+    }
+}
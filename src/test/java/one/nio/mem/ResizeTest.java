@@ -0,0 +1,199 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResizeTest {
+    private static final int CAPACITY = 65536;
+    private static final int ENTRIES = 200000;
+
+    @Test
+    public void testResize() throws Exception {
+        OffheapBlobMap map = new OffheapBlobMap(CAPACITY);
+        try {
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(key(i), key(-i));
+            }
+
+            assertTrue(map.resize(CAPACITY * 4));
+            assertTrue(map.isResizing());
+            assertFalse(map.resize(CAPACITY * 8));
+
+            // Updates move stripes to the new table while the rest of the map stays readable
+            for (int i = 0; i < 10000; i++) {
+                map.put(key(i), key(-i));
+                assertArrayEquals(key(-ENTRIES + 1 + i), map.get(key(ENTRIES - 1 - i)));
+            }
+
+            map.completeResize();
+            assertFalse(map.isResizing());
+            assertEquals(CAPACITY * 4, map.getCapacity());
+            assertEquals(ENTRIES, map.getCount());
+            verify(map);
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentResize() throws Exception {
+        testConcurrentResize(false);
+        testConcurrentResize(true);
+    }
+
+    private void testConcurrentResize(boolean optimisticReads) throws Exception {
+        final OffheapBlobMap map = new OffheapBlobMap(CAPACITY);
+        map.setOptimisticReads(optimisticReads);
+        map.setMaxLoadFactor(0.75);
+
+        try {
+            for (int i = 0; i < ENTRIES / 2; i++) {
+                map.put(key(i), key(-i));
+            }
+
+            final AtomicBoolean done = new AtomicBoolean();
+            final AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread[] readers = new Thread[4];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        try {
+                            while (!done.get()) {
+                                int i = random.nextInt(ENTRIES / 2);
+                                assertArrayEquals(key(-i), map.get(key(i)));
+                            }
+                        } catch (Throwable e) {
+                            error.compareAndSet(null, e);
+                        }
+                    }
+                };
+                readers[i].start();
+            }
+
+            // Growing over the load factor triggers resizes that are carried out by the writes
+            for (int i = ENTRIES / 2; i < ENTRIES * 2; i++) {
+                map.put(key(i), key(-i));
+            }
+
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+
+            map.completeResize();
+            assertTrue(map.getCapacity() >= ENTRIES * 2 / 0.75 / 2);
+            assertEquals(ENTRIES * 2, map.getCount());
+            verify(map);
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testSharedMemoryMap() throws Exception {
+        String fileName = File.createTempFile("ResizeTest", ".shm").getPath();
+        try {
+            SharedMemoryBlobMap map = new SharedMemoryBlobMap(CAPACITY, fileName, 64 * 1024 * 1024);
+            for (long i = 0; i < ENTRIES; i++) {
+                map.put(i, key((int) i));
+            }
+            assertTrue(map.resize(CAPACITY * 2));
+            map.close();
+
+            // The map keeps the grown table after restart
+            map = new SharedMemoryBlobMap(CAPACITY, fileName, 64 * 1024 * 1024);
+            try {
+                assertEquals(CAPACITY * 2, map.getCapacity());
+                assertEquals(ENTRIES, map.getCount());
+                for (long i = 0; i < ENTRIES; i++) {
+                    assertArrayEquals(key((int) i), map.get(i));
+                }
+
+                assertTrue(map.resize(CAPACITY * 3));
+                map.completeResize();
+                for (long i = 0; i < ENTRIES; i++) {
+                    assertArrayEquals(key((int) i), map.get(i));
+                }
+            } finally {
+                map.close();
+            }
+        } finally {
+            new File(fileName).delete();
+        }
+    }
+
+    @Test
+    public void testFixedMapDoesNotGrow() throws Exception {
+        String fileName = File.createTempFile("ResizeTest", ".shm").getPath();
+        SharedMemoryFixedBlobMap map = new SharedMemoryFixedBlobMap(fileName, 32 * 1024 * 1024, 16);
+        try {
+            try {
+                map.setMaxLoadFactor(0.75);
+                fail("Fixed map must refuse automatic growth");
+            } catch (UnsupportedOperationException e) {
+                assertEquals(0.0, map.getMaxLoadFactor(), 0.0);
+            }
+            try {
+                map.resize(map.getCapacity() * 2);
+                fail("Fixed map must refuse resize");
+            } catch (UnsupportedOperationException e) {
+                assertFalse(map.isResizing());
+            }
+
+            int capacity = map.getCapacity();
+            for (long i = 0; i < capacity / 4; i++) {
+                assertTrue(map.put(i, new byte[16]));
+            }
+            assertEquals(capacity, map.getCapacity());
+        } finally {
+            map.close();
+            new File(fileName).delete();
+        }
+    }
+
+    private static void verify(OffheapBlobMap map) {
+        int count = map.getCount();
+        for (int i = 0; i < count; i++) {
+            byte[] value = map.get(key(i));
+            assertNotNull(value);
+            assertArrayEquals(key(-i), value);
+        }
+    }
+
+    private static byte[] key(int n) {
+        return new byte[]{(byte) n, (byte) (n >>> 8), (byte) (n >>> 16), (byte) (n >>> 24)};
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotTest {
+    private static final int ENTRIES = 50000;
+
+    @Test
+    public void testBlobMap() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(65536, null, 64 * 1024 * 1024);
+        long valueBytes = 0;
+        byte[] snapshot;
+        try {
+            for (long i = 0; i < ENTRIES; i++) {
+                byte[] value = value(i);
+                map.put(i, value);
+                valueBytes += value.length;
+            }
+            map.remove(7L);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(ENTRIES - 1, map.snapshot(out, 4));
+            snapshot = out.toByteArray();
+        } finally {
+            map.close();
+        }
+
+        assertTrue(snapshot.length < valueBytes / 2);
+
+        // Restore into a map of a different capacity, overwriting an existing entry
+        SharedMemoryBlobMap restored = new SharedMemoryBlobMap(65536 * 4, null, 64 * 1024 * 1024);
+        try {
+            restored.put(1L, new byte[]{1, 2, 3});
+            assertEquals(ENTRIES - 1, restored.restore(new ByteArrayInputStream(snapshot)));
+            assertEquals(ENTRIES - 1, restored.getCount());
+            for (long i = 0; i < ENTRIES; i++) {
+                if (i == 7) {
+                    assertNull(restored.get(i));
+                } else {
+                    assertArrayEquals(value(i), restored.get(i));
+                }
+            }
+            restored.allocator.verify();
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Test
+    public void testStringMap() throws Exception {
+        SharedMemoryStringMap<String> map = new SharedMemoryStringMap<>(65536, null, 16 * 1024 * 1024);
+        map.setSerializer(String.class);
+        byte[] snapshot;
+        try {
+            for (int i = 0; i < 1000; i++) {
+                map.put("key" + i, "value" + i);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(1000, map.snapshot(out));
+            snapshot = out.toByteArray();
+        } finally {
+            map.close();
+        }
+
+        SharedMemoryStringMap<String> restored = new SharedMemoryStringMap<>(65536 * 2, null, 16 * 1024 * 1024);
+        restored.setSerializer(String.class);
+        try {
+            restored.put("key1", "old");
+            restored.put("other", "other");
+            assertEquals(1000, restored.restore(new ByteArrayInputStream(snapshot)));
+            assertEquals(1001, restored.getCount());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("value" + i, restored.get("key" + i));
+            }
+            assertEquals("other", restored.get("other"));
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Test
+    public void testCorruption() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(65536, null, 16 * 1024 * 1024);
+        byte[] snapshot;
+        try {
+            for (long i = 0; i < 1000; i++) {
+                map.put(i, value(i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            map.snapshot(out, 1);
+            snapshot = out.toByteArray();
+        } finally {
+            map.close();
+        }
+
+        snapshot[snapshot.length / 2] ^= 0x40;
+
+        SharedMemoryBlobMap restored = new SharedMemoryBlobMap(65536, null, 16 * 1024 * 1024);
+        try {
+            restored.restore(new ByteArrayInputStream(snapshot));
+            fail("Corrupted snapshot restored");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Test
+    public void testOversizedBlock() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(65536, null, 16 * 1024 * 1024);
+        byte[] snapshot;
+        try {
+            map.put(1L, value(1));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            map.snapshot(out, 1);
+            snapshot = out.toByteArray();
+        } finally {
+            map.close();
+        }
+
+        // Claim a huge raw length in the first block header: magic, class name, uid, block type
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+        in.readLong();
+        int lengthOffset = 8 + 2 + in.readUnsignedShort() + 8 + 1;
+        ByteBuffer.wrap(snapshot).putInt(lengthOffset, Integer.MAX_VALUE - 16);
+
+        SharedMemoryBlobMap restored = new SharedMemoryBlobMap(65536, null, 16 * 1024 * 1024);
+        try {
+            restored.restore(new ByteArrayInputStream(snapshot));
+            fail("Oversized block accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("exceeds the limit"));
+        } finally {
+            restored.close();
+        }
+    }
+
+    private static byte[] value(long n) {
+        byte[] value = new byte[(int) (n % 200) + 8];
+        for (int i = 0; i < value.length; i += 8) {
+            value[i] = (byte) n;
+        }
+        return value;
+    }
+}
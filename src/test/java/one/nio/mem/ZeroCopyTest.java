@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.mem;
+
+import one.nio.net.Socket;
+import one.nio.serial.DataStream;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ZeroCopyTest {
+
+    @Test
+    public void testValueView() throws Exception {
+        SharedMemoryBlobMap map = new SharedMemoryBlobMap(1000, null, 16 * 1024 * 1024);
+        try {
+            map.put(1L, new byte[]{0, 0, 0, 42, 1, 2, 3});
+            assertNull(map.lockRecordForRead(2L));
+
+            OffheapMap.Record<Long, byte[]> record = map.lockRecordForRead(1L);
+            try {
+                assertEquals(7, record.valueLength());
+                DataStream ds = record.valueStream();
+                assertEquals(42, ds.readInt());
+                assertEquals(1, ds.readByte());
+                assertEquals(2, ds.readByte());
+                assertEquals(3, ds.readByte());
+            } finally {
+                record.release();
+            }
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testCopyFallback() throws Exception {
+        OffheapBlobMap map = new OffheapBlobMap(1000) {
+            @Override
+            protected long valueAddress(long entry) {
+                return 0;
+            }
+        };
+        try {
+            map.put(new byte[]{1}, new byte[]{0, 0, 0, 42, 5});
+
+            OffheapMap.Record<byte[], byte[]> record = map.lockRecordForRead(new byte[]{1});
+            try {
+                assertEquals(0, record.valueAddress());
+                assertEquals(5, record.valueLength());
+                DataStream ds = record.valueStream();
+                assertEquals(42, ds.readInt());
+                assertEquals(5, ds.readByte());
+            } finally {
+                record.release();
+            }
+        } finally {
+            map.clear();
+            map.close();
+        }
+    }
+
+    @Test
+    public void testWriteValue() throws Exception {
+        OffheapBlobMap map = new OffheapBlobMap(1000);
+        byte[] value = new byte[1024 * 1024];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+        map.put(new byte[]{1}, value);
+
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Socket client = Socket.connectInet(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            try (java.net.Socket peer = server.accept()) {
+                final OffheapMap.Record<byte[], byte[]> record = map.lockRecordForRead(new byte[]{1});
+                final DataInputStream in = new DataInputStream(peer.getInputStream());
+                final byte[] received = new byte[value.length];
+
+                Thread reader = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            in.readFully(received);
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                };
+                reader.start();
+
+                try {
+                    // A non-blocking socket would make writeValue spin under the stripe lock
+                    client.setBlocking(false);
+                    try {
+                        record.writeValue(client);
+                        fail("Non-blocking socket must be rejected");
+                    } catch (IllegalArgumentException e) {
+                        client.setBlocking(true);
+                    }
+
+                    record.writeValue(client);
+                } finally {
+                    record.release();
+                }
+
+                reader.join();
+                assertArrayEquals(value, received);
+            } finally {
+                client.close();
+            }
+        } finally {
+            map.clear();
+            map.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.net;
+
+import java.io.IOException;
+
+/**
+ * Native client socket that counts write system calls, so tests can check how the write queue is flushed
+ */
+public class CountingSocket extends NativeSocket {
+    public int writeCalls;
+    public int writevCalls;
+    public int lastFlags;
+
+    public CountingSocket() throws IOException {
+        super(0, SOCK_STREAM);
+    }
+
+    @Override
+    public int write(byte[] data, int offset, int count, int flags) throws IOException {
+        writeCalls++;
+        lastFlags = flags;
+        return super.write(data, offset, count, flags);
+    }
+
+    @Override
+    public int writev(byte[][] data, int[] offsets, int[] counts, int n, int flags) throws IOException {
+        writevCalls++;
+        lastFlags = flags;
+        return super.writev(data, offsets, counts, n, flags);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.net;
+
+import one.nio.util.JavaInternals;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SelectorTaskTest {
+    private static final int THREADS = 4;
+
+    private static Thread startPolling(Selector selector) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            while (selector.isOpen()) {
+                for (Iterator<Session> it = selector.select(); it.hasNext(); ) {
+                    Session session = it.next();
+                    try {
+                        session.process(buffer);
+                    } catch (Throwable e) {
+                        session.handleException(e);
+                    }
+                }
+                selector.runTasks();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void testExecute(Selector selector) throws Exception {
+        Thread pollingThread = startPolling(selector);
+        try {
+            int tasksPerThread = 10000;
+            CountDownLatch done = new CountDownLatch(THREADS * tasksPerThread);
+            AtomicInteger foreign = new AtomicInteger();
+
+            for (int t = 0; t < THREADS; t++) {
+                new Thread(() -> {
+                    for (int i = 0; i < tasksPerThread; i++) {
+                        selector.execute(() -> {
+                            if (Thread.currentThread() != pollingThread) foreign.incrementAndGet();
+                            done.countDown();
+                        });
+                    }
+                }).start();
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, foreign.get());
+        } finally {
+            selector.close();
+            pollingThread.join();
+        }
+    }
+
+    @Test
+    public void testExecuteDefault() throws Exception {
+        testExecute(Selector.create());
+    }
+
+    @Test
+    public void testExecuteJava() throws Exception {
+        testExecute(new JavaSelector(0));
+    }
+
+    @Test
+    public void testExecuteBusyPoll() throws Exception {
+        testExecute(Selector.create(Selector.DEFAULT_MAX_EVENTS, 100000, false));
+    }
+
+    @Test
+    public void testExecuteUring() throws Exception {
+        if (UringSelector.IS_SUPPORTED) {
+            testExecute(new UringSelector(Selector.DEFAULT_MAX_EVENTS, 0, false));
+        }
+    }
+
+    @Test
+    public void testWriteAsync() throws Exception {
+        testWriteAsync(Selector.create());
+    }
+
+    @Test
+    public void testWriteAsyncUring() throws Exception {
+        if (UringSelector.IS_SUPPORTED) {
+            testWriteAsync(new UringSelector(Selector.DEFAULT_MAX_EVENTS, 0, false));
+        }
+    }
+
+    private static void testWriteAsync(Selector selector) throws Exception {
+        int port = SocketUtil.getFreePort();
+        Socket serverSocket = Socket.createServerSocket();
+        serverSocket.bind(InetAddress.getLoopbackAddress(), port, 16);
+        serverSocket.listen(16);
+
+        Socket client = Socket.createClientSocket();
+        client.connect(InetAddress.getLoopbackAddress(), port);
+        Socket accepted = serverSocket.accept();
+        accepted.setBlocking(false);
+
+        Thread pollingThread = startPolling(selector);
+        Session session = new Session(accepted);
+        selector.register(session);
+
+        try {
+            int messagesPerThread = 5000;
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < messagesPerThread; i++) {
+                            byte[] message = new byte[8];
+                            JavaInternals.unsafe.putInt(message, JavaInternals.byteArrayOffset, thread);
+                            JavaInternals.unsafe.putInt(message, JavaInternals.byteArrayOffset + 4, i);
+                            session.writeAsync(new Session.ArrayQueueItem(message, 0, message.length, 0));
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }).start();
+            }
+
+            // Messages of every producer must arrive complete and in order
+            int[] expected = new int[THREADS];
+            byte[] message = new byte[8];
+            client.setTimeout(10000);
+            for (int i = 0; i < THREADS * messagesPerThread; i++) {
+                client.readFully(message, 0, message.length);
+                int thread = JavaInternals.unsafe.getInt(message, JavaInternals.byteArrayOffset);
+                int seq = JavaInternals.unsafe.getInt(message, JavaInternals.byteArrayOffset + 4);
+                assertEquals(expected[thread]++, seq);
+            }
+        } finally {
+            session.close();
+            selector.close();
+            pollingThread.join();
+            client.close();
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.net;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionQueueTest {
+    private static final int ITEM_SIZE = 65536;
+    private static final int ITEMS = 256;
+
+    private Socket serverSocket;
+    private Socket client;
+    private Selector selector;
+    private Session session;
+
+    @Before
+    public void setUp() throws IOException {
+        int port = SocketUtil.getFreePort();
+        serverSocket = Socket.createServerSocket();
+        serverSocket.bind(InetAddress.getLoopbackAddress(), port, 16);
+        serverSocket.listen(16);
+
+        client = Socket.createClientSocket();
+        client.connect(InetAddress.getLoopbackAddress(), port);
+        Socket accepted = serverSocket.accept();
+        accepted.setBlocking(false);
+
+        // The selector is not polled, so the queue is not flushed until the test drains it
+        selector = Selector.create();
+        session = new Session(accepted);
+        selector.register(session);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        session.close();
+        selector.close();
+        client.close();
+        serverSocket.close();
+    }
+
+    private void fillQueue() throws IOException {
+        for (int i = 0; i < ITEMS; i++) {
+            session.write(new byte[ITEM_SIZE], 0, ITEM_SIZE, 0);
+        }
+    }
+
+    // Reads everything the session has sent so far, flushing the queue on the way
+    private void drain(long untilBytes) throws Exception {
+        byte[] buf = new byte[ITEM_SIZE];
+        client.setTimeout(10000);
+        while (session.queueBytes() > untilBytes) {
+            client.read(buf, 0, buf.length);
+            synchronized (session) {
+                session.processWrite();
+            }
+        }
+    }
+
+    @Test
+    public void testQueueStats() throws Exception {
+        fillQueue();
+
+        long[] stats = new long[2];
+        session.getQueueStats(stats);
+        long length = stats[0];
+        long bytes = stats[1];
+        assertTrue(length > 0 && length < ITEMS);
+        assertTrue(bytes > (length - 1) * ITEM_SIZE && bytes <= length * ITEM_SIZE);
+        assertEquals(length, session.queueLength());
+        assertEquals(bytes, session.queueBytes());
+
+        // Items queued behind a stalled socket are counted in full
+        session.write(new byte[100], 0, 100, 0);
+        session.getQueueStats(stats);
+        assertEquals(length + 1, stats[0]);
+        assertEquals(bytes + 100, stats[1]);
+
+        drain(0);
+        session.getQueueStats(stats);
+        assertEquals(0, stats[0]);
+        assertEquals(0, stats[1]);
+    }
+
+    @Test
+    public void testWatermarks() throws Exception {
+        long low = 1024 * 1024;
+        long high = 8 * 1024 * 1024;
+        session.setWriteWatermarks(low, high);
+        assertTrue(session.isWritable());
+
+        fillQueue();
+        assertTrue(session.queueBytes() > high);
+        assertFalse(session.isWritable());
+
+        // Below the high watermark, but still above the low one
+        drain(high / 2);
+        assertTrue(session.queueBytes() > low);
+        assertFalse(session.isWritable());
+
+        AtomicBoolean writable = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                writable.set(session.awaitWritable(10000));
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        waiter.start();
+
+        drain(low);
+        waiter.join();
+        assertTrue(writable.get());
+        assertTrue(session.isWritable());
+    }
+
+    @Test
+    public void testGatherFlags() throws Exception {
+        Assume.assumeTrue(Socket.USE_NATIVE_SOCKET);
+
+        CountingSocket socket = new CountingSocket();
+        try {
+            socket.connect(InetAddress.getLoopbackAddress(), serverSocket.getLocalAddress().getPort());
+            Socket peer = serverSocket.accept();
+
+            Session.QueueItem chain = new Session.ArrayQueueItem(new byte[10], 0, 10, 0);
+            chain.append(new Session.ArrayQueueItem(new byte[20], 0, 20, 0))
+                    .append(new Session.ArrayQueueItem(new byte[30], 0, 30, Socket.MSG_MORE));
+
+            // MSG_MORE of the last item must not cork the items gathered before it
+            new Session(socket).write(chain);
+            assertEquals(1, socket.writevCalls);
+            assertEquals(1, socket.writeCalls);
+            assertEquals(Socket.MSG_MORE, socket.lastFlags);
+
+            byte[] received = new byte[60];
+            peer.readFully(received, 0, received.length);
+            peer.close();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -75,6 +75,44 @@ public class SocketTest {
         SocketTest.testSocketOpts(new JavaServerSocket(), true);
     }
 
+    @Test
+    public void testNativeWritev() throws IOException {
+        if (NativeLibrary.IS_SUPPORTED) {
+            testWritev(new NativeSocket(0, Socket.SOCK_STREAM), new NativeSocket(0, Socket.SOCK_STREAM));
+        }
+    }
+
+    @Test
+    public void testJavaWritev() throws IOException {
+        testWritev(new JavaServerSocket(), new JavaSocket());
+    }
+
+    private static void testWritev(Socket server, Socket client) throws IOException {
+        try {
+            server.setReuseAddr(true, false);
+            server.bind("127.0.0.1", 0, 16);
+            server.listen(16);
+            client.connect("127.0.0.1", server.getLocalAddress().getPort());
+
+            Socket accepted = server.accept();
+            try {
+                byte[][] data = {"xxHello".getBytes(), ", ".getBytes(), "writev!yy".getBytes()};
+                int[] offsets = {2, 0, 0};
+                int[] counts = {5, 2, 7};
+                assertEquals(14, client.writev(data, offsets, counts, 3, 0));
+
+                byte[] result = new byte[14];
+                accepted.readFully(result, 0, result.length);
+                assertEquals("Hello, writev!", new String(result));
+            } finally {
+                accepted.close();
+            }
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
     public static void testSocketOpts(Socket socket, boolean datagram) {
         try {
             socket.setBlocking(false);
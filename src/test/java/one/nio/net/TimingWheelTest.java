@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.net;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    private static List<Session> expire(TimingWheel wheel, long time) {
+        List<Session> result = new ArrayList<>();
+        for (Session session = wheel.expire(time); session != null; session = session.nextExpired()) {
+            result.add(session);
+        }
+        return result;
+    }
+
+    @Test
+    public void testExpireOnTime() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        Random random = new Random(1);
+        Session[] sessions = new Session[2000];
+        long[] deadlines = new long[sessions.length];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new Session(null);
+            // Spread deadlines across the first three levels
+            deadlines[i] = 1 + random.nextInt(300000);
+            wheel.schedule(sessions[i], deadlines[i]);
+        }
+        assertEquals(sessions.length, wheel.size());
+
+        Set<Session> expired = new HashSet<>();
+        for (long time = 1; time <= 300000; time++) {
+            for (Session session : expire(wheel, time)) {
+                int index = indexOf(sessions, session);
+                assertEquals(deadlines[index], time);
+                assertTrue(expired.add(session));
+            }
+        }
+        assertEquals(sessions.length, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRescheduleAndCancel() {
+        TimingWheel wheel = new TimingWheel(10, 1000);
+        Session a = new Session(null);
+        Session b = new Session(null);
+        Session c = new Session(null);
+        wheel.schedule(a, 1100);
+        wheel.schedule(b, 1100);
+        wheel.schedule(c, 1100);
+
+        wheel.schedule(a, 50000);
+        wheel.cancel(b);
+        assertEquals(2, wheel.size());
+
+        assertEquals(1, expire(wheel, 1100).size());
+        assertTrue(expire(wheel, 49990).isEmpty());
+        List<Session> result = expire(wheel, 50000);
+        assertEquals(1, result.size());
+        assertSame(a, result.get(0));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testPastDeadline() {
+        TimingWheel wheel = new TimingWheel(10, 1000);
+        Session session = new Session(null);
+        wheel.schedule(session, 500);
+        assertTrue(expire(wheel, 1000).isEmpty());
+        assertEquals(1, expire(wheel, 1010).size());
+    }
+
+    @Test
+    public void testFarDeadline() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        Session session = new Session(null);
+        long deadline = 1L << 26;
+        wheel.schedule(session, deadline);
+        assertTrue(expire(wheel, deadline - 1).isEmpty());
+        assertEquals(1, expire(wheel, deadline).size());
+    }
+
+    private static int indexOf(Session[] sessions, Session session) {
+        for (int i = 0; i < sessions.length; i++) {
+            if (sessions[i] == session) return i;
+        }
+        return -1;
+    }
+}
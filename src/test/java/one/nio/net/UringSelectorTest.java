@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.net;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UringSelectorTest {
+    private Socket serverSocket;
+    private Socket client;
+    private Socket accepted;
+    private Selector selector;
+    private Thread pollingThread;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(UringSelector.IS_SUPPORTED);
+
+        int port = SocketUtil.getFreePort();
+        serverSocket = Socket.createServerSocket();
+        serverSocket.bind(InetAddress.getLoopbackAddress(), port, 16);
+        serverSocket.listen(16);
+
+        client = Socket.createClientSocket();
+        client.connect(InetAddress.getLoopbackAddress(), port);
+        accepted = serverSocket.accept();
+        accepted.setBlocking(false);
+
+        selector = new UringSelector(Selector.DEFAULT_MAX_EVENTS, 0, false);
+        pollingThread = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            while (selector.isOpen()) {
+                for (Iterator<Session> it = selector.select(); it.hasNext(); ) {
+                    Session session = it.next();
+                    try {
+                        session.process(buffer);
+                    } catch (Throwable e) {
+                        session.handleException(e);
+                    }
+                }
+                selector.runTasks();
+            }
+        });
+        pollingThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (selector != null) {
+            selector.close();
+            pollingThread.join();
+            client.close();
+            accepted.close();
+            serverSocket.close();
+        }
+    }
+
+    private static void await(AtomicInteger counter, int expected) throws InterruptedException {
+        for (long deadline = System.currentTimeMillis() + 10000; counter.get() < expected; ) {
+            if (System.currentTimeMillis() > deadline) {
+                break;
+            }
+            Thread.sleep(1);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testSkippedReadEvent() throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        selector.register(new Session(accepted) {
+            private boolean skipped;
+
+            @Override
+            protected void processRead(byte[] buffer) throws Exception {
+                // A session may leave the data in the socket for a while;
+                // it must be selected again as long as the data is there
+                if (!skipped) {
+                    skipped = true;
+                    return;
+                }
+                received.addAndGet(read(buffer, 0, 100));
+            }
+        });
+
+        byte[] data = new byte[5000];
+        client.writeFully(data, 0, data.length);
+        await(received, data.length);
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+        selector.register(new Session(accepted) {
+            @Override
+            protected void processRead(byte[] buffer) throws Exception {
+                int bytes = read(buffer, 0, buffer.length);
+                if (bytes > 0) {
+                    write(Arrays.copyOf(buffer, bytes), 0, bytes);
+                }
+            }
+        });
+        assertNotNull(((NativeSocket) accepted).channel);
+
+        // Pipelined requests are answered in order
+        byte[] data = randomBytes(3000);
+        for (int i = 0; i < data.length; i += 100) {
+            client.writeFully(data, i, 100);
+        }
+
+        byte[] echo = new byte[data.length];
+        client.readFully(echo, 0, echo.length);
+        assertArrayEquals(data, echo);
+    }
+
+    @Test
+    public void testLargeTransfer() throws Exception {
+        byte[] response = randomBytes(4 * 1024 * 1024 + 17);
+        byte[] request = randomBytes(3 * 1024 * 1024 + 5);
+        byte[] received = new byte[request.length];
+        AtomicInteger receivedBytes = new AtomicInteger();
+
+        selector.register(new Session(accepted) {
+            @Override
+            protected void processRead(byte[] buffer) throws Exception {
+                int offset = receivedBytes.get();
+                int bytes = read(received, offset, received.length - offset);
+                if (receivedBytes.addAndGet(bytes) == received.length) {
+                    write(response, 0, response.length);
+                }
+            }
+        });
+
+        client.writeFully(request, 0, request.length);
+        await(receivedBytes, request.length);
+        assertArrayEquals(request, received);
+
+        byte[] data = new byte[response.length];
+        client.readFully(data, 0, data.length);
+        assertArrayEquals(response, data);
+    }
+
+    @Test
+    public void testBlockingHandoff() throws Exception {
+        CountDownLatch handedOver = new CountDownLatch(1);
+        AtomicInteger received = new AtomicInteger();
+        Session session = new Session(accepted) {
+            @Override
+            protected void processRead(byte[] buffer) throws Exception {
+                if (handedOver.getCount() > 0) {
+                    // Consume the first byte only, and hand the rest over to blocking I/O
+                    read(buffer, 0, 1);
+                    selector.disable(this);
+                    handedOver.countDown();
+                } else {
+                    received.addAndGet(read(buffer, 0, buffer.length));
+                }
+            }
+        };
+        selector.register(session);
+
+        byte[] data = randomBytes(1000);
+        client.writeFully(data, 0, data.length);
+        assertTrue(handedOver.await(10, TimeUnit.SECONDS));
+
+        // Data already received by the selector precedes anything left in the socket
+        accepted.setBlocking(true);
+        byte[] rest = new byte[data.length - 1];
+        accepted.readFully(rest, 0, rest.length);
+        assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), rest);
+        assertNull(((NativeSocket) accepted).channel);
+
+        accepted.writeFully(data, 0, data.length);
+        byte[] echo = new byte[data.length];
+        client.readFully(echo, 0, echo.length);
+        assertArrayEquals(data, echo);
+
+        // Back to the selector
+        accepted.setBlocking(false);
+        selector.enable(session);
+        assertNotNull(((NativeSocket) accepted).channel);
+        client.writeFully(data, 0, data.length);
+        await(received, data.length);
+    }
+
+    @Test
+    public void testWriteAndClose() throws Exception {
+        byte[] response = randomBytes(100);
+        selector.register(new Session(accepted) {
+            @Override
+            protected void processRead(byte[] buffer) throws Exception {
+                read(buffer, 0, buffer.length);
+                write(response, 0, response.length);
+                close();
+            }
+        });
+
+        client.writeFully(response, 0, 1);
+
+        // The response accepted before close() must not be lost
+        byte[] data = new byte[response.length];
+        client.readFully(data, 0, data.length);
+        assertArrayEquals(response, data);
+
+        try {
+            client.readFully(data, 0, 1);
+            fail("Socket must be closed by the peer");
+        } catch (SocketClosedException e) {
+            // Expected
+        }
+        assertEquals(0, selector.size());
+    }
+
+    @Test
+    public void testPeerClose() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        selector.register(new Session(accepted) {
+            @Override
+            public void handleException(Throwable e) {
+                super.handleException(e);
+                if (e instanceof SocketClosedException) {
+                    closed.countDown();
+                }
+            }
+        });
+
+        client.close();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, selector.size());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.pool;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentPoolTest {
+
+    static class TestPool extends ConcurrentPool<Object> {
+        final AtomicInteger destroyed = new AtomicInteger();
+
+        TestPool(int initialCount, int maxCount, int timeout) {
+            super(initialCount, maxCount, timeout);
+            initialize();
+        }
+
+        @Override
+        public Object createObject() {
+            return new Object();
+        }
+
+        @Override
+        public void destroyObject(Object object) {
+            destroyed.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testAffinity() throws Exception {
+        TestPool pool = new TestPool(0, 4, 100);
+        Object a = pool.borrowObject();
+        Object b = pool.borrowObject();
+        pool.returnObject(b);
+        pool.returnObject(a);
+
+        assertSame(a, pool.borrowObject());
+        assertSame(b, pool.borrowObject());
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testPoolCompatibility() throws Exception {
+        TestPool testPool = new TestPool(0, 2, 100);
+        ObjectPool<Object> pool = testPool;
+        Object a = pool.borrowObject();
+        pool.returnObject(a);
+        assertSame(a, pool.borrowObject());
+
+        pool.invalidateObject(a);
+        assertEquals(1, testPool.destroyed.get());
+        assertNotSame(a, pool.borrowObject());
+        assertEquals(1, testPool.getCreatedCount());
+
+        pool.close();
+        assertTrue(pool.isClosed());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        TestPool pool = new TestPool(1, 1, 50);
+        pool.borrowObject();
+        try {
+            pool.borrowObject();
+            fail("borrowObject should time out");
+        } catch (PoolException e) {
+            assertEquals(1, pool.getTimeouts());
+        }
+    }
+
+    @Test
+    public void testWakeupOnReturn() throws Exception {
+        final TestPool pool = new TestPool(0, 1, 5000);
+        final Object object = pool.borrowObject();
+        final CountDownLatch waiting = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (pool.getWaitingThreads() == 0) {
+                    Thread.sleep(1);
+                }
+                waiting.countDown();
+                pool.returnObject(object);
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+        });
+        thread.start();
+
+        assertSame(object, pool.borrowObject());
+        assertEquals(0, waiting.getCount());
+        thread.join();
+    }
+
+    @Test
+    public void testInvalidateAll() throws Exception {
+        TestPool pool = new TestPool(3, 3, 100);
+        Object busy = pool.borrowObject();
+        pool.invalidateAll();
+
+        assertEquals(2, pool.destroyed.get());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+
+        pool.returnObject(busy);
+        assertSame(busy, pool.borrowObject());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        TestPool pool = new TestPool(0, 2, 100);
+        Object object = pool.borrowObject();
+        pool.close();
+        pool.returnObject(object);
+
+        assertEquals(1, pool.destroyed.get());
+        assertEquals(0, pool.getCreatedCount());
+        try {
+            pool.borrowObject();
+            fail("Pool should be closed");
+        } catch (PoolException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConcurrentBorrow() throws Exception {
+        final TestPool pool = new TestPool(0, 4, 10000);
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        Thread[] threads = new Thread[16];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 10000; j++) {
+                        Object object = pool.borrowObject();
+                        maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                        inUse.decrementAndGet();
+                        pool.returnObject(object);
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(maxInUse.get() <= 4);
+        assertTrue(pool.getCreatedCount() <= 4);
+        assertEquals(pool.getCreatedCount(), pool.getIdleCount());
+    }
+}
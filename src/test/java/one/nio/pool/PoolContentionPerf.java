@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.pool;
+
+/**
+ * Compares {@link Pool} and {@link ConcurrentPool} when many threads borrow and return
+ * objects of a small pool in a tight loop.
+ */
+public class PoolContentionPerf {
+    private static final int POOL_SIZE    = 16;
+    private static final int RUN_COUNT    = 1000000;
+    private static final int[] THREADS    = {1, 4, 16, 64, 256};
+
+    interface PoolAdapter {
+        Object borrow() throws Exception;
+        void release(Object object);
+    }
+
+    static PoolAdapter lockingPool() {
+        final Pool<Object> pool = new Pool<Object>(0, POOL_SIZE, 60000) {
+            @Override
+            public Object createObject() {
+                return new Object();
+            }
+        };
+        return new PoolAdapter() {
+            public Object borrow() throws Exception {
+                return pool.borrowObject();
+            }
+
+            public void release(Object object) {
+                pool.returnObject(object);
+            }
+        };
+    }
+
+    static PoolAdapter concurrentPool() {
+        final ConcurrentPool<Object> pool = new ConcurrentPool<Object>(0, POOL_SIZE, 60000) {
+            @Override
+            public Object createObject() {
+                return new Object();
+            }
+        };
+        return new PoolAdapter() {
+            public Object borrow() throws Exception {
+                return pool.borrowObject();
+            }
+
+            public void release(Object object) {
+                pool.returnObject(object);
+            }
+        };
+    }
+
+    static long run(final PoolAdapter pool, int threadCount) throws Exception {
+        final int iterations = RUN_COUNT / threadCount;
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < iterations; j++) {
+                        pool.release(pool.borrow());
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREADS) {
+            // Warm-up
+            run(lockingPool(), threads);
+            run(concurrentPool(), threads);
+
+            long locking = run(lockingPool(), threads);
+            long concurrent = run(concurrentPool(), threads);
+            System.out.printf("%3d threads: Pool %d ms, ConcurrentPool %d ms\n", threads, locking, concurrent);
+        }
+    }
+}
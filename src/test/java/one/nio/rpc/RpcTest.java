@@ -18,29 +18,45 @@ package one.nio.rpc;
 
 import one.nio.config.ConfigParser;
 import one.nio.net.ConnectionString;
+import one.nio.net.CountingSocket;
+import one.nio.net.Session;
+import one.nio.net.Socket;
 import one.nio.net.SocketUtil;
 import one.nio.rpc.stream.BidiStream;
 import one.nio.serial.sample.Message;
 import one.nio.serial.sample.Sample;
 import one.nio.server.ServerConfig;
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RpcTest {
     private static RpcServer<TestService> server;
+    private static RpcServer<TestService> asyncServer;
+    private static RpcClient asyncClient;
     private static TestService client;
 
     @BeforeClass
@@ -54,10 +70,20 @@ public class RpcTest {
                 RpcTest.class.getClassLoader(),
                 new Class[]{TestService.class},
                 new RpcClient(new ConnectionString("127.0.0.1:" + availablePort)));
+
+        // Multiplexed responses can only overtake each other when requests are served by workers
+        int asyncPort = SocketUtil.getFreePort();
+        ServerConfig asyncConfig = ConfigParser.parse("acceptors:\n - port: " + asyncPort + "\nminWorkers: 4\nmaxWorkers: 64", ServerConfig.class);
+        asyncServer = new RpcServer<>(asyncConfig, new TestServiceImpl());
+        asyncServer.start();
+
+        asyncClient = new RpcClient(new ConnectionString("127.0.0.1:" + asyncPort + "?multiplexConnections=1"));
     }
 
     @AfterClass
     public static void destroy() {
+        asyncClient.close();
+        asyncServer.stop();
         server.stop();
     }
 
@@ -85,6 +111,97 @@ public class RpcTest {
         assertEquals(BigInteger.valueOf(4000000), stats.sum);
     }
 
+    @Test
+    public void testLargeResponse() {
+        Map<Long, Message> messages = new HashMap<>();
+        for (long i = 0; i < 10000; i++) {
+            messages.put(i, Sample.createChat().messages.get(0));
+        }
+
+        Map<Long, Message> result = client.echo(messages);
+        assertEquals(10000, result.size());
+        assertEquals(messages.get(9999L).text, result.get(9999L).text);
+    }
+
+    @Test
+    public void testSharedReferences() {
+        Message message = Sample.createChat().messages.get(0);
+        Map<Long, Message> messages = new HashMap<>();
+        messages.put(1L, message);
+        messages.put(2L, message);
+
+        Map<Long, Message> result = client.echo(messages);
+        assertSame(result.get(1L), result.get(2L));
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+        Method delayedEcho = TestService.class.getMethod("delayedEcho", long.class);
+
+        // The slow call is sent first, but the fast ones complete before it on the same connection
+        CompletableFuture<Object> slow = asyncClient.invokeAsync(new RemoteCall(delayedEcho, 500L));
+        List<CompletableFuture<Object>> fast = new ArrayList<>();
+        for (long i = 0; i < 30; i++) {
+            fast.add(asyncClient.invokeAsync(new RemoteCall(delayedEcho, i % 3)));
+        }
+
+        for (int i = 0; i < fast.size(); i++) {
+            assertEquals((long) i % 3, fast.get(i).get());
+        }
+        assertTrue(!slow.isDone());
+        assertEquals(500L, slow.get());
+    }
+
+    @Test
+    public void testInvokeAsyncTimeout() throws Exception {
+        Method delayedEcho = TestService.class.getMethod("delayedEcho", long.class);
+        try {
+            asyncClient.invokeAsync(new RemoteCall(delayedEcho, 1000L), 100).get();
+            fail("Timeout expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    @Test
+    public void testGatheredResponses() throws Exception {
+        Assume.assumeTrue(Socket.USE_NATIVE_SOCKET);
+
+        int port = SocketUtil.getFreePort();
+        Socket serverSocket = Socket.createServerSocket();
+        CountingSocket socket = new CountingSocket();
+        try {
+            serverSocket.bind(InetAddress.getLoopbackAddress(), port, 16);
+            serverSocket.listen(16);
+            socket.connect(InetAddress.getLoopbackAddress(), port);
+            Socket peer = serverSocket.accept();
+
+            List<RpcOutputStream> streams = new ArrayList<>();
+            Session.QueueItem chain = null;
+            int total = 0;
+            for (int i = 0; i < 3; i++) {
+                RpcOutputStream stream = RpcOutputStream.acquire();
+                stream.writePacket("Response " + i, i);
+                streams.add(stream);
+                total += stream.count();
+                chain = chain == null ? stream.toQueueItem() : chain.append(stream.toQueueItem());
+            }
+
+            // Pooled response buffers are flushed with a single writev and returned to the pool afterwards
+            new Session(socket).write(chain);
+            assertEquals(1, socket.writevCalls);
+            assertEquals(0, socket.writeCalls);
+            assertTrue(streams.contains(RpcOutputStream.acquire()));
+
+            byte[] received = new byte[total];
+            peer.readFully(received, 0, total);
+            peer.close();
+        } finally {
+            socket.close();
+            serverSocket.close();
+        }
+    }
+
     private Stats testNumberStream(int iterations) throws Exception {
         try (BidiStream<Number, Stats> stream = client.openNumberStream()) {
             for (int i = 0; i < iterations; i++) {
@@ -101,6 +218,8 @@ public class RpcTest {
     interface TestService {
         Map<Long, Message> getMessagesByIds(Set<Long> ids);
         BidiStream<Number, Stats> openNumberStream();
+        long delayedEcho(long millis);
+        Map<Long, Message> echo(Map<Long, Message> messages);
     }
 
     static class TestServiceImpl implements TestService {
@@ -116,6 +235,21 @@ public class RpcTest {
             return map;
         }
 
+        @Override
+        public Map<Long, Message> echo(Map<Long, Message> messages) {
+            return messages;
+        }
+
+        @Override
+        public long delayedEcho(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return millis;
+        }
+
         @Override
         public BidiStream<Number, Stats> openNumberStream() {
             return BidiStream.create(stream -> {
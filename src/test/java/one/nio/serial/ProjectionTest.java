@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProjectionTest {
+
+    public static class Order implements Serializable {
+        private long id;
+        private String customer;
+        private List<String> items;
+        private boolean paid;
+        private double amount;
+        private Order parent;
+        private char priority;
+
+        Order(long id, String customer, List<String> items, boolean paid, double amount, Order parent, char priority) {
+            this.id = id;
+            this.customer = customer;
+            this.items = items;
+            this.paid = paid;
+            this.amount = amount;
+            this.parent = parent;
+            this.priority = priority;
+        }
+    }
+
+    public interface OrderView {
+        long id();
+        boolean isPaid();
+        double getAmount();
+        char priority();
+    }
+
+    public interface FullOrderView extends OrderView {
+        String customer();
+        List<String> getItems();
+        Object parent();
+    }
+
+    public interface BadView {
+        int id();
+    }
+
+    public interface BadObjectView {
+        Integer customer();
+    }
+
+    private static DeserializeStream serialize(Object obj) throws IOException {
+        CalcSizeStream css = new CalcSizeStream();
+        css.writeObject(obj);
+        byte[] buf = new byte[css.count()];
+        SerializeStream out = new SerializeStream(buf);
+        out.writeObject(obj);
+
+        DeserializeStream in = new DeserializeStream(buf);
+        assertEquals(Repository.get(obj.getClass()).uid, in.readLong());
+        return in;
+    }
+
+    private static GeneratedSerializer serializer() {
+        return (GeneratedSerializer) Repository.get(Order.class);
+    }
+
+    @Test
+    public void testPrimitiveFields() throws IOException {
+        Order order = new Order(123456789012L, "customer", Arrays.asList("a", "b"), true, 99.5,
+                new Order(1, null, null, false, 0, null, 'x'), 'z');
+
+        OrderView view = serializer().project(OrderView.class, serialize(order));
+        assertEquals('z', view.priority());
+        assertEquals(99.5, view.getAmount(), 0);
+        assertTrue(view.isPaid());
+        assertEquals(123456789012L, view.id());
+    }
+
+    @Test
+    public void testObjectFields() throws IOException {
+        Order parent = new Order(1, "parent", null, false, 1.25, null, 'p');
+        Order order = new Order(2, "child", Arrays.asList("x", "y", "z"), false, -3.0, parent, 'c');
+
+        FullOrderView view = serializer().project(FullOrderView.class, serialize(order));
+        assertEquals(Arrays.asList("x", "y", "z"), view.getItems());
+        assertEquals("child", view.customer());
+        assertEquals(-3.0, view.getAmount(), 0);
+        assertEquals('c', view.priority());
+        assertEquals(2, view.id());
+
+        Order copy = (Order) view.parent();
+        assertEquals("parent", copy.customer);
+        assertEquals(1.25, copy.amount, 0);
+        assertNull(copy.items);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBackReference() throws IOException {
+        List<Object> items = new ArrayList<>();
+        Order order = new Order(3, "self", (List) items, true, 0, null, 's');
+        items.add(order);
+
+        // References to the projected object resolve to the projection itself
+        FullOrderView view = serializer().project(FullOrderView.class, serialize(order));
+        assertSame(view, view.getItems().get(0));
+        assertEquals("self", view.customer());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() throws IOException {
+        serializer().project(BadView.class, serialize(new Order(1, null, null, false, 0, null, ' ')));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testObjectTypeMismatch() throws IOException {
+        serializer().project(BadObjectView.class, serialize(new Order(1, "customer", null, false, 0, null, ' ')));
+    }
+}
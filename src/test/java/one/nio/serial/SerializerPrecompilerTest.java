@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SerializerPrecompilerTest {
+
+    public static class Account implements Serializable {
+        long id;
+        String owner;
+        List<String> tags;
+        double balance;
+
+        Account(long id, String owner, List<String> tags, double balance) {
+            this.id = id;
+            this.owner = owner;
+            this.tags = tags;
+            this.balance = balance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Account)) return false;
+            Account other = (Account) o;
+            return id == other.id && Objects.equals(owner, other.owner)
+                    && Objects.equals(tags, other.tags) && balance == other.balance;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) id;
+        }
+    }
+
+    public static class Profile implements Serializable {
+        String name;
+        int age;
+
+        Profile(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    public static class Session implements Serializable {
+        int user;
+        long expires;
+
+        Session(int user, long expires) {
+            this.user = user;
+            this.expires = expires;
+        }
+    }
+
+    @Test
+    public void testLoadPrecompiled() throws IOException, ClassNotFoundException {
+        byte[] data = SerializerPrecompiler.generate(Account.class, String.class);
+        Serializer generated = Repository.removeSerializer(Repository.get(Account.class).uid());
+
+        assertEquals(1, Repository.loadPrecompiled(data, getClass().getClassLoader()));
+        Serializer precompiled = Repository.get(Account.class);
+        assertNotSame(generated, precompiled);
+        assertEquals(generated, precompiled);
+        assertSame(precompiled, Repository.requestSerializer(generated.uid()));
+
+        Account account = new Account(42, "owner", Arrays.asList("a", "b"), 12.5);
+        Utils.checkSerialize(account);
+        assertEquals(account, Utils.deserializeObject(Utils.serializeObject(account)));
+
+        // Already registered serializers are not replaced
+        assertEquals(0, Repository.loadPrecompiled(data, getClass().getClassLoader()));
+        assertSame(precompiled, Repository.get(Account.class));
+
+        // The precompiled delegate can be defined only once, afterwards serializer is generated at run time
+        Repository.removeSerializer(precompiled.uid());
+        assertEquals(0, Repository.loadPrecompiled(data, getClass().getClassLoader()));
+        assertEquals(precompiled, Repository.get(Account.class));
+        Utils.checkSerialize(account);
+    }
+
+    @Test
+    public void testChangedOptions() throws IOException {
+        byte[] data = SerializerPrecompiler.generate(Session.class);
+        Repository.setOptions(Session.class, Repository.VARINT_ENCODING);
+        try {
+            assertEquals(0, Repository.loadPrecompiled(data, getClass().getClassLoader()));
+        } finally {
+            Repository.setOptions(Session.class, 0);
+        }
+    }
+
+    @Test
+    public void testJar() throws IOException, ClassNotFoundException {
+        File jar = File.createTempFile("serializers", ".jar");
+        try {
+            try (FileOutputStream out = new FileOutputStream(jar)) {
+                SerializerPrecompiler.writeJar(out, Profile.class);
+            }
+
+            Serializer generated = Repository.removeSerializer(Repository.get(Profile.class).uid());
+
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, getClass().getClassLoader())) {
+                assertEquals(1, Repository.loadPrecompiled(loader));
+            }
+
+            Serializer precompiled = Repository.get(Profile.class);
+            assertNotSame(generated, precompiled);
+            assertEquals(generated, precompiled);
+
+            Profile profile = (Profile) Utils.clone(new Profile("name", 33));
+            assertEquals("name", profile.name);
+            assertEquals(33, profile.age);
+        } finally {
+            jar.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidData() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[16]);
+        Repository.loadPrecompiled(out.toByteArray(), getClass().getClassLoader());
+    }
+}
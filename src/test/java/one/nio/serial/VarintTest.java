@@ -0,0 +1,211 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package one.nio.serial;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.junit.Test;
+
+import static one.nio.serial.Utils.checkSerialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VarintTest {
+    private static final long[] VALUES = {
+            0, 1, -1, 63, -64, 64, -65, 127, 128, 8191, 8192, -8193,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 1L << 35, -(1L << 49)
+    };
+
+    @SerialOptions(Repository.VARINT_ENCODING)
+    public static class Compact implements Serializable {
+        int count;
+        long id;
+        String name;
+        short code;
+        long timestamp;
+        transient int cached;
+
+        Compact(int count, long id, String name, short code, long timestamp) {
+            this.count = count;
+            this.id = id;
+            this.name = name;
+            this.code = code;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Compact)) return false;
+            Compact other = (Compact) o;
+            return count == other.count && id == other.id && Objects.equals(name, other.name)
+                    && code == other.code && timestamp == other.timestamp;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) id;
+        }
+    }
+
+    public static class Fixed implements Serializable {
+        int count;
+        long id;
+        String name;
+        short code;
+        long timestamp;
+
+        Fixed(int count, long id, String name, short code, long timestamp) {
+            this.count = count;
+            this.id = id;
+            this.name = name;
+            this.code = code;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public interface CompactView {
+        int count();
+        long getId();
+        short code();
+        long timestamp();
+    }
+
+    @Test
+    public void testEncoding() throws IOException {
+        for (long value : VALUES) {
+            byte[] buf = new byte[10];
+            SerializeStream out = new SerializeStream(buf);
+            out.writeVarLong(value);
+            assertEquals(DataStream.varLongSize(value), out.count());
+
+            DeserializeStream in = new DeserializeStream(buf);
+            assertEquals(value, in.readVarLong());
+            assertEquals(out.count(), in.count());
+
+            if (value == (int) value) {
+                CalcSizeStream css = new CalcSizeStream();
+                css.writeVarInt((int) value);
+                assertEquals(out.count(), css.count());
+                assertEquals((int) value, new DeserializeStream(buf).readVarInt());
+            }
+        }
+
+        assertEquals(1, DataStream.varLongSize(-64));
+        assertEquals(2, DataStream.varLongSize(64));
+        assertEquals(5, DataStream.varLongSize(Integer.MIN_VALUE));
+        assertEquals(10, DataStream.varLongSize(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, ClassNotFoundException {
+        for (long value : VALUES) {
+            checkSerialize(new Compact((int) value, value, "v" + value, (short) value, -value));
+        }
+        checkSerialize(Arrays.asList(new Compact(1, 2, null, (short) 3, 4), new Compact(-1, -2, "x", (short) -3, -4)));
+    }
+
+    @Test
+    public void testSize() throws IOException {
+        long timestamp = 1700000000000L;
+        int compact = Utils.serializeObject(new Compact(5, 12345, "abc", (short) 7, timestamp)).length;
+        int fixed = Utils.serializeObject(new Fixed(5, 12345, "abc", (short) 7, timestamp)).length;
+        assertEquals(fixed - (4 - 1) - (8 - 3) - (8 - 6), compact);
+    }
+
+    @Test
+    public void testSkip() throws IOException, ClassNotFoundException {
+        Compact first = new Compact(-100, Long.MAX_VALUE, "first", (short) 1, 0);
+        Compact second = new Compact(100, Long.MIN_VALUE, "second", (short) 2, 1);
+        CalcSizeStream css = new CalcSizeStream();
+        css.writeObject(first);
+        css.writeObject(second);
+        byte[] buf = new byte[css.count()];
+        SerializeStream out = new SerializeStream(buf);
+        out.writeObject(first);
+        out.writeObject(second);
+
+        Serializer serializer = Repository.get(Compact.class);
+        DeserializeStream in = new DeserializeStream(buf);
+        assertEquals(serializer.uid(), in.readLong());
+        serializer.skip(in);
+        assertEquals(second, in.readObject());
+    }
+
+    @Test
+    public void testProjection() throws IOException {
+        Compact obj = new Compact(-7, 1L << 40, "projected", (short) -3, 42);
+        GeneratedSerializer serializer = (GeneratedSerializer) Repository.get(Compact.class);
+
+        DeserializeStream in = new DeserializeStream(Utils.serializeObject(obj));
+        assertEquals(serializer.uid(), in.readLong());
+        CompactView view = serializer.project(CompactView.class, in);
+        assertEquals(42, view.timestamp());
+        assertEquals(-3, view.code());
+        assertEquals(1L << 40, view.getId());
+        assertEquals(-7, view.count());
+    }
+
+    @Test
+    public void testRemoteSchema() throws IOException, ClassNotFoundException {
+        Compact obj = new Compact(Integer.MIN_VALUE, -1, "remote", (short) 0, 1);
+        Serializer serializer = Repository.get(Compact.class);
+        byte[] data = Utils.serializeObject(obj);
+        byte[] schema = Utils.serializeObject(serializer);
+
+        Repository.removeSerializer(serializer.uid());
+        try {
+            Serializer remote = (Serializer) Utils.deserializeObject(schema);
+            assertEquals(serializer.uid(), remote.uid());
+            assertTrue(remote.toString().contains("Encoding: varint"));
+
+            DeserializeStream in = new DeserializeStream(data);
+            assertEquals(remote.uid(), in.readLong());
+            assertEquals(obj, remote.read(in));
+        } finally {
+            Repository.provideSerializer(serializer);
+        }
+
+        assertFalse(Repository.get(Fixed.class).toString().contains("varint"));
+    }
+
+    @Test
+    public void testUnawarePeer() throws IOException, ClassNotFoundException {
+        Serializer serializer = Repository.get(Compact.class);
+        assertTrue(serializer instanceof VarintGeneratedSerializer);
+        byte[] schema = Utils.serializeObject(serializer);
+
+        // A peer without varint support knows neither the serializer nor its serializer class
+        Serializer serializerSerializer = Repository.get(VarintGeneratedSerializer.class);
+        Repository.removeSerializer(serializer.uid());
+        Repository.removeSerializer(serializerSerializer.uid());
+        try {
+            Utils.deserializeObject(schema);
+            fail("Varint schema must not be readable without VarintGeneratedSerializer");
+        } catch (SerializerNotFoundException e) {
+            assertEquals(serializerSerializer.uid(), e.getUid());
+        } finally {
+            Repository.provideSerializer(serializerSerializer);
+            Repository.provideSerializer(serializer);
+        }
+    }
+}
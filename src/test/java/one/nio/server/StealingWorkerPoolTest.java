@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025 VK
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package one.nio.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class StealingWorkerPoolTest {
+
+    @Test
+    public void testExecute() throws Exception {
+        StealingWorkerPool pool = new StealingWorkerPool(4, 1000, 4, Thread.NORM_PRIORITY, null);
+        pool.start();
+        try {
+            CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                pool.execute(done::countDown);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.gracefulShutdown();
+        }
+    }
+
+    @Test
+    public void testStealing() throws Exception {
+        // A single worker lives on queue 0, so tasks that land on other queues must be stolen
+        StealingWorkerPool pool = new StealingWorkerPool(8, 1000, 1, Thread.NORM_PRIORITY, null);
+        pool.start();
+        try {
+            CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                pool.execute(done::countDown);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertTrue(pool.getSteals() > 0);
+            assertEquals(0, pool.getQueueDepth());
+        } finally {
+            pool.gracefulShutdown();
+        }
+    }
+
+    @Test
+    public void testRejectWhenFull() throws Exception {
+        StealingWorkerPool pool = new StealingWorkerPool(1, 2, 1, Thread.NORM_PRIORITY, null);
+        pool.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            pool.execute(() -> {});
+            pool.execute(() -> {});
+            assertEquals(2, pool.getQueueDepth());
+            try {
+                pool.execute(() -> {});
+                fail("Task should be rejected");
+            } catch (RejectedExecutionException e) {
+                // Expected
+            }
+        } finally {
+            release.countDown();
+            pool.gracefulShutdown();
+        }
+        assertEquals(0, pool.getQueueDepth());
+    }
+}